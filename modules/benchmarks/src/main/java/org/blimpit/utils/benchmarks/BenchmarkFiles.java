@@ -0,0 +1,52 @@
+package org.blimpit.utils.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Creates and removes the files used by the benchmarks.
+ */
+final class BenchmarkFiles {
+
+    private BenchmarkFiles() {
+
+    }
+
+    /**
+     * Creates a file of the given size filled with random bytes
+     * @param path
+     * @param size
+     * @return
+     * @throws IOException
+     */
+    static Path createFile(Path path, long size) throws IOException {
+        Random random = new Random(size);
+        byte[] buffer = new byte[(int) Math.min(size, 1024 * 1024)];
+        try (OutputStream outputStream = Files.newOutputStream(path)) {
+            long remaining = size;
+            while (remaining > 0) {
+                random.nextBytes(buffer);
+                int length = (int) Math.min(remaining, buffer.length);
+                outputStream.write(buffer, 0, length);
+                remaining -= length;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Deletes the given directory and everything under it
+     * @param directory
+     * @throws IOException
+     */
+    static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.blimpit.utils.benchmarks;
+
+import org.blimpit.utils.filehandler.AsyncFileHandler;
+import org.blimpit.utils.filehandler.BlimpItAsyncFileHandler;
+import org.blimpit.utils.filehandler.BlimpItFileHandler;
+import org.blimpit.utils.filehandler.FileTransferExecutors;
+import org.blimpit.utils.filehandler.TransferResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntFunction;
+
+/**
+ * Runs a fixed number of transfers of the shared {@link BlimpItFileHandler} at the same time and waits for all of them,
+ * so that a benchmark operation measures the time taken by the whole group.
+ */
+final class ConcurrentTransfers {
+
+    private final int concurrency;
+    private final ExecutorService executor;
+    private final AsyncFileHandler asyncFileHandler;
+
+    ConcurrentTransfers(int concurrency) {
+        this.concurrency = concurrency;
+        this.executor = FileTransferExecutors.newPlatformThreadExecutor(concurrency);
+        this.asyncFileHandler = new BlimpItAsyncFileHandler(BlimpItFileHandler.getInstance(), executor);
+    }
+
+    /**
+     * Starts one transfer per slot and waits for all of them
+     * @param transfer starts the transfer of the given slot, from 0 to the concurrency less one
+     * @return total number of bytes transferred
+     * @throws IllegalStateException if a transfer failed, so that a failing setup is not reported as a fast one
+     */
+    long run(IntFunction<CompletableFuture<TransferResult>> transfer) {
+        List<CompletableFuture<TransferResult>> futures = new ArrayList<>(concurrency);
+        for (int slot = 0; slot < concurrency; slot++) {
+            futures.add(transfer.apply(slot));
+        }
+        long bytesTransferred = 0;
+        for (CompletableFuture<TransferResult> future : futures) {
+            TransferResult result = future.join();
+            if (!result.isSuccess()) {
+                throw new IllegalStateException("Transfer failed: " + result);
+            }
+            bytesTransferred += result.getBytesTransferred();
+        }
+        return bytesTransferred;
+    }
+
+    AsyncFileHandler getAsyncFileHandler() {
+        return asyncFileHandler;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,75 @@
+package org.blimpit.utils.benchmarks;
+
+import org.blimpit.utils.filehandler.AsyncFileHandler;
+import org.blimpit.utils.filehandler.BlimpItFileHandler;
+import org.blimpit.utils.filehandler.FileHandler;
+import org.blimpit.utils.filehandler.TransferMode;
+import org.blimpit.utils.filehandler.TransferOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link FileHandler#copyFile(String, String, TransferOptions)} in the {@link TransferMode#STREAM}
+ * and {@link TransferMode#NIO} modes, running the given number of copies of the same file at the same time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CopyFileBenchmark {
+
+    @Param({"1024", "1048576", "67108864", "1073741824"})
+    private int fileSize;
+
+    @Param({"1", "4", "8"})
+    private int concurrency;
+
+    @Param({"STREAM", "NIO"})
+    private TransferMode mode;
+
+    private TransferOptions options;
+    private Path directory;
+    private String sourcePath;
+    private ConcurrentTransfers transfers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        options = new TransferOptions().setMode(mode);
+        directory = Files.createTempDirectory("copy-benchmark");
+        Path source = BenchmarkFiles.createFile(directory.resolve("source.bin"), fileSize);
+        sourcePath = source.toString();
+        transfers = new ConcurrentTransfers(concurrency);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        transfers.shutdown();
+        BenchmarkFiles.deleteDirectory(directory);
+        BlimpItFileHandler.shutdown();
+    }
+
+    @Benchmark
+    public long copyFile() {
+        AsyncFileHandler fileHandler = transfers.getAsyncFileHandler();
+        return transfers.run(slot -> fileHandler.copyFile(sourcePath,
+                directory.resolve("target" + slot + ".bin").toString(), options));
+    }
+}
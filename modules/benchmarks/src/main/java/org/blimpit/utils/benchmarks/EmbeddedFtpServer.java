@@ -0,0 +1,86 @@
+package org.blimpit.utils.benchmarks;
+
+import org.apache.ftpserver.ConnectionConfigFactory;
+import org.apache.ftpserver.FtpServer;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.usermanager.PropertiesUserManagerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.ConcurrentLoginPermission;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A local ftp server standing in for the remote servers of the benchmarks. Unlike MockFtpServer it keeps its files on
+ * disk, so files of any size can be transferred.
+ */
+final class EmbeddedFtpServer {
+
+    private static final String USER = "benchmark";
+    private static final String PASSWORD = "benchmark";
+    private static final int MAX_LOGINS = 64;
+
+    private final FtpServer server;
+    private final int port;
+
+    /**
+     * Starts a server on a free local port
+     * @param rootDirectory home directory of the user of the server
+     * @throws IOException
+     */
+    EmbeddedFtpServer(Path rootDirectory) throws IOException {
+        this.port = findFreePort();
+        ListenerFactory listenerFactory = new ListenerFactory();
+        listenerFactory.setServerAddress("127.0.0.1");
+        listenerFactory.setPort(port);
+
+        BaseUser user = new BaseUser();
+        user.setName(USER);
+        user.setPassword(PASSWORD);
+        user.setHomeDirectory(rootDirectory.toString());
+        List<Authority> authorities = Arrays.asList(new WritePermission(),
+                new ConcurrentLoginPermission(0, 0));
+        user.setAuthorities(authorities);
+
+        FtpServerFactory serverFactory = new FtpServerFactory();
+        serverFactory.addListener("default", listenerFactory.createListener());
+        ConnectionConfigFactory connectionConfigFactory = new ConnectionConfigFactory();
+        connectionConfigFactory.setMaxLogins(MAX_LOGINS);
+        serverFactory.setConnectionConfig(connectionConfigFactory.createConnectionConfig());
+        try {
+            PropertiesUserManagerFactory userManagerFactory = new PropertiesUserManagerFactory();
+            serverFactory.setUserManager(userManagerFactory.createUserManager());
+            serverFactory.getUserManager().save(user);
+            this.server = serverFactory.createServer();
+            server.start();
+        } catch (FtpException e) {
+            throw new IOException("Could not start the ftp server", e);
+        }
+    }
+
+    /**
+     * Returns the url of the file of the given name in the root directory of the server
+     * @param fileName
+     * @return
+     */
+    String getUrl(String fileName) {
+        return "ftp://" + USER + ":" + PASSWORD + "@127.0.0.1:" + port + "/" + fileName;
+    }
+
+    void stop() {
+        server.stop();
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.blimpit.utils.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local http server standing in for the remote services of the benchmarks. Downloads are streamed from the files
+ * of a directory and uploads are read and discarded, so neither side holds a whole file in memory.
+ */
+final class EmbeddedHttpServer {
+
+    private static final String DOWNLOAD_CONTEXT = "/files/";
+    private static final String UPLOAD_CONTEXT = "/upload";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path directory;
+
+    /**
+     * Starts a server on a free local port
+     * @param directory directory holding the files which can be downloaded
+     * @throws IOException
+     */
+    EmbeddedHttpServer(Path directory) throws IOException {
+        // without it the server waits for delayed acks between the headers and the body of small responses
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.directory = directory;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newCachedThreadPool();
+        server.createContext(DOWNLOAD_CONTEXT, this::download);
+        server.createContext(UPLOAD_CONTEXT, this::upload);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Returns the url from which the file of the given name in the directory of the server is downloaded
+     * @param fileName
+     * @return
+     */
+    String getDownloadUrl(String fileName) {
+        return getBaseUrl() + DOWNLOAD_CONTEXT + fileName;
+    }
+
+    String getUploadUrl() {
+        return getBaseUrl() + UPLOAD_CONTEXT;
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private String getBaseUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    private void download(HttpExchange exchange) throws IOException {
+        Path file = directory.resolve(exchange.getRequestURI().getPath().substring(DOWNLOAD_CONTEXT.length()));
+        try {
+            if (!Files.isRegularFile(file)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, Files.size(file));
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                Files.copy(file, outputStream);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void upload(HttpExchange exchange) throws IOException {
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream inputStream = exchange.getRequestBody()) {
+                while (inputStream.read(buffer) != -1) {
+                    // the content is not needed, only the time taken to receive it
+                }
+            }
+            exchange.sendResponseHeaders(200, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.blimpit.utils.benchmarks;
+
+import org.blimpit.utils.filehandler.AsyncFileHandler;
+import org.blimpit.utils.filehandler.BlimpItFileHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures uploads to and downloads from a local ftp server, running the given number of transfers of the same
+ * file at the same time. Every concurrent transfer writes its own file, so the largest size at the highest
+ * concurrency needs twice as many times the file size of free space in the temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FtpTransferBenchmark {
+
+    private static final String SOURCE_FILE_NAME = "source.bin";
+
+    @Param({"1024", "1048576", "67108864", "1073741824"})
+    private int fileSize;
+
+    @Param({"1", "4", "8"})
+    private int concurrency;
+
+    private Path directory;
+    private String sourcePath;
+    private EmbeddedFtpServer server;
+    private ConcurrentTransfers transfers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ftp-benchmark");
+        sourcePath = BenchmarkFiles.createFile(directory.resolve(SOURCE_FILE_NAME), fileSize).toString();
+        server = new EmbeddedFtpServer(directory);
+        transfers = new ConcurrentTransfers(concurrency);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        transfers.shutdown();
+        BlimpItFileHandler.shutdown();
+        server.stop();
+        BenchmarkFiles.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public long upload() {
+        AsyncFileHandler fileHandler = transfers.getAsyncFileHandler();
+        return transfers.run(slot -> fileHandler.uploadFileToaRemoteServer(sourcePath,
+                server.getUrl("upload" + slot + ".bin")));
+    }
+
+    @Benchmark
+    public long download() {
+        AsyncFileHandler fileHandler = transfers.getAsyncFileHandler();
+        String downloadUrl = server.getUrl(SOURCE_FILE_NAME);
+        return transfers.run(slot -> fileHandler.downloadFileFromRemoteServer(downloadUrl,
+                directory.resolve("download" + slot + ".bin").toString()));
+    }
+}
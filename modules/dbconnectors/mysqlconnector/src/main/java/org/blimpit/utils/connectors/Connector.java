@@ -1,8 +1,14 @@
 package org.blimpit.utils.connectors;
 
+import org.blimpit.utils.connectors.mysql.BatchInsertOptions;
+import org.blimpit.utils.connectors.mysql.BatchInsertResult;
+import org.blimpit.utils.connectors.mysql.ReadQuery;
 import org.blimpit.utils.connectors.mysql.Record;
+import org.blimpit.utils.connectors.mysql.RecordBatch;
 
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * An interface which describes APIs for MySQL DB operations
@@ -19,6 +25,37 @@ public interface Connector {
      */
     boolean insert(String collectionName, Map<String, String> recordMap);
 
+    /**
+     * insert many records to table, in batches
+     *
+     * @param collectionName Name of the table or collection
+     * @param records        filedName and value pairs of every record
+     * @return the number of records inserted and the records which were not
+     */
+    BatchInsertResult insertAll(String collectionName, Iterable<Map<String, String>> records);
+
+    /**
+     * insert many records to table, in batches
+     *
+     * @param collectionName Name of the table or collection
+     * @param records        filedName and value pairs of every record
+     * @param options        batch size and flushing of the batches
+     * @return the number of records inserted and the records which were not
+     */
+    BatchInsertResult insertAll(String collectionName, Iterable<Map<String, String>> records,
+                                BatchInsertOptions options);
+
+    /**
+     * insert many records to table, in batches, consuming the stream as the batches are sent
+     *
+     * @param collectionName Name of the table or collection
+     * @param records        filedName and value pairs of every record
+     * @param options        batch size and flushing of the batches
+     * @return the number of records inserted and the records which were not
+     */
+    BatchInsertResult insertAll(String collectionName, Stream<Map<String, String>> records,
+                                BatchInsertOptions options);
+
 
     /**
      * Returns records of the table
@@ -26,4 +63,31 @@ public interface Connector {
      * @return Record
      */
     Record[]  read(String table);
+
+    /**
+     * Returns the records of the table selected by the query, held column by column
+     * @param table Table Name
+     * @param query columns, filter and page of the records
+     * @return the records, none if they could not be read
+     */
+    RecordBatch readBatch(String table, ReadQuery query);
+
+    /**
+     * Returns the records of the table selected by the query as a stream, which reads them from the DB as it is
+     * consumed. The stream holds a connection and must be closed, e.g. with try-with-resources.
+     * @param table Table Name
+     * @param query columns, filter and page of the records
+     * @return Record stream
+     * @throws ConnectorException if the query cannot be run, or when the stream is consumed if the records cannot be read
+     */
+    Stream<Record> stream(String table, ReadQuery query);
+
+    /**
+     * Passes the records of the table selected by the query to the consumer, one at a time, as they are read from the DB
+     * @param table    Table Name
+     * @param query    columns, filter and page of the records
+     * @param consumer called with every record, on the calling thread
+     * @return status of the operation, false if not every record could be read
+     */
+    boolean read(String table, ReadQuery query, Consumer<Record> consumer);
 }
@@ -0,0 +1,12 @@
+package org.blimpit.utils.connectors;
+
+/**
+ * Thrown by the operations of a {@link Connector} which cannot report a failure through their return value,
+ * e.g. while a stream of records is being consumed
+ */
+public class ConnectorException extends RuntimeException {
+
+    public ConnectorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
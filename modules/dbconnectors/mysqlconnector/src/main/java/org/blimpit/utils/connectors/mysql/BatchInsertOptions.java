@@ -0,0 +1,39 @@
+package org.blimpit.utils.connectors.mysql;
+
+/**
+ * Settings of a batch insert of {@link MySQLConnector}.
+ */
+public class BatchInsertOptions {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean autoFlush = true;
+
+    /**
+     * Maximum number of rows sent to the DB in a single batch, and committed in a single transaction
+     * @return
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public BatchInsertOptions setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * If true, rows with the same columns are sent as soon as there are enough of them for a batch.
+     * Otherwise they are held until the {@link BatchInserter} is flushed or closed.
+     * @return
+     */
+    public boolean isAutoFlush() {
+        return autoFlush;
+    }
+
+    public BatchInsertOptions setAutoFlush(boolean autoFlush) {
+        this.autoFlush = autoFlush;
+        return this;
+    }
+}
@@ -0,0 +1,95 @@
+package org.blimpit.utils.connectors.mysql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a batch insert: how many rows were inserted and which ones were not, with the reason.
+ */
+public class BatchInsertResult {
+
+    private long insertedCount;
+    private final List<RowFailure> failures = new ArrayList<>();
+
+    /**
+     * Number of rows inserted
+     * @return
+     */
+    public long getInsertedCount() {
+        return insertedCount;
+    }
+
+    /**
+     * Rows which were not inserted, in the order they were given
+     * @return
+     */
+    public List<RowFailure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * status of the batch insert
+     * @return true if every row was inserted
+     */
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    void addInserted(int count) {
+        insertedCount += count;
+    }
+
+    void addFailure(RowFailure failure) {
+        failures.add(failure);
+    }
+
+    void sortFailures() {
+        failures.sort((first, second) -> Long.compare(first.getRowIndex(), second.getRowIndex()));
+    }
+
+    @Override
+    public String toString() {
+        return "BatchInsertResult{" +
+                "insertedCount=" + insertedCount +
+                ", failedCount=" + failures.size() +
+                '}';
+    }
+
+    /**
+     * A row which could not be inserted
+     */
+    public static class RowFailure {
+
+        private final long rowIndex;
+        private final Map<String, String> record;
+        private final Exception error;
+
+        RowFailure(long rowIndex, Map<String, String> record, Exception error) {
+            this.rowIndex = rowIndex;
+            this.record = record;
+            this.error = error;
+        }
+
+        /**
+         * Position of the row among the rows given to the batch insert, starting at 0
+         * @return
+         */
+        public long getRowIndex() {
+            return rowIndex;
+        }
+
+        public Map<String, String> getRecord() {
+            return record;
+        }
+
+        /**
+         * Why the row was not inserted
+         * @return
+         */
+        public Exception getError() {
+            return error;
+        }
+    }
+}
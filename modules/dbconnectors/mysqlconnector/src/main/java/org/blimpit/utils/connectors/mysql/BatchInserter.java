@@ -0,0 +1,183 @@
+package org.blimpit.utils.connectors.mysql;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Inserts rows into a table in batches. Rows are grouped by their set of columns, every group is sent as JDBC batches
+ * of one prepared INSERT, which the MySQL driver rewrites into multi-row INSERT statements, and every batch is committed
+ * in its own transaction. If a batch fails it is rolled back and its rows are inserted one by one, so that the rows
+ * which can be inserted are, and the others are reported with their own error.
+ * <p>
+ * An inserter is used by a single thread. Each batch borrows a connection from the pool only while it is sent.
+ */
+public class BatchInserter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchInserter.class);
+
+    private final MySQLConnection mySQLConnection;
+    private final String table;
+    private final int batchSize;
+    private final boolean autoFlush;
+    private final Map<List<String>, List<Row>> pendingRows = new LinkedHashMap<>();
+    private final BatchInsertResult result = new BatchInsertResult();
+    private final Runnable afterWrite;
+    private long rowCount;
+
+    BatchInserter(MySQLConnection mySQLConnection, String table, BatchInsertOptions options) {
+        this(mySQLConnection, table, options, () -> { });
+    }
+
+    /**
+     * @param afterWrite run after rows have been sent to the table, whether or not they were all inserted
+     */
+    BatchInserter(MySQLConnection mySQLConnection, String table, BatchInsertOptions options, Runnable afterWrite) {
+        this.mySQLConnection = mySQLConnection;
+        this.table = table;
+        this.afterWrite = afterWrite;
+        this.batchSize = Math.max(1, options.getBatchSize());
+        this.autoFlush = options.isAutoFlush();
+    }
+
+    /**
+     * Adds a row to insert
+     * @param recordMap fieldName and value pairs
+     */
+    public void add(Map<String, String> recordMap) {
+        long rowIndex = rowCount++;
+        if (recordMap.isEmpty()) {
+            result.addFailure(new BatchInsertResult.RowFailure(rowIndex, recordMap,
+                    new IllegalArgumentException("Record has no fields")));
+            return;
+        }
+        // the columns are sorted so that maps with the same keys share a statement whatever their iteration order
+        List<String> columns = new ArrayList<>(new TreeSet<>(recordMap.keySet()));
+        List<Row> rows = pendingRows.computeIfAbsent(columns, key -> new ArrayList<>());
+        rows.add(new Row(rowIndex, recordMap));
+        if (autoFlush && rows.size() >= batchSize) {
+            pendingRows.remove(columns);
+            insertBatches(columns, rows);
+        }
+    }
+
+    /**
+     * Sends every pending row to the DB
+     */
+    public void flush() {
+        for (Map.Entry<List<String>, List<Row>> entry : pendingRows.entrySet()) {
+            insertBatches(entry.getKey(), entry.getValue());
+        }
+        pendingRows.clear();
+    }
+
+    /**
+     * Returns the outcome of the rows sent so far
+     * @return
+     */
+    public BatchInsertResult getResult() {
+        result.sortFailures();
+        return result;
+    }
+
+    /**
+     * Sends the pending rows
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void insertBatches(List<String> columns, List<Row> rows) {
+        String sql = getInsertStatement(columns);
+        for (int start = 0; start < rows.size(); start += batchSize) {
+            insertBatch(sql, columns, rows.subList(start, Math.min(start + batchSize, rows.size())));
+        }
+        afterWrite.run();
+    }
+
+    private void insertBatch(String sql, List<String> columns, List<Row> batch) {
+        try (Connection connection = mySQLConnection.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            try {
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (Row row : batch) {
+                        setValues(statement, columns, row);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    connection.commit();
+                    result.addInserted(batch.size());
+                    return;
+                } catch (SQLException e) {
+                    connection.rollback();
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            insertRowByRow(connection, sql, columns, batch);
+        } catch (SQLException e) {
+            // the connection could not be borrowed, or was lost
+            LOGGER.error("Could not insert a batch of {} rows into {}", batch.size(), table, e);
+            for (Row row : batch) {
+                result.addFailure(new BatchInsertResult.RowFailure(row.index, row.recordMap, e));
+            }
+        }
+    }
+
+    private void insertRowByRow(Connection connection, String sql, List<String> columns, List<Row> batch)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Row row : batch) {
+                try {
+                    setValues(statement, columns, row);
+                    statement.executeUpdate();
+                    result.addInserted(1);
+                } catch (SQLException e) {
+                    result.addFailure(new BatchInsertResult.RowFailure(row.index, row.recordMap, e));
+                }
+            }
+        }
+    }
+
+    private String getInsertStatement(List<String> columns) {
+        StringBuilder columnList = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
+        for (String column : columns) {
+            if (columnList.length() > 0) {
+                columnList.append(", ");
+                placeholders.append(", ");
+            }
+            columnList.append(MySQLConnector.quoteIdentifier(column));
+            placeholders.append('?');
+        }
+        return "INSERT INTO " + MySQLConnector.quoteIdentifier(table)
+                + " (" + columnList + ") VALUES (" + placeholders + ")";
+    }
+
+    private static void setValues(PreparedStatement statement, List<String> columns, Row row) throws SQLException {
+        for (int i = 0; i < columns.size(); i++) {
+            statement.setString(i + 1, row.recordMap.get(columns.get(i)));
+        }
+    }
+
+    private static class Row {
+
+        private final long index;
+        private final Map<String, String> recordMap;
+
+        private Row(long index, Map<String, String> recordMap) {
+            this.index = index;
+            this.recordMap = recordMap;
+        }
+    }
+}
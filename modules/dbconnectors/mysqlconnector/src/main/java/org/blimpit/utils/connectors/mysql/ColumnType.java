@@ -0,0 +1,65 @@
+package org.blimpit.utils.connectors.mysql;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * How the values of a column are held in a {@link RecordBatch}
+ */
+public enum ColumnType {
+
+    /**
+     * Signed integers of up to 32 bits, and booleans as 0 or 1
+     */
+    INT,
+    /**
+     * Integers of up to 64 bits, including unsigned 32 bit ones
+     */
+    LONG,
+    /**
+     * Floating point numbers
+     */
+    DOUBLE,
+    /**
+     * Binary strings and blobs
+     */
+    BYTES,
+    /**
+     * Everything else, including decimals, dates and unsigned 64 bit integers, as returned by the driver
+     */
+    STRING;
+
+    /**
+     * Returns the type holding the values of the given column of a result set
+     * @param metaData
+     * @param column position of the column, starting at 1
+     * @return
+     * @throws SQLException
+     */
+    static ColumnType of(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.TINYINT:
+            case Types.SMALLINT:
+                return INT;
+            case Types.INTEGER:
+                return metaData.isSigned(column) ? INT : LONG;
+            case Types.BIGINT:
+                // an unsigned value may not fit
+                return metaData.isSigned(column) ? LONG : STRING;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return DOUBLE;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return BYTES;
+            default:
+                return STRING;
+        }
+    }
+}
@@ -1,19 +1,115 @@
 package org.blimpit.utils.connectors.mysql;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.blimpit.utils.connectors.Connection;
 
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Represents actual connection to the DB
+ * Represents actual connection to the DB, through a bounded pool of JDBC connections
  */
 class MySQLConnection implements Connection {
 
+    private static final String POOL_NAME = "blimpit-mysqlconnector";
+    private static final int IS_VALID_TIMEOUT_IN_SECONDS = 5;
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final HikariDataSource dataSource;
+
     MySQLConnection(String ip, String port, String dbName,
                     String username, String password) {
+        this(ip, port, dbName, username, password, new MySQLConnectionPoolConfig());
+    }
 
+    MySQLConnection(String ip, String port, String dbName,
+                    String username, String password, MySQLConnectionPoolConfig poolConfig) {
+        this(getJdbcUrl(ip, port, dbName), username, password, poolConfig);
     }
 
+    MySQLConnection(String jdbcUrl, String username, String password, MySQLConnectionPoolConfig poolConfig) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(POOL_NAME + "-" + POOL_COUNT.incrementAndGet());
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMinimumIdle(poolConfig.getMinIdleConnections());
+        config.setMaximumPoolSize(poolConfig.getMaxConnections());
+        config.setConnectionTimeout(poolConfig.getBorrowTimeoutInMS());
+        config.setValidationTimeout(poolConfig.getValidationTimeoutInMS());
+        config.setIdleTimeout(poolConfig.getMaxIdleTimeInMS());
+        config.setMaxLifetime(poolConfig.getMaxLifetimeInMS());
+        config.setLeakDetectionThreshold(poolConfig.getLeakDetectionThresholdInMS());
+        // the pool is created even if the server is not reachable yet, isOpen tells whether it is
+        config.setInitializationFailTimeout(-1);
+
+        // prepare statements on the server and cache them on the client, per connection
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(poolConfig.getStatementCacheSize()));
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", String.valueOf(poolConfig.getStatementCacheSqlLimit()));
+        // statements with a fetch size read their result through a server side cursor, a block at a time
+        config.addDataSourceProperty("useCursorFetch", "true");
+        // send a JDBC batch of inserts as multi-row INSERT statements
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        // skip the round trips the driver makes to read or restore session state the pool does not change
+        config.addDataSourceProperty("useLocalSessionState", "true");
+        config.addDataSourceProperty("cacheResultSetMetadata", "true");
+        config.addDataSourceProperty("cacheServerConfiguration", "true");
+        config.addDataSourceProperty("elideSetAutoCommits", "true");
+        config.addDataSourceProperty("maintainTimeStats", "false");
+        this.dataSource = new HikariDataSource(config);
+    }
+
+    static String getJdbcUrl(String ip, String port, String dbName) {
+        return "jdbc:mysql://" + ip + ":" + port + "/" + dbName;
+    }
 
+    /**
+     * Returns true if a connection to the DB can be borrowed and is valid
+     * @return
+     */
     public boolean isOpen() {
-        return false;
+        if (dataSource.isClosed()) {
+            return false;
+        }
+        try (java.sql.Connection connection = dataSource.getConnection()) {
+            return connection.isValid(IS_VALID_TIMEOUT_IN_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool, which is returned to the pool when it is closed
+     * @return
+     * @throws SQLException if no connection becomes available within the borrow timeout
+     */
+    java.sql.Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Number of connections currently borrowed from the pool
+     * @return
+     */
+    int getActiveConnections() {
+        return dataSource.getHikariPoolMXBean().getActiveConnections();
+    }
+
+    /**
+     * Number of connections, idle or in use, currently open
+     * @return
+     */
+    int getTotalConnections() {
+        return dataSource.getHikariPoolMXBean().getTotalConnections();
+    }
+
+    /**
+     * Closes the idle connections and the borrowed ones once they are returned
+     */
+    void close() {
+        dataSource.close();
     }
 }
@@ -0,0 +1,147 @@
+package org.blimpit.utils.connectors.mysql;
+
+/**
+ * Settings of the pool of JDBC connections kept by the {@link MySQLConnector} instance.
+ */
+public class MySQLConnectionPoolConfig {
+
+    public static final int DEFAULT_MIN_IDLE_CONNECTIONS = 2;
+    public static final int DEFAULT_MAX_CONNECTIONS = 10;
+    public static final long DEFAULT_BORROW_TIMEOUT_IN_MS = 30000;
+    public static final long DEFAULT_VALIDATION_TIMEOUT_IN_MS = 5000;
+    public static final long DEFAULT_MAX_IDLE_TIME_IN_MS = 600000;
+    public static final long DEFAULT_MAX_LIFETIME_IN_MS = 1800000;
+    public static final long DEFAULT_LEAK_DETECTION_THRESHOLD_IN_MS = 60000;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 250;
+    public static final int DEFAULT_STATEMENT_CACHE_SQL_LIMIT = 2048;
+
+    private int minIdleConnections = DEFAULT_MIN_IDLE_CONNECTIONS;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private long borrowTimeoutInMS = DEFAULT_BORROW_TIMEOUT_IN_MS;
+    private long validationTimeoutInMS = DEFAULT_VALIDATION_TIMEOUT_IN_MS;
+    private long maxIdleTimeInMS = DEFAULT_MAX_IDLE_TIME_IN_MS;
+    private long maxLifetimeInMS = DEFAULT_MAX_LIFETIME_IN_MS;
+    private long leakDetectionThresholdInMS = DEFAULT_LEAK_DETECTION_THRESHOLD_IN_MS;
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    private int statementCacheSqlLimit = DEFAULT_STATEMENT_CACHE_SQL_LIMIT;
+
+    /**
+     * Number of idle connections the pool tries to keep open
+     * @return
+     */
+    public int getMinIdleConnections() {
+        return minIdleConnections;
+    }
+
+    public MySQLConnectionPoolConfig setMinIdleConnections(int minIdleConnections) {
+        this.minIdleConnections = minIdleConnections;
+        return this;
+    }
+
+    /**
+     * Maximum number of connections, idle or in use
+     * @return
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public MySQLConnectionPoolConfig setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * Maximum time to wait for a connection when all the connections are in use, at least 250
+     * @return
+     */
+    public long getBorrowTimeoutInMS() {
+        return borrowTimeoutInMS;
+    }
+
+    public MySQLConnectionPoolConfig setBorrowTimeoutInMS(long borrowTimeoutInMS) {
+        this.borrowTimeoutInMS = borrowTimeoutInMS;
+        return this;
+    }
+
+    /**
+     * Maximum time to wait for the check of a connection which is about to be borrowed, at least 250 and less than
+     * the borrow timeout. Connections used within the last 500 ms are lent without being checked.
+     * @return
+     */
+    public long getValidationTimeoutInMS() {
+        return validationTimeoutInMS;
+    }
+
+    public MySQLConnectionPoolConfig setValidationTimeoutInMS(long validationTimeoutInMS) {
+        this.validationTimeoutInMS = validationTimeoutInMS;
+        return this;
+    }
+
+    /**
+     * Connections idle for longer than this are closed, as long as more than the minimum are idle. 0 keeps them open.
+     * @return
+     */
+    public long getMaxIdleTimeInMS() {
+        return maxIdleTimeInMS;
+    }
+
+    public MySQLConnectionPoolConfig setMaxIdleTimeInMS(long maxIdleTimeInMS) {
+        this.maxIdleTimeInMS = maxIdleTimeInMS;
+        return this;
+    }
+
+    /**
+     * Connections open for longer than this are closed once they are returned, and replaced.
+     * It should be a few seconds shorter than the wait_timeout of the server. At least 30000, 0 for no limit.
+     * @return
+     */
+    public long getMaxLifetimeInMS() {
+        return maxLifetimeInMS;
+    }
+
+    public MySQLConnectionPoolConfig setMaxLifetimeInMS(long maxLifetimeInMS) {
+        this.maxLifetimeInMS = maxLifetimeInMS;
+        return this;
+    }
+
+    /**
+     * Connections borrowed for longer than this are reported as possible leaks, with the stack trace of the borrower.
+     * At least 2000, 0 disables the detection.
+     * @return
+     */
+    public long getLeakDetectionThresholdInMS() {
+        return leakDetectionThresholdInMS;
+    }
+
+    public MySQLConnectionPoolConfig setLeakDetectionThresholdInMS(long leakDetectionThresholdInMS) {
+        this.leakDetectionThresholdInMS = leakDetectionThresholdInMS;
+        return this;
+    }
+
+    /**
+     * Number of prepared statements cached by each connection
+     * @return
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public MySQLConnectionPoolConfig setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+        return this;
+    }
+
+    /**
+     * Longest SQL, in characters, of the prepared statements which are cached
+     * @return
+     */
+    public int getStatementCacheSqlLimit() {
+        return statementCacheSqlLimit;
+    }
+
+    public MySQLConnectionPoolConfig setStatementCacheSqlLimit(int statementCacheSqlLimit) {
+        this.statementCacheSqlLimit = statementCacheSqlLimit;
+        return this;
+    }
+}
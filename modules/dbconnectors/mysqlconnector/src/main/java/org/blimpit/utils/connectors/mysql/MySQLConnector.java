@@ -1,21 +1,46 @@
 package org.blimpit.utils.connectors.mysql;
 
 import org.blimpit.utils.connectors.Connector;
+import org.blimpit.utils.connectors.ConnectorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * A Class which handles MySQL operations
+ * A Class which handles MySQL operations. There is an instance per database, user and password, shared by all the
+ * threads: every operation borrows its own connection from the pool of the instance and returns it when it is done.
+ * A primary and its read replicas are combined by {@link ReplicatedConnector}.
  */
 public class MySQLConnector implements Connector {
 
-    private static volatile MySQLConnector mySQLConnector;
-    private static MySQLConnection mySQLConnection;
+    private static final Logger LOGGER = LoggerFactory.getLogger(MySQLConnector.class);
 
-    private MySQLConnector(String ip, String port, String dbName,
-                           String username, String password) {
+    private static final Map<String, MySQLConnector> instances = new ConcurrentHashMap<>();
 
-        this.mySQLConnection = new MySQLConnection(ip, port, dbName, username, password);
+    private final MySQLConnection mySQLConnection;
+
+    private volatile QueryCache queryCache;
+
+    private volatile WriteBehindQueue writeBehindQueue;
+
+    private MySQLConnector(MySQLConnection mySQLConnection) {
+
+        this.mySQLConnection = mySQLConnection;
 
     }
 
@@ -32,23 +57,337 @@ public class MySQLConnector implements Connector {
      */
     public static Connector getInstance(String ip, String port, String dbName,
                                               String username, String password) {
+        return getInstance(ip, port, dbName, username, password, new MySQLConnectionPoolConfig());
+    }
+
+    /**
+     * Returns MySQLConnector connector object of the database, user and password.
+     * The given settings are only used when the instance is created, i.e. on the first call for the database, user
+     * and password or on the first call after {@link #shutdown()}.
+     *
+     * @param ip         ip of the DB Server
+     * @param port       port of the DB Server
+     * @param dbName     Database name that wants to connect
+     * @param username   username of the DB
+     * @param password   password of the DB
+     * @param poolConfig settings of the connection pool
+     * @return MySQLConnector
+     */
+    public static Connector getInstance(String ip, String port, String dbName,
+                                        String username, String password, MySQLConnectionPoolConfig poolConfig) {
+        return getInstance(MySQLConnection.getJdbcUrl(ip, port, dbName), username, password, poolConfig);
+    }
+
+    /**
+     * Returns MySQLConnector connector object connecting to the given JDBC url, e.g. to a MySQL compatible database.
+     * The given settings are only used when the instance is created, i.e. on the first call for the url, user and
+     * password or on the first call after {@link #shutdown()}.
+     *
+     * @param jdbcUrl    JDBC url of the DB
+     * @param username   username of the DB
+     * @param password   password of the DB
+     * @param poolConfig settings of the connection pool
+     * @return MySQLConnector
+     */
+    public static Connector getInstance(String jdbcUrl, String username, String password,
+                                        MySQLConnectionPoolConfig poolConfig) {
+        String key = jdbcUrl + '\u0000' + username + '\u0000' + hash(password);
+        MySQLConnector mySQLConnector = instances.get(key);
         if (mySQLConnector == null) {
             synchronized (MySQLConnector.class) {
-                if (mySQLConnector == null) {
-                    mySQLConnector = new MySQLConnector(ip, port, dbName, username, password);
-                }
+                mySQLConnector = instances.computeIfAbsent(key, k ->
+                        new MySQLConnector(new MySQLConnection(jdbcUrl, username, password, poolConfig)));
             }
         }
         return mySQLConnector;
     }
 
+    /**
+     * SHA-256 of the password, so that a caller holding a different password never gets the instance
+     * while the registry does not keep the plain password
+     *
+     * @param password password of the DB
+     * @return hex encoded hash, or an empty string for a null password
+     */
+    private static String hash(String password) {
+        if (password == null) {
+            return "";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the records queued by write-behind inserts, then closes the connection pools of every instance.
+     * A later call to getInstance creates a new instance.
+     */
+    public static void shutdown() {
+        synchronized (MySQLConnector.class) {
+            for (MySQLConnector mySQLConnector : instances.values()) {
+                mySQLConnector.setWriteBehind(null);
+                mySQLConnector.mySQLConnection.close();
+            }
+            instances.clear();
+        }
+    }
+
+    /**
+     * Caches the results of {@link #read(String)} and {@link #readBatch(String, ReadQuery)}, replacing the current
+     * cache. The results of a table are dropped whenever a record is inserted into it through this instance.
+     * Writes made by anything else are only seen once the cached results expire.
+     *
+     * @param config settings of the cache, null to stop caching
+     */
+    public void setQueryCache(QueryCacheConfig config) {
+        this.queryCache = config == null ? null : new QueryCache(config);
+    }
+
+    /**
+     * Returns the counters of the result cache
+     *
+     * @return the counters, or null if results are not cached
+     */
+    public QueryCacheStatistics getQueryCacheStatistics() {
+        QueryCache cache = queryCache;
+        return cache == null ? null : cache.getStatistics();
+    }
+
+    /**
+     * Makes {@link #insert(String, Map)} queue the record and return without waiting for the DB, a background thread
+     * writing the queued records in batches. insert then returns true once the record is queued: a record the DB
+     * refuses is only reported by the statistics, and reads may not see a queued record yet.
+     * The other operations are not queued.
+     * <p>
+     * The queued records are written when write-behind is turned off or replaced, and on {@link #shutdown()}.
+     *
+     * @param config settings of the queue, null to insert synchronously again
+     */
+    public synchronized void setWriteBehind(WriteBehindConfig config) {
+        WriteBehindQueue previous = writeBehindQueue;
+        writeBehindQueue = config == null ? null : new WriteBehindQueue(this, config);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Waits until the records queued by write-behind inserts before the call have been written
+     *
+     * @return false if the calling thread was interrupted while waiting
+     */
+    public boolean flushWriteBehind() {
+        WriteBehindQueue queue = writeBehindQueue;
+        return queue == null || queue.flush();
+    }
+
+    /**
+     * Returns the counters of the write-behind queue
+     *
+     * @return the counters, or null if write-behind is off
+     */
+    public WriteBehindStatistics getWriteBehindStatistics() {
+        WriteBehindQueue queue = writeBehindQueue;
+        return queue == null ? null : queue.getStatistics();
+    }
+
     public boolean insert(String collectionName, Map<String, String> recordMap) {
+        if (recordMap.isEmpty()) {
+            return false;
+        }
+        WriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            return queue.enqueue(collectionName, recordMap);
+        }
+        return insertNow(collectionName, recordMap);
+    }
+
+    /**
+     * Inserts the record on the calling thread
+     * @param collectionName
+     * @param recordMap
+     * @return
+     */
+    boolean insertNow(String collectionName, Map<String, String> recordMap) {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
+        List<String> values = new ArrayList<>(recordMap.size());
+        for (Map.Entry<String, String> entry : recordMap.entrySet()) {
+            if (columns.length() > 0) {
+                columns.append(", ");
+                placeholders.append(", ");
+            }
+            columns.append(quoteIdentifier(entry.getKey()));
+            placeholders.append('?');
+            values.add(entry.getValue());
+        }
+        String sql = "INSERT INTO " + quoteIdentifier(collectionName)
+                + " (" + columns + ") VALUES (" + placeholders + ")";
+        try (Connection connection = mySQLConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < values.size(); i++) {
+                statement.setString(i + 1, values.get(i));
+            }
+            boolean inserted = statement.executeUpdate() == 1;
+            invalidate(collectionName);
+            return inserted;
+        } catch (SQLException e) {
+            LOGGER.error("Could not insert a record into {}", collectionName, e);
+        }
         return false;
     }
 
+    public BatchInsertResult insertAll(String collectionName, Iterable<Map<String, String>> records) {
+        return insertAll(collectionName, records, new BatchInsertOptions());
+    }
+
+    public BatchInsertResult insertAll(String collectionName, Iterable<Map<String, String>> records,
+                                       BatchInsertOptions options) {
+        try (BatchInserter batchInserter = newBatchInserter(collectionName, options)) {
+            for (Map<String, String> recordMap : records) {
+                batchInserter.add(recordMap);
+            }
+            batchInserter.flush();
+            return batchInserter.getResult();
+        }
+    }
+
+    public BatchInsertResult insertAll(String collectionName, Stream<Map<String, String>> records,
+                                       BatchInsertOptions options) {
+        return insertAll(collectionName, (Iterable<Map<String, String>>) records::iterator, options);
+    }
+
+    /**
+     * Returns an inserter which sends the rows added to it in batches, for producers which cannot hand all their
+     * rows over at once
+     *
+     * @param collectionName Name of the table
+     * @param options        batch size and flushing of the batches
+     * @return
+     */
+    public BatchInserter newBatchInserter(String collectionName, BatchInsertOptions options) {
+        return new BatchInserter(mySQLConnection, collectionName, options, () -> invalidate(collectionName));
+    }
+
+    /**
+     * Returns every record of the table, held in memory. Large tables should be read with
+     * {@link #stream(String, ReadQuery)} or {@link #read(String, ReadQuery, Consumer)} instead.
+     * @param table Table Name
+     * @return Record
+     */
     public Record[] read(String table) {
-        return new Record[0];
+        return readBatch(table, new ReadQuery()).toArray(new Record[0]);
+    }
+
+    public RecordBatch readBatch(String table, ReadQuery query) {
+        try {
+            return loadBatch(table, query);
+        } catch (SQLException e) {
+            LOGGER.error("Could not read {}", table, e);
+        }
+        return RecordBatch.empty();
+    }
+
+    /**
+     * Returns the records selected by the query, from the result cache if it holds them
+     * @param table
+     * @param query
+     * @return
+     * @throws SQLException if the records cannot be read
+     */
+    RecordBatch loadBatch(String table, ReadQuery query) throws SQLException {
+        QueryCache cache = queryCache;
+        if (cache == null) {
+            return readAll(table, query);
+        }
+        RecordBatch batch = cache.get(table, query);
+        if (batch == null) {
+            long version = cache.getVersion(table);
+            batch = readAll(table, query);
+            cache.put(table, query, batch, version);
+        }
+        return batch;
+    }
+
+    private RecordBatch readAll(String table, ReadQuery query) throws SQLException {
+        try (RecordCursor cursor = openCursor(table, query)) {
+            return cursor.readAll();
+        }
+    }
+
+    public Stream<Record> stream(String table, ReadQuery query) {
+        try {
+            return stream(openCursor(table, query));
+        } catch (SQLException e) {
+            throw new ConnectorException("Could not read " + table, e);
+        }
+    }
+
+    /**
+     * Returns the records of the cursor as a stream, which closes the cursor when it is closed
+     * @param cursor
+     * @return
+     */
+    static Stream<Record> stream(RecordCursor cursor) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
+    /**
+     * Runs the query
+     * @param table
+     * @param query
+     * @return a cursor over the records, to be closed
+     * @throws SQLException if the query cannot be run
+     */
+    RecordCursor openCursor(String table, ReadQuery query) throws SQLException {
+        return new RecordCursor(mySQLConnection, table, query);
     }
 
+    public boolean read(String table, ReadQuery query, Consumer<Record> consumer) {
+        try (RecordCursor cursor = openCursor(table, query)) {
+            cursor.forEachRemaining(consumer);
+            return true;
+        } catch (SQLException | ConnectorException e) {
+            LOGGER.error("Could not read {}", table, e);
+        }
+        return false;
+    }
+
+    /**
+     * Drops the cached results of the table
+     * @param table
+     */
+    void invalidate(String table) {
+        QueryCache cache = queryCache;
+        if (cache != null) {
+            cache.invalidate(table);
+        }
+    }
 
+    /**
+     * Returns the connection of the instance
+     * @return
+     */
+    MySQLConnection getConnection() {
+        return mySQLConnection;
+    }
+
+    /**
+     * Quotes a table or column name, so that it cannot change the statement it is placed in
+     * @param identifier
+     * @return
+     */
+    static String quoteIdentifier(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
 }
@@ -0,0 +1,182 @@
+package org.blimpit.utils.connectors.mysql;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A least recently used cache of the results of reads, with a time to live. The results of a table are dropped
+ * whenever the connector writes to it. A result read while the table was being written is not cached, as it may
+ * already be stale: every table has a version which each write increments, and a result is only cached if the
+ * version of its table has not changed since the read started.
+ * <p>
+ * Results are only dropped for writes to the table they were read from, so a filter referring to another table
+ * is only refreshed by the time to live.
+ */
+class QueryCache {
+
+    private final int maxRowsPerEntry;
+    private final long timeToLiveInNanos;
+    private final Map<Key, Entry> entries;
+    private final ConcurrentMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+
+    QueryCache(QueryCacheConfig config) {
+        int maxEntries = config.getMaxEntries();
+        this.maxRowsPerEntry = config.getMaxRowsPerEntry();
+        this.timeToLiveInNanos = TimeUnit.MILLISECONDS.toNanos(config.getTimeToLiveInMS());
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, QueryCache.Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictionCount.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result of the query
+     * @param table
+     * @param query
+     * @return the result, or null if it is not cached
+     */
+    RecordBatch get(String table, ReadQuery query) {
+        Key key = new Key(table, query);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.cachedAtNanos > timeToLiveInNanos) {
+                entries.remove(key);
+                evictionCount.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                missCount.increment();
+                return null;
+            }
+            hitCount.increment();
+            return entry.batch;
+        }
+    }
+
+    /**
+     * Returns the version of the table, to be read before the table is
+     * @param table
+     * @return
+     */
+    long getVersion(String table) {
+        return getVersionCounter(table).get();
+    }
+
+    /**
+     * Caches the result of the query, unless the table has been written since the given version was taken.
+     * A cached batch returns copies of its byte values from then on, as it is handed to every reader of the query.
+     * @param table
+     * @param query
+     * @param batch
+     * @param version the version of the table taken before it was read
+     */
+    void put(String table, ReadQuery query, RecordBatch batch, long version) {
+        if (batch.size() > maxRowsPerEntry) {
+            return;
+        }
+        Key key = new Key(table, query);
+        synchronized (entries) {
+            // checked under the lock, so that an invalidation cannot run between the check and the put
+            if (getVersion(table) == version) {
+                batch.markShared();
+                entries.put(key, new Entry(batch, System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * Drops the cached results of the table, called after every write to it
+     * @param table
+     */
+    void invalidate(String table) {
+        String normalizedTable = normalizeTable(table);
+        synchronized (entries) {
+            getVersionCounter(table).incrementAndGet();
+            Iterator<Key> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().table.equals(normalizedTable)) {
+                    keys.remove();
+                    invalidationCount.increment();
+                }
+            }
+        }
+    }
+
+    QueryCacheStatistics getStatistics() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new QueryCacheStatistics(hitCount.sum(), missCount.sum(), evictionCount.sum(),
+                invalidationCount.sum(), size);
+    }
+
+    private AtomicLong getVersionCounter(String table) {
+        return tableVersions.computeIfAbsent(normalizeTable(table), key -> new AtomicLong());
+    }
+
+    /**
+     * Table names are compared ignoring case, so that a write drops the results of the table however it is written,
+     * at worst dropping the results of a table whose name differs only by case
+     * @param table
+     * @return
+     */
+    private static String normalizeTable(String table) {
+        return table.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Identifies a result by its table and everything in the query which selects the records
+     */
+    private static class Key {
+
+        private final String table;
+        private final List<Object> selection;
+
+        private Key(String table, ReadQuery query) {
+            this.table = normalizeTable(table);
+            this.selection = Arrays.asList(this.table, query.getColumns(), query.getWhere(), query.getWhereParameters(),
+                    query.getKeyColumn(), query.getAfterKey(), query.getLimit());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && selection.equals(((Key) other).selection);
+        }
+
+        @Override
+        public int hashCode() {
+            return selection.hashCode();
+        }
+    }
+
+    private static class Entry {
+
+        private final RecordBatch batch;
+        private final long cachedAtNanos;
+
+        private Entry(RecordBatch batch, long cachedAtNanos) {
+            this.batch = batch;
+            this.cachedAtNanos = cachedAtNanos;
+        }
+    }
+}
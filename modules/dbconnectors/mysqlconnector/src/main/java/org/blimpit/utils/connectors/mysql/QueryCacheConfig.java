@@ -0,0 +1,55 @@
+package org.blimpit.utils.connectors.mysql;
+
+/**
+ * Settings of the result cache of {@link MySQLConnector}, see {@link MySQLConnector#setQueryCache(QueryCacheConfig)}.
+ */
+public class QueryCacheConfig {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final int DEFAULT_MAX_ROWS_PER_ENTRY = 10000;
+    public static final long DEFAULT_TIME_TO_LIVE_IN_MS = 60000;
+
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private int maxRowsPerEntry = DEFAULT_MAX_ROWS_PER_ENTRY;
+    private long timeToLiveInMS = DEFAULT_TIME_TO_LIVE_IN_MS;
+
+    /**
+     * Maximum number of cached results. Once it is reached, the least recently read result is evicted.
+     * @return
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public QueryCacheConfig setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * Results with more rows than this are not cached
+     * @return
+     */
+    public int getMaxRowsPerEntry() {
+        return maxRowsPerEntry;
+    }
+
+    public QueryCacheConfig setMaxRowsPerEntry(int maxRowsPerEntry) {
+        this.maxRowsPerEntry = maxRowsPerEntry;
+        return this;
+    }
+
+    /**
+     * Results are read again from the DB once they have been cached for longer than this. It bounds how stale a
+     * result can be when the table is written by anything else than the connector.
+     * @return
+     */
+    public long getTimeToLiveInMS() {
+        return timeToLiveInMS;
+    }
+
+    public QueryCacheConfig setTimeToLiveInMS(long timeToLiveInMS) {
+        this.timeToLiveInMS = timeToLiveInMS;
+        return this;
+    }
+}
@@ -0,0 +1,81 @@
+package org.blimpit.utils.connectors.mysql;
+
+/**
+ * A snapshot of the counters of the result cache of {@link MySQLConnector}
+ */
+public class QueryCacheStatistics {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long invalidationCount;
+    private final int size;
+
+    QueryCacheStatistics(long hitCount, long missCount, long evictionCount, long invalidationCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.invalidationCount = invalidationCount;
+        this.size = size;
+    }
+
+    /**
+     * Number of reads answered from the cache
+     * @return
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Number of reads which went to the DB
+     * @return
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Share of the reads answered from the cache
+     * @return between 0 and 1, 0 if there was no read
+     */
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Number of results removed because the cache was full or they had expired
+     * @return
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Number of results removed because their table was written
+     * @return
+     */
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * Number of results currently cached
+     * @return
+     */
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryCacheStatistics{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", invalidationCount=" + invalidationCount +
+                ", size=" + size +
+                '}';
+    }
+}
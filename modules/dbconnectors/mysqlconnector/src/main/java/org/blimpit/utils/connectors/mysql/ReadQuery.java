@@ -0,0 +1,150 @@
+package org.blimpit.utils.connectors.mysql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Selects the records returned by a streaming read of {@link MySQLConnector}: the columns, a filter and a page of
+ * the table ordered by a key column.
+ * <p>
+ * Keyset pagination reads a page of {@link #getLimit()} records ordered by the key column, and the next page as the
+ * records whose key is greater than the last one of the page, see {@link #nextPage(Record)}. Unlike an offset, this
+ * costs the same on every page as long as the key column is indexed.
+ */
+public class ReadQuery {
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    public static final int NO_LIMIT = 0;
+
+    private List<String> columns = Collections.emptyList();
+    private String where;
+    private List<String> whereParameters = Collections.emptyList();
+    private String keyColumn;
+    private String afterKey;
+    private int limit = NO_LIMIT;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    public ReadQuery() {
+
+    }
+
+    public ReadQuery(ReadQuery query) {
+        this.columns = query.columns;
+        this.where = query.where;
+        this.whereParameters = query.whereParameters;
+        this.keyColumn = query.keyColumn;
+        this.afterKey = query.afterKey;
+        this.limit = query.limit;
+        this.fetchSize = query.fetchSize;
+    }
+
+    /**
+     * Columns returned in the records, all the columns if empty
+     * @return
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public ReadQuery setColumns(String... columns) {
+        this.columns = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(columns)));
+        return this;
+    }
+
+    /**
+     * SQL condition the records have to meet, e.g. {@code age > ? AND city = ?}, or null for every record
+     * @return
+     */
+    public String getWhere() {
+        return where;
+    }
+
+    /**
+     * Values bound to the placeholders of the condition, in order
+     * @return
+     */
+    public List<String> getWhereParameters() {
+        return whereParameters;
+    }
+
+    /**
+     * Sets the condition the records have to meet. Values must be passed as parameters, never written into the
+     * condition, as the condition is placed in the statement as it is.
+     * @param where SQL condition, with a ? placeholder for every value
+     * @param parameters values of the placeholders
+     * @return
+     */
+    public ReadQuery setWhere(String where, String... parameters) {
+        this.where = where;
+        this.whereParameters = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(parameters)));
+        return this;
+    }
+
+    /**
+     * Column by which the records are ordered and paginated, or null for no particular order
+     * @return
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public ReadQuery setKeyColumn(String keyColumn) {
+        this.keyColumn = keyColumn;
+        return this;
+    }
+
+    /**
+     * Only records whose key is greater than this one are returned, null to start from the first record
+     * @return
+     */
+    public String getAfterKey() {
+        return afterKey;
+    }
+
+    public ReadQuery setAfterKey(String afterKey) {
+        this.afterKey = afterKey;
+        return this;
+    }
+
+    /**
+     * Maximum number of records returned, i.e. the size of a page, or {@link #NO_LIMIT}
+     * @return
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public ReadQuery setLimit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Number of records the server sends at a time, which bounds the memory used by the reader whatever the size of
+     * the table. The next ones are only fetched once the reader has consumed these.
+     * @return
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public ReadQuery setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Returns a copy of the query reading the page following the given record
+     * @param lastRecord last record of the current page
+     * @return
+     * @throws IllegalStateException if the query has no key column
+     */
+    public ReadQuery nextPage(Record lastRecord) {
+        if (keyColumn == null) {
+            throw new IllegalStateException("Pagination needs a key column");
+        }
+        return new ReadQuery(this).setAfterKey(lastRecord.getString(keyColumn));
+    }
+}
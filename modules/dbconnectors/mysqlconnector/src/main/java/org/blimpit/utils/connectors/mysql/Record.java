@@ -1,10 +1,14 @@
 package org.blimpit.utils.connectors.mysql;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * A  class represents a record of a table in DB
+ * A  class represents a record of a table in DB.
+ * A record read by {@link MySQLConnector} is a view of a row of a {@link RecordBatch}: it holds no values of its own and
+ * the typed getters read them from the columns of the batch without boxing. A record created by the caller holds its
+ * values in a map.
  */
 public class Record {
 
@@ -13,11 +17,22 @@ public class Record {
 
     private Map<String, String> recordAttributes;
 
+    private RecordBatch batch;
+
+    private int row;
+
 
     public Record(int index) {
+        this.index = index;
         this.recordAttributes = new HashMap<String, String>();
     }
 
+    Record(RecordBatch batch, int row, int index) {
+        this.index = index;
+        this.batch = batch;
+        this.row = row;
+    }
+
     /**
      * poistion of the table
      *
@@ -29,21 +44,143 @@ public class Record {
 
 
     /**
-     * Returns map of fieldnames and values
+     * Returns map of fieldnames and values.
+     * For a record read from the DB the map is built on the first call, prefer the typed getters,
+     * which do not see changes made to the map.
      *
      * @return recordAttributes
      */
     public Map<String, String> getRecordAttributes() {
+        if (recordAttributes == null) {
+            RecordSchema schema = batch.getSchema();
+            Map<String, String> attributes = new HashMap<String, String>();
+            for (int column = schema.getColumnCount() - 1; column >= 0; column--) {
+                // the first of two columns with the same label wins, as with ResultSet
+                attributes.put(schema.getColumnLabel(column), batch.getString(row, column));
+            }
+            recordAttributes = attributes;
+        }
         return recordAttributes;
     }
 
     /**
-     * Add fieldname and value to the record
+     * Add fieldname and value to the record.
+     * A record read from the DB stops being a view of its batch and holds its values in a map from then on.
      *
      * @param fieldName
      * @param value
      */
     public void addRecordAttribute(String fieldName, String value) {
-        this.recordAttributes.put(fieldName, value);
+        getRecordAttributes().put(fieldName, value);
+        batch = null;
+    }
+
+    /**
+     * Returns the columns of the record
+     *
+     * @return the schema, or null for a record which is not a view of a batch
+     */
+    public RecordSchema getSchema() {
+        return batch == null ? null : batch.getSchema();
+    }
+
+    /**
+     * @param column position of the column, starting at 0
+     * @return true if the value is SQL NULL
+     */
+    public boolean isNull(int column) {
+        return getBatch().isNull(row, column);
+    }
+
+    public boolean isNull(String fieldName) {
+        return batch == null ? recordAttributes.get(fieldName) == null : isNull(indexOf(fieldName));
+    }
+
+    /**
+     * @param column position of the column, starting at 0
+     * @return the value, or 0 if it is SQL NULL
+     */
+    public int getInt(int column) {
+        return getBatch().getInt(row, column);
+    }
+
+    public int getInt(String fieldName) {
+        return batch == null ? (int) getLong(fieldName) : getInt(indexOf(fieldName));
+    }
+
+    /**
+     * @param column position of the column, starting at 0
+     * @return the value, or 0 if it is SQL NULL
+     */
+    public long getLong(int column) {
+        return getBatch().getLong(row, column);
+    }
+
+    public long getLong(String fieldName) {
+        if (batch == null) {
+            String value = recordAttributes.get(fieldName);
+            return value == null ? 0 : Long.parseLong(value.trim());
+        }
+        return getLong(indexOf(fieldName));
+    }
+
+    /**
+     * @param column position of the column, starting at 0
+     * @return the value, or 0 if it is SQL NULL
+     */
+    public double getDouble(int column) {
+        return getBatch().getDouble(row, column);
+    }
+
+    public double getDouble(String fieldName) {
+        if (batch == null) {
+            String value = recordAttributes.get(fieldName);
+            return value == null ? 0 : Double.parseDouble(value.trim());
+        }
+        return getDouble(indexOf(fieldName));
+    }
+
+    /**
+     * @param column position of the column, starting at 0
+     * @return the value, or null if it is SQL NULL
+     */
+    public String getString(int column) {
+        return getBatch().getString(row, column);
+    }
+
+    public String getString(String fieldName) {
+        return batch == null ? recordAttributes.get(fieldName) : getString(indexOf(fieldName));
+    }
+
+    /**
+     * @param column position of the column, starting at 0
+     * @return the value, or null if it is SQL NULL. The array is the one of the batch unless the batch is cached,
+     * a cached batch returns a copy.
+     */
+    public byte[] getBytes(int column) {
+        return getBatch().getBytes(row, column);
+    }
+
+    public byte[] getBytes(String fieldName) {
+        if (batch == null) {
+            String value = recordAttributes.get(fieldName);
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+        return getBytes(indexOf(fieldName));
+    }
+
+    private RecordBatch getBatch() {
+        if (batch == null) {
+            throw new IllegalStateException("The columns of the record are only known by name");
+        }
+        return batch;
+    }
+
+    private int indexOf(String fieldName) {
+        int column = batch.getSchema().indexOf(fieldName);
+        if (column < 0) {
+            throw new IllegalArgumentException("No column " + fieldName);
+        }
+        return column;
     }
 }
@@ -0,0 +1,355 @@
+package org.blimpit.utils.connectors.mysql;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rows of a result held column by column: every column is a single array of its type, numbers are kept as primitives
+ * and the column labels are held once, by the {@link RecordSchema}. The {@link Record}s of a batch are views of one of
+ * its rows, which read the values from the columns.
+ * <p>
+ * A batch is filled by the connector and cannot be changed afterwards. A batch kept by the result cache is handed to
+ * every reader of the query, its byte values are then copied for each call so that no reader can change them for the
+ * others.
+ */
+public class RecordBatch extends AbstractList<Record> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final RecordSchema schema;
+    private final Column[] columns;
+    private final int firstIndex;
+    private int size;
+    private volatile boolean shared;
+
+    /**
+     * @param schema
+     * @param firstIndex index of the first record of the batch in the whole result
+     * @param capacity expected number of rows
+     */
+    RecordBatch(RecordSchema schema, int firstIndex, int capacity) {
+        this.schema = schema;
+        this.firstIndex = firstIndex;
+        this.columns = new Column[schema.getColumnCount()];
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = Column.of(schema.getColumnType(column), capacity);
+        }
+    }
+
+    /**
+     * Returns an empty batch without columns
+     * @return
+     */
+    static RecordBatch empty() {
+        return new RecordBatch(new RecordSchema(Collections.<String>emptyList(), new ColumnType[0]), 0, 0);
+    }
+
+    public RecordSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Number of rows
+     * @return
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a view of the given row
+     * @param row position of the row in the batch, starting at 0
+     * @return
+     */
+    @Override
+    public Record get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return new Record(this, row, firstIndex + row);
+    }
+
+    /**
+     * Appends the current row of the result set
+     * @param resultSet
+     * @throws SQLException
+     */
+    void appendRow(ResultSet resultSet) throws SQLException {
+        for (int column = 0; column < columns.length; column++) {
+            columns[column].read(resultSet, column + 1, size);
+        }
+        size++;
+    }
+
+    boolean isNull(int row, int column) {
+        return columns[column].nulls.get(row);
+    }
+
+    int getInt(int row, int column) {
+        return columns[column].getInt(row);
+    }
+
+    long getLong(int row, int column) {
+        return columns[column].getLong(row);
+    }
+
+    double getDouble(int row, int column) {
+        return columns[column].getDouble(row);
+    }
+
+    String getString(int row, int column) {
+        return isNull(row, column) ? null : columns[column].getString(row);
+    }
+
+    byte[] getBytes(int row, int column) {
+        if (isNull(row, column)) {
+            return null;
+        }
+        byte[] value = columns[column].getBytes(row);
+        // the other columns convert a new array per call
+        return shared && columns[column] instanceof BytesColumn ? value.clone() : value;
+    }
+
+    /**
+     * Makes {@link #getBytes(int, int)} return copies, once the batch is handed to more than one reader
+     */
+    void markShared() {
+        shared = true;
+    }
+
+    /**
+     * The values of a column. Numbers are converted between types as JDBC does, strings are parsed.
+     */
+    private abstract static class Column {
+
+        final BitSet nulls = new BitSet();
+
+        static Column of(ColumnType type, int capacity) {
+            switch (type) {
+                case INT:
+                    return new IntColumn(capacity);
+                case LONG:
+                    return new LongColumn(capacity);
+                case DOUBLE:
+                    return new DoubleColumn(capacity);
+                case BYTES:
+                    return new BytesColumn(capacity);
+                default:
+                    return new StringColumn(capacity);
+            }
+        }
+
+        static int grow(int length) {
+            return Math.max(INITIAL_CAPACITY, length * 2);
+        }
+
+        abstract void read(ResultSet resultSet, int jdbcColumn, int row) throws SQLException;
+
+        int getInt(int row) {
+            return (int) getLong(row);
+        }
+
+        abstract long getLong(int row);
+
+        abstract double getDouble(int row);
+
+        abstract String getString(int row);
+
+        byte[] getBytes(int row) {
+            return getString(row).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class IntColumn extends Column {
+
+        private int[] values;
+
+        IntColumn(int capacity) {
+            values = new int[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int jdbcColumn, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grow(values.length));
+            }
+            values[row] = resultSet.getInt(jdbcColumn);
+            if (resultSet.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        int getInt(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        String getString(int row) {
+            return Integer.toString(values[row]);
+        }
+    }
+
+    private static class LongColumn extends Column {
+
+        private long[] values;
+
+        LongColumn(int capacity) {
+            values = new long[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int jdbcColumn, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grow(values.length));
+            }
+            values[row] = resultSet.getLong(jdbcColumn);
+            if (resultSet.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        String getString(int row) {
+            return Long.toString(values[row]);
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+
+        private double[] values;
+
+        DoubleColumn(int capacity) {
+            values = new double[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int jdbcColumn, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grow(values.length));
+            }
+            values[row] = resultSet.getDouble(jdbcColumn);
+            if (resultSet.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        long getLong(int row) {
+            return (long) values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        String getString(int row) {
+            return Double.toString(values[row]);
+        }
+    }
+
+    private static class StringColumn extends Column {
+
+        private String[] values;
+
+        StringColumn(int capacity) {
+            values = new String[capacity];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int jdbcColumn, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grow(values.length));
+            }
+            values[row] = resultSet.getString(jdbcColumn);
+            if (values[row] == null) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row] == null ? 0 : new BigDecimal(values[row].trim()).longValue();
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row] == null ? 0 : Double.parseDouble(values[row].trim());
+        }
+
+        @Override
+        String getString(int row) {
+            return values[row];
+        }
+    }
+
+    private static class BytesColumn extends Column {
+
+        private byte[][] values;
+
+        BytesColumn(int capacity) {
+            values = new byte[capacity][];
+        }
+
+        @Override
+        void read(ResultSet resultSet, int jdbcColumn, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grow(values.length));
+            }
+            values[row] = resultSet.getBytes(jdbcColumn);
+            if (values[row] == null) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        long getLong(int row) {
+            throw new IllegalStateException("A binary column cannot be read as a number");
+        }
+
+        @Override
+        double getDouble(int row) {
+            throw new IllegalStateException("A binary column cannot be read as a number");
+        }
+
+        @Override
+        String getString(int row) {
+            return new String(values[row], StandardCharsets.UTF_8);
+        }
+
+        @Override
+        byte[] getBytes(int row) {
+            return values[row];
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.blimpit.utils.connectors.mysql;
+
+import org.blimpit.utils.connectors.ConnectorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks the result of a {@link ReadQuery} one record at a time. The rows are fetched from the server in blocks of the
+ * fetch size of the query, through a server side cursor, and a block is only fetched once the previous one has been
+ * consumed, so a reader which is slower than the server holds it back instead of filling the heap.
+ * Every block is read into a {@link RecordBatch} and the records are views of its rows.
+ * <p>
+ * The cursor holds a pooled connection until it is closed or exhausted.
+ */
+class RecordCursor implements Iterator<Record>, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordCursor.class);
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final RecordSchema schema;
+    private final int blockSize;
+    private RecordBatch block;
+    private int blockRow;
+    private int index;
+    private boolean closed;
+
+    /**
+     * Runs the query
+     * @param mySQLConnection
+     * @param table
+     * @param query
+     * @throws SQLException if the query cannot be run
+     */
+    RecordCursor(MySQLConnection mySQLConnection, String table, ReadQuery query) throws SQLException {
+        List<String> parameters = new ArrayList<>(query.getWhereParameters());
+        String sql = getSelectStatement(table, query, parameters);
+        this.blockSize = query.getFetchSize() > 0 ? query.getFetchSize() : ReadQuery.DEFAULT_FETCH_SIZE;
+        this.connection = mySQLConnection.getConnection();
+        try {
+            this.statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(query.getFetchSize());
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setString(i + 1, parameters.get(i));
+            }
+            this.resultSet = statement.executeQuery();
+            this.schema = RecordSchema.of(resultSet.getMetaData());
+            readBlock();
+        } catch (SQLException e) {
+            // closing the connection also closes the statement and the result set
+            connection.close();
+            throw e;
+        }
+    }
+
+    RecordSchema getSchema() {
+        return schema;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return blockRow < block.size();
+    }
+
+    /**
+     * @return
+     * @throws ConnectorException if the next rows cannot be fetched
+     */
+    @Override
+    public Record next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Record record = block.get(blockRow++);
+        if (blockRow == block.size()) {
+            try {
+                readBlock();
+            } catch (SQLException e) {
+                close();
+                throw new ConnectorException("Could not read the next records", e);
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Reads every row of the result into a single batch, and closes the cursor
+     * @return
+     * @throws SQLException
+     * @throws IllegalStateException if records have already been taken from the cursor
+     */
+    RecordBatch readAll() throws SQLException {
+        if (blockRow > 0 || index > block.size()) {
+            throw new IllegalStateException("Records have already been taken from the cursor");
+        }
+        // the rows are appended to the first block, whose records are still valid views
+        RecordBatch all = block;
+        while (!closed && resultSet.next()) {
+            all.appendRow(resultSet);
+            index++;
+        }
+        close();
+        blockRow = all.size();
+        return all;
+    }
+
+    /**
+     * Reads the next rows of the result into a new block, and closes the cursor once there are none
+     * @throws SQLException
+     */
+    private void readBlock() throws SQLException {
+        block = new RecordBatch(schema, index, 0);
+        blockRow = 0;
+        while (!closed && block.size() < blockSize && resultSet.next()) {
+            block.appendRow(resultSet);
+            index++;
+        }
+        if (block.isEmpty()) {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // the records were read, only the connection could not be handed back cleanly
+            LOGGER.warn("Could not close the connection of a cursor", e);
+        }
+    }
+
+    private static String getSelectStatement(String table, ReadQuery query, List<String> parameters) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        List<String> columns = new ArrayList<>(query.getColumns());
+        if (columns.isEmpty()) {
+            sql.append('*');
+        } else {
+            if (query.getKeyColumn() != null && !columns.contains(query.getKeyColumn())) {
+                // the key of the last record is needed to read the next page
+                columns.add(query.getKeyColumn());
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append(MySQLConnector.quoteIdentifier(columns.get(i)));
+            }
+        }
+        sql.append(" FROM ").append(MySQLConnector.quoteIdentifier(table));
+        List<String> conditions = new ArrayList<>();
+        if (query.getWhere() != null) {
+            conditions.add("(" + query.getWhere() + ")");
+        }
+        if (query.getKeyColumn() != null && query.getAfterKey() != null) {
+            conditions.add(MySQLConnector.quoteIdentifier(query.getKeyColumn()) + " > ?");
+            parameters.add(query.getAfterKey());
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        if (query.getKeyColumn() != null) {
+            sql.append(" ORDER BY ").append(MySQLConnector.quoteIdentifier(query.getKeyColumn()));
+        }
+        if (query.getLimit() > ReadQuery.NO_LIMIT) {
+            sql.append(" LIMIT ").append(query.getLimit());
+        }
+        return sql.toString();
+    }
+}
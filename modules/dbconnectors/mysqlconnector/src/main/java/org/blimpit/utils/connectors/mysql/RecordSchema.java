@@ -0,0 +1,80 @@
+package org.blimpit.utils.connectors.mysql;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The columns of a result, shared by all its records
+ */
+public final class RecordSchema {
+
+    private final List<String> columnLabels;
+    private final ColumnType[] columnTypes;
+    private final Map<String, Integer> columnIndexes;
+
+    RecordSchema(List<String> columnLabels, ColumnType[] columnTypes) {
+        this.columnLabels = Collections.unmodifiableList(new ArrayList<>(columnLabels));
+        this.columnTypes = columnTypes.clone();
+        this.columnIndexes = new HashMap<>();
+        for (int column = 0; column < columnLabels.size(); column++) {
+            // the first of two columns with the same label wins, as with ResultSet
+            columnIndexes.putIfAbsent(columnLabels.get(column), column);
+        }
+    }
+
+    /**
+     * Reads the columns of a result set
+     * @param metaData
+     * @return
+     * @throws SQLException
+     */
+    static RecordSchema of(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        List<String> columnLabels = new ArrayList<>(columnCount);
+        ColumnType[] columnTypes = new ColumnType[columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            columnLabels.add(metaData.getColumnLabel(column + 1));
+            columnTypes[column] = ColumnType.of(metaData, column + 1);
+        }
+        return new RecordSchema(columnLabels, columnTypes);
+    }
+
+    public int getColumnCount() {
+        return columnLabels.size();
+    }
+
+    public List<String> getColumnLabels() {
+        return columnLabels;
+    }
+
+    /**
+     * @param column position of the column, starting at 0
+     * @return
+     */
+    public String getColumnLabel(int column) {
+        return columnLabels.get(column);
+    }
+
+    /**
+     * @param column position of the column, starting at 0
+     * @return
+     */
+    public ColumnType getColumnType(int column) {
+        return columnTypes[column];
+    }
+
+    /**
+     * Returns the position of the column of the given label
+     * @param columnLabel
+     * @return the position, starting at 0, or -1 if there is no such column
+     */
+    public int indexOf(String columnLabel) {
+        Integer column = columnIndexes.get(columnLabel);
+        return column == null ? -1 : column;
+    }
+}
@@ -0,0 +1,67 @@
+package org.blimpit.utils.connectors.mysql;
+
+/**
+ * Settings of the routing of reads to the replicas of a {@link ReplicatedConnector}.
+ */
+public class ReplicaRoutingConfig {
+
+    public static final Balancing DEFAULT_BALANCING = Balancing.ROUND_ROBIN;
+    public static final long DEFAULT_RETRY_INTERVAL_IN_MS = 30000;
+
+    /**
+     * How a read picks the replica it is sent to
+     */
+    public enum Balancing {
+        /**
+         * Every replica in turn
+         */
+        ROUND_ROBIN,
+        /**
+         * The replica with the fewest connections in use, every replica in turn among equally loaded ones
+         */
+        LEAST_LOADED
+    }
+
+    private Balancing balancing = DEFAULT_BALANCING;
+    private long retryIntervalInMS = DEFAULT_RETRY_INTERVAL_IN_MS;
+    private boolean readFromPrimaryWhenReplicasDown = true;
+
+    /**
+     * How a read picks the replica it is sent to
+     * @return
+     */
+    public Balancing getBalancing() {
+        return balancing;
+    }
+
+    public ReplicaRoutingConfig setBalancing(Balancing balancing) {
+        this.balancing = balancing;
+        return this;
+    }
+
+    /**
+     * A replica which could not be reached is skipped for this long before reads are sent to it again
+     * @return
+     */
+    public long getRetryIntervalInMS() {
+        return retryIntervalInMS;
+    }
+
+    public ReplicaRoutingConfig setRetryIntervalInMS(long retryIntervalInMS) {
+        this.retryIntervalInMS = retryIntervalInMS;
+        return this;
+    }
+
+    /**
+     * If true, reads are sent to the primary when no replica can be reached. Otherwise they fail.
+     * @return
+     */
+    public boolean isReadFromPrimaryWhenReplicasDown() {
+        return readFromPrimaryWhenReplicasDown;
+    }
+
+    public ReplicaRoutingConfig setReadFromPrimaryWhenReplicasDown(boolean readFromPrimaryWhenReplicasDown) {
+        this.readFromPrimaryWhenReplicasDown = readFromPrimaryWhenReplicasDown;
+        return this;
+    }
+}
@@ -0,0 +1,259 @@
+package org.blimpit.utils.connectors.mysql;
+
+import org.blimpit.utils.connectors.Connector;
+import org.blimpit.utils.connectors.ConnectorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A connector to a primary database and its read replicas. Inserts go to the primary and reads to a replica, picked
+ * by the balancing of the routing settings. A replica which cannot be reached is skipped for the retry interval, and
+ * the read is sent to the next one, then to the primary when every replica is down. A read which fails for another
+ * reason, e.g. a missing table, fails as it would on a single database.
+ * <p>
+ * Replicas lag behind the primary: a read may not see a record which was just inserted.
+ * An insert drops the cached results of its table on every replica, so that a read is not answered by a
+ * cache filled before the insert.
+ */
+public class ReplicatedConnector implements Connector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicatedConnector.class);
+
+    // SQLSTATE class of connection errors
+    private static final String CONNECTION_EXCEPTION_SQL_STATE_CLASS = "08";
+
+    private final MySQLConnector primary;
+    private final List<Replica> replicas;
+    private final ReplicaRoutingConfig.Balancing balancing;
+    private final long retryIntervalInNanos;
+    private final boolean readFromPrimaryWhenReplicasDown;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /**
+     * @param primary      instance of the primary database, given by {@link MySQLConnector#getInstance}
+     * @param replicas     instances of the replicas, given by {@link MySQLConnector#getInstance}
+     * @param routingConfig settings of the routing of reads
+     */
+    public ReplicatedConnector(Connector primary, List<? extends Connector> replicas,
+                               ReplicaRoutingConfig routingConfig) {
+        this.primary = toMySQLConnector(primary);
+        List<Replica> replicaList = new ArrayList<>(replicas.size());
+        for (Connector replica : replicas) {
+            replicaList.add(new Replica(toMySQLConnector(replica)));
+        }
+        this.replicas = Collections.unmodifiableList(replicaList);
+        this.balancing = routingConfig.getBalancing();
+        this.retryIntervalInNanos = TimeUnit.MILLISECONDS.toNanos(routingConfig.getRetryIntervalInMS());
+        this.readFromPrimaryWhenReplicasDown = routingConfig.isReadFromPrimaryWhenReplicasDown();
+    }
+
+    public boolean insert(String collectionName, Map<String, String> recordMap) {
+        try {
+            return primary.insert(collectionName, recordMap);
+        } finally {
+            invalidateReplicas(collectionName);
+        }
+    }
+
+    public BatchInsertResult insertAll(String collectionName, Iterable<Map<String, String>> records) {
+        try {
+            return primary.insertAll(collectionName, records);
+        } finally {
+            invalidateReplicas(collectionName);
+        }
+    }
+
+    public BatchInsertResult insertAll(String collectionName, Iterable<Map<String, String>> records,
+                                       BatchInsertOptions options) {
+        try {
+            return primary.insertAll(collectionName, records, options);
+        } finally {
+            invalidateReplicas(collectionName);
+        }
+    }
+
+    public BatchInsertResult insertAll(String collectionName, Stream<Map<String, String>> records,
+                                       BatchInsertOptions options) {
+        try {
+            return primary.insertAll(collectionName, records, options);
+        } finally {
+            invalidateReplicas(collectionName);
+        }
+    }
+
+    public Record[] read(String table) {
+        return readBatch(table, new ReadQuery()).toArray(new Record[0]);
+    }
+
+    public RecordBatch readBatch(String table, ReadQuery query) {
+        try {
+            return route(connector -> connector.loadBatch(table, query));
+        } catch (SQLException e) {
+            LOGGER.error("Could not read {}", table, e);
+        }
+        return RecordBatch.empty();
+    }
+
+    public Stream<Record> stream(String table, ReadQuery query) {
+        try {
+            return MySQLConnector.stream(route(connector -> connector.openCursor(table, query)));
+        } catch (SQLException e) {
+            throw new ConnectorException("Could not read " + table, e);
+        }
+    }
+
+    public boolean read(String table, ReadQuery query, Consumer<Record> consumer) {
+        // only opening the cursor fails over, the records passed to the consumer cannot be taken back
+        try (RecordCursor cursor = route(connector -> connector.openCursor(table, query))) {
+            cursor.forEachRemaining(consumer);
+            return true;
+        } catch (SQLException | ConnectorException e) {
+            LOGGER.error("Could not read {}", table, e);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the instance inserts are sent to
+     * @return
+     */
+    public MySQLConnector getPrimary() {
+        return primary;
+    }
+
+    /**
+     * Returns the number of replicas reads are currently sent to
+     * @return
+     */
+    public int getAvailableReplicaCount() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (Replica replica : replicas) {
+            if (replica.isAvailable(now)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Drops the cached results of the table on every replica, each of which caches the reads sent to it
+     * @param table
+     */
+    private void invalidateReplicas(String table) {
+        for (Replica replica : replicas) {
+            replica.connector.invalidate(table);
+        }
+    }
+
+    /**
+     * Runs a read on a replica, failing over to the next replicas and then to the primary when they cannot be reached
+     * @param operation
+     * @param <T>
+     * @return
+     * @throws SQLException if the read fails
+     */
+    private <T> T route(ReadOperation<T> operation) throws SQLException {
+        SQLException connectionFailure = null;
+        for (Replica replica : getCandidates()) {
+            try {
+                T result = operation.run(replica.connector);
+                replica.markUp();
+                return result;
+            } catch (SQLException e) {
+                if (!isConnectionFailure(e)) {
+                    throw e;
+                }
+                replica.markDown(System.nanoTime() + retryIntervalInNanos);
+                if (connectionFailure == null) {
+                    connectionFailure = e;
+                } else {
+                    connectionFailure.addSuppressed(e);
+                }
+            }
+        }
+        if (!readFromPrimaryWhenReplicasDown && !replicas.isEmpty()) {
+            throw connectionFailure != null ? connectionFailure
+                    : new SQLTransientConnectionException("No replica is available",
+                    CONNECTION_EXCEPTION_SQL_STATE_CLASS + "001");
+        }
+        return operation.run(primary);
+    }
+
+    /**
+     * Returns the available replicas, in the order the read tries them
+     * @return
+     */
+    private List<Replica> getCandidates() {
+        long now = System.nanoTime();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(1, replicas.size()));
+        List<Replica> candidates = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.isAvailable(now)) {
+                candidates.add(replica);
+            }
+        }
+        if (balancing == ReplicaRoutingConfig.Balancing.LEAST_LOADED && candidates.size() > 1) {
+            // the sort is stable, so equally loaded replicas keep their round robin order
+            candidates.sort(Comparator.comparingInt(
+                    replica -> replica.connector.getConnection().getActiveConnections()));
+        }
+        return candidates;
+    }
+
+    private static boolean isConnectionFailure(SQLException e) {
+        String sqlState = e.getSQLState();
+        return e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+                || (sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_SQL_STATE_CLASS));
+    }
+
+    private static MySQLConnector toMySQLConnector(Connector connector) {
+        if (!(connector instanceof MySQLConnector)) {
+            throw new IllegalArgumentException("Not an instance of MySQLConnector: " + connector);
+        }
+        return (MySQLConnector) connector;
+    }
+
+    private interface ReadOperation<T> {
+
+        T run(MySQLConnector connector) throws SQLException;
+    }
+
+    private static class Replica {
+
+        private final MySQLConnector connector;
+        private volatile boolean down;
+        private volatile long retryAtNanos;
+
+        private Replica(MySQLConnector connector) {
+            this.connector = connector;
+        }
+
+        private boolean isAvailable(long now) {
+            return !down || now - retryAtNanos >= 0;
+        }
+
+        private void markDown(long retryAtNanos) {
+            this.retryAtNanos = retryAtNanos;
+            this.down = true;
+        }
+
+        private void markUp() {
+            down = false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.blimpit.utils.connectors.mysql;
+
+/**
+ * Settings of the write-behind mode of {@link MySQLConnector}, see {@link MySQLConnector#setWriteBehind(WriteBehindConfig)}.
+ */
+public class WriteBehindConfig {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    public static final long DEFAULT_FLUSH_INTERVAL_IN_MS = 100;
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.BLOCK;
+    public static final long DEFAULT_ENQUEUE_TIMEOUT_IN_MS = 1000;
+    public static final long DEFAULT_SHUTDOWN_TIMEOUT_IN_MS = 30000;
+
+    /**
+     * What an insert does when the queue is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Waits for room in the queue, up to the enqueue timeout, and drops the record if there is still none
+         */
+        BLOCK,
+        /**
+         * Drops the record
+         */
+        DROP,
+        /**
+         * Inserts the record on the calling thread, as if write-behind was off
+         */
+        CALLER_RUNS
+    }
+
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private long flushIntervalInMS = DEFAULT_FLUSH_INTERVAL_IN_MS;
+    private OverflowPolicy overflowPolicy = DEFAULT_OVERFLOW_POLICY;
+    private long enqueueTimeoutInMS = DEFAULT_ENQUEUE_TIMEOUT_IN_MS;
+    private long shutdownTimeoutInMS = DEFAULT_SHUTDOWN_TIMEOUT_IN_MS;
+
+    /**
+     * Maximum number of records waiting to be written
+     * @return
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public WriteBehindConfig setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Maximum number of records written in a single batch. The queue is flushed as soon as this many records wait.
+     * @return
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public WriteBehindConfig setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    /**
+     * Maximum time between two flushes of the queue, which bounds how long a record waits to be written
+     * @return
+     */
+    public long getFlushIntervalInMS() {
+        return flushIntervalInMS;
+    }
+
+    public WriteBehindConfig setFlushIntervalInMS(long flushIntervalInMS) {
+        this.flushIntervalInMS = flushIntervalInMS;
+        return this;
+    }
+
+    /**
+     * What an insert does when the queue is full
+     * @return
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public WriteBehindConfig setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    /**
+     * Maximum time an insert waits for room in the queue with {@link OverflowPolicy#BLOCK}
+     * @return
+     */
+    public long getEnqueueTimeoutInMS() {
+        return enqueueTimeoutInMS;
+    }
+
+    public WriteBehindConfig setEnqueueTimeoutInMS(long enqueueTimeoutInMS) {
+        this.enqueueTimeoutInMS = enqueueTimeoutInMS;
+        return this;
+    }
+
+    /**
+     * Maximum time to wait for the queued records to be written when write-behind is stopped.
+     * The records still queued after it are dropped.
+     * @return
+     */
+    public long getShutdownTimeoutInMS() {
+        return shutdownTimeoutInMS;
+    }
+
+    public WriteBehindConfig setShutdownTimeoutInMS(long shutdownTimeoutInMS) {
+        this.shutdownTimeoutInMS = shutdownTimeoutInMS;
+        return this;
+    }
+}
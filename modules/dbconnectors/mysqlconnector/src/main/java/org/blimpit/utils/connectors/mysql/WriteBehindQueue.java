@@ -0,0 +1,282 @@
+package org.blimpit.utils.connectors.mysql;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Queues the records inserted through {@link MySQLConnector} and writes them from a background thread, in batches
+ * which group the records of each table. The queue is lock free and bounded by a counter of the records it holds,
+ * which inserts reserve room in before adding their record and the writer releases once it has taken the record.
+ * <p>
+ * The writer flushes the queue every flush interval, or as soon as a full batch is waiting.
+ */
+class WriteBehindQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    private static final String WRITER_THREAD_NAME = "blimpit-mysqlconnector-write-behind";
+    private static final long BLOCKED_ENQUEUE_PARK_IN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final MySQLConnector connector;
+    private final int queueCapacity;
+    private final int maxBatchSize;
+    private final long flushIntervalInNanos;
+    private final WriteBehindConfig.OverflowPolicy overflowPolicy;
+    private final long enqueueTimeoutInNanos;
+    private final long shutdownTimeoutInMS;
+    private final BatchInsertOptions batchInsertOptions;
+
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong requestedFlushes = new AtomicLong();
+    private final Object flushLock = new Object();
+    private final Object closeLock = new Object();
+    private final Thread writer;
+    private volatile long completedFlushes;
+    private volatile boolean closed;
+    private volatile boolean abandoned;
+
+    private final LongAdder enqueuedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder writtenCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    // only updated by the writer
+    private volatile long flushCount;
+    private volatile long totalFlushTimeInNanos;
+    private volatile long maxFlushTimeInNanos;
+
+    WriteBehindQueue(MySQLConnector connector, WriteBehindConfig config) {
+        this.connector = connector;
+        this.queueCapacity = Math.max(1, config.getQueueCapacity());
+        this.maxBatchSize = Math.max(1, config.getMaxBatchSize());
+        this.flushIntervalInNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalInMS());
+        this.overflowPolicy = config.getOverflowPolicy();
+        this.enqueueTimeoutInNanos = TimeUnit.MILLISECONDS.toNanos(config.getEnqueueTimeoutInMS());
+        this.shutdownTimeoutInMS = config.getShutdownTimeoutInMS();
+        this.batchInsertOptions = new BatchInsertOptions().setBatchSize(maxBatchSize);
+        this.writer = new Thread(this::run, WRITER_THREAD_NAME);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a record to insert, or handles it with the overflow policy if the queue is full
+     * @param table
+     * @param recordMap fieldName and value pairs, copied
+     * @return true if the record was queued, or inserted by the caller
+     */
+    boolean enqueue(String table, Map<String, String> recordMap) {
+        if (closed) {
+            droppedCount.increment();
+            return false;
+        }
+        int newSize = tryReserve();
+        if (newSize < 0) {
+            switch (overflowPolicy) {
+                case CALLER_RUNS:
+                    return connector.insertNow(table, recordMap);
+                case BLOCK:
+                    newSize = reserveBlocking();
+                    break;
+                default:
+                    break;
+            }
+            if (newSize < 0) {
+                droppedCount.increment();
+                return false;
+            }
+        }
+        Entry entry = new Entry(table, new HashMap<>(recordMap));
+        queue.offer(entry);
+        if (closed && !isKeptAfterClose(entry)) {
+            return false;
+        }
+        enqueuedCount.increment();
+        if (newSize == maxBatchSize || newSize == queueCapacity) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * Settles a record offered while the queue was being closed, which the writer may have stopped before seeing
+     * @return true if the writer took the record, false if it was dropped
+     */
+    private boolean isKeptAfterClose(Entry entry) {
+        synchronized (closeLock) {
+            if (queue.remove(entry)) {
+                size.decrementAndGet();
+                droppedCount.increment();
+                return false;
+            }
+            return !entry.dropped;
+        }
+    }
+
+    /**
+     * Waits until the records queued before the call have been written
+     * @return false if the calling thread was interrupted while waiting
+     */
+    boolean flush() {
+        long request = requestedFlushes.incrementAndGet();
+        LockSupport.unpark(writer);
+        synchronized (flushLock) {
+            while (completedFlushes < request && writer.isAlive()) {
+                try {
+                    flushLock.wait(TimeUnit.NANOSECONDS.toMillis(flushIntervalInNanos) + 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting records and waits for the queued ones to be written, up to the shutdown timeout.
+     * The records still queued after it are dropped.
+     */
+    void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(shutdownTimeoutInMS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        abandoned = true;
+        // records queued by inserts which raced with the close, or left by an abandoned writer
+        synchronized (closeLock) {
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                entry.dropped = true;
+                size.decrementAndGet();
+                droppedCount.increment();
+            }
+        }
+    }
+
+    WriteBehindStatistics getStatistics() {
+        return new WriteBehindStatistics(size.get(), enqueuedCount.sum(), droppedCount.sum(), writtenCount.sum(),
+                failedCount.sum(), flushCount, totalFlushTimeInNanos, maxFlushTimeInNanos);
+    }
+
+    /**
+     * Reserves room for a record
+     * @return the number of records in the queue with the new one, or -1 if the queue is full
+     */
+    private int tryReserve() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= queueCapacity) {
+                return -1;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return current + 1;
+    }
+
+    private int reserveBlocking() {
+        long deadline = System.nanoTime() + enqueueTimeoutInNanos;
+        LockSupport.unpark(writer);
+        int newSize;
+        while ((newSize = tryReserve()) < 0) {
+            if (closed || Thread.currentThread().isInterrupted() || System.nanoTime() - deadline >= 0) {
+                return -1;
+            }
+            LockSupport.parkNanos(this, BLOCKED_ENQUEUE_PARK_IN_NANOS);
+        }
+        return newSize;
+    }
+
+    private void run() {
+        while (true) {
+            if (!closed && size.get() < maxBatchSize && requestedFlushes.get() == completedFlushes) {
+                LockSupport.parkNanos(this, flushIntervalInNanos);
+            }
+            long flushRequest = requestedFlushes.get();
+            boolean stopping = closed;
+            // every record queued before the flush request or the close is counted in the size read after them
+            drain(size.get());
+            completedFlushes = flushRequest;
+            synchronized (flushLock) {
+                flushLock.notifyAll();
+            }
+            if (stopping || abandoned) {
+                return;
+            }
+        }
+    }
+
+    private void drain(int count) {
+        while (count > 0 && !abandoned) {
+            Map<String, List<Map<String, String>>> recordsByTable = new LinkedHashMap<>();
+            int polled = 0;
+            int limit = Math.min(count, maxBatchSize);
+            Entry entry;
+            while (polled < limit && (entry = queue.poll()) != null) {
+                size.decrementAndGet();
+                polled++;
+                recordsByTable.computeIfAbsent(entry.table, key -> new ArrayList<>()).add(entry.recordMap);
+            }
+            if (polled == 0) {
+                // reserved records which are not in the queue yet
+                return;
+            }
+            count -= polled;
+            write(recordsByTable);
+        }
+    }
+
+    private void write(Map<String, List<Map<String, String>>> recordsByTable) {
+        long start = System.nanoTime();
+        for (Map.Entry<String, List<Map<String, String>>> entry : recordsByTable.entrySet()) {
+            String table = entry.getKey();
+            int recordCount = entry.getValue().size();
+            try {
+                BatchInsertResult result = connector.insertAll(table, entry.getValue(), batchInsertOptions);
+                writtenCount.add(result.getInsertedCount());
+                List<BatchInsertResult.RowFailure> failures = result.getFailures();
+                if (!failures.isEmpty()) {
+                    failedCount.add(failures.size());
+                    LOGGER.error("Could not write {} of {} queued records to {}", failures.size(), recordCount, table,
+                            failures.get(0).getError());
+                }
+            } catch (RuntimeException e) {
+                failedCount.add(recordCount);
+                LOGGER.error("Could not write {} queued records to {}", recordCount, table, e);
+            }
+        }
+        long flushTime = System.nanoTime() - start;
+        flushCount++;
+        totalFlushTimeInNanos += flushTime;
+        maxFlushTimeInNanos = Math.max(maxFlushTimeInNanos, flushTime);
+    }
+
+    private static class Entry {
+
+        private final String table;
+        private final Map<String, String> recordMap;
+        // set under the close lock when the record is dropped by the close
+        private boolean dropped;
+
+        private Entry(String table, Map<String, String> recordMap) {
+            this.table = table;
+            this.recordMap = recordMap;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.blimpit.utils.connectors.mysql;
+
+/**
+ * A snapshot of the counters of the write-behind queue of {@link MySQLConnector}
+ */
+public class WriteBehindStatistics {
+
+    private final int queueDepth;
+    private final long enqueuedCount;
+    private final long droppedCount;
+    private final long writtenCount;
+    private final long failedCount;
+    private final long flushCount;
+    private final long totalFlushTimeInNanos;
+    private final long maxFlushTimeInNanos;
+
+    WriteBehindStatistics(int queueDepth, long enqueuedCount, long droppedCount, long writtenCount, long failedCount,
+                          long flushCount, long totalFlushTimeInNanos, long maxFlushTimeInNanos) {
+        this.queueDepth = queueDepth;
+        this.enqueuedCount = enqueuedCount;
+        this.droppedCount = droppedCount;
+        this.writtenCount = writtenCount;
+        this.failedCount = failedCount;
+        this.flushCount = flushCount;
+        this.totalFlushTimeInNanos = totalFlushTimeInNanos;
+        this.maxFlushTimeInNanos = maxFlushTimeInNanos;
+    }
+
+    /**
+     * Number of records waiting to be written
+     * @return
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Number of records accepted into the queue
+     * @return
+     */
+    public long getEnqueuedCount() {
+        return enqueuedCount;
+    }
+
+    /**
+     * Number of records dropped because the queue was full or was stopped before they were written
+     * @return
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Number of queued records inserted into the DB
+     * @return
+     */
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    /**
+     * Number of queued records the DB refused
+     * @return
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Number of batches written
+     * @return
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Average time taken to write a batch
+     * @return
+     */
+    public double getAverageFlushTimeInMS() {
+        return flushCount == 0 ? 0 : totalFlushTimeInNanos / 1e6 / flushCount;
+    }
+
+    /**
+     * Longest time taken to write a batch
+     * @return
+     */
+    public double getMaxFlushTimeInMS() {
+        return maxFlushTimeInNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindStatistics{" +
+                "queueDepth=" + queueDepth +
+                ", enqueuedCount=" + enqueuedCount +
+                ", droppedCount=" + droppedCount +
+                ", writtenCount=" + writtenCount +
+                ", failedCount=" + failedCount +
+                ", flushCount=" + flushCount +
+                ", averageFlushTimeInMS=" + getAverageFlushTimeInMS() +
+                ", maxFlushTimeInMS=" + getMaxFlushTimeInMS() +
+                '}';
+    }
+}
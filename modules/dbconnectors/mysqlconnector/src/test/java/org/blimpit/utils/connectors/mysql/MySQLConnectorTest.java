@@ -0,0 +1,624 @@
+package org.blimpit.utils.connectors.mysql;
+
+import org.blimpit.utils.connectors.ConnectorException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MySQLConnectorTest {
+
+    // an in memory database emulating MySQL stands in for the server
+    private static final String JDBC_URL = "jdbc:h2:mem:mysqlconnector;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "DB_CLOSE_DELAY=-1;IGNORE_UNKNOWN_SETTINGS=TRUE";
+    private static final int MAX_CONNECTIONS = 4;
+    private static final long BORROW_TIMEOUT_IN_MS = 1000;
+
+    private MySQLConnector connector;
+
+    @BeforeClass
+    public static void createDatabase() throws SQLException {
+        // the first connection loads the database classes, which may take longer than the borrow timeout
+        DriverManager.getConnection(JDBC_URL, "sa", "").close();
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        MySQLConnectionPoolConfig poolConfig = new MySQLConnectionPoolConfig()
+                .setMinIdleConnections(1)
+                .setMaxConnections(MAX_CONNECTIONS)
+                .setBorrowTimeoutInMS(BORROW_TIMEOUT_IN_MS)
+                .setValidationTimeoutInMS(250);
+        connector = (MySQLConnector) MySQLConnector.getInstance(JDBC_URL, "sa", "", poolConfig);
+        try (Connection connection = connector.getConnection().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS users");
+            statement.execute("CREATE TABLE users (name VARCHAR(64), email VARCHAR(128))");
+            statement.execute("DROP TABLE IF EXISTS accounts");
+            statement.execute("CREATE TABLE accounts (id INT PRIMARY KEY, name VARCHAR(64))");
+            statement.execute("DROP TABLE IF EXISTS measurements");
+            statement.execute("CREATE TABLE measurements (id INT PRIMARY KEY, total BIGINT, ratio DOUBLE, "
+                    + "label VARCHAR(32), payload VARBINARY(16), price DECIMAL(10, 2))");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        MySQLConnector.shutdown();
+    }
+
+    @Test
+    public void insertsAndReadsRecords() {
+        assertTrue(connector.insert("users", user("alice")));
+        assertTrue(connector.insert("users", user("bob")));
+
+        Record[] records = connector.read("users");
+        assertEquals(2, records.length);
+        assertEquals(0, records[0].getIndex());
+        assertEquals("alice", records[0].getRecordAttributes().get("name"));
+        assertEquals("alice@example.com", records[0].getRecordAttributes().get("email"));
+        assertEquals(1, records[1].getIndex());
+        assertEquals("bob", records[1].getRecordAttributes().get("name"));
+    }
+
+    @Test
+    public void failsToInsertIntoMissingTable() {
+        assertFalse(connector.insert("missing", user("alice")));
+        assertEquals(0, connector.read("missing").length);
+    }
+
+    @Test
+    public void doesNotLetNamesChangeTheStatement() {
+        assertFalse(connector.insert("users` (name) VALUES ('x'); DROP TABLE users; --", user("alice")));
+        assertEquals(0, connector.read("users").length);
+        assertTrue(connector.insert("users", user("carol")));
+    }
+
+    @Test
+    public void isOpenWhileTheInstanceIsRunning() {
+        assertTrue(connector.getConnection().isOpen());
+        MySQLConnection connection = connector.getConnection();
+        MySQLConnector.shutdown();
+        assertFalse(connection.isOpen());
+    }
+
+    @Test
+    public void returnsTheSameInstanceUntilShutdown() {
+        assertSame(connector, MySQLConnector.getInstance(JDBC_URL, "sa", "", new MySQLConnectionPoolConfig()));
+        MySQLConnector.shutdown();
+        assertFalse(connector == MySQLConnector.getInstance(JDBC_URL, "sa", "", new MySQLConnectionPoolConfig()));
+    }
+
+    @Test
+    public void doesNotShareTheInstanceWithADifferentPassword() {
+        assertNotSame(connector, MySQLConnector.getInstance(JDBC_URL, "sa", "wrong_password",
+                new MySQLConnectionPoolConfig()));
+    }
+
+    @Test
+    public void sharesBoundedPoolBetweenConcurrentCallers() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        AtomicInteger maxTotalConnections = new AtomicInteger();
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String name = "user" + i;
+                Callable<Boolean> insert = () -> {
+                    boolean inserted = connector.insert("users", user(name));
+                    maxTotalConnections.accumulateAndGet(connector.getConnection().getTotalConnections(), Math::max);
+                    return inserted;
+                };
+                futures.add(executor.submit(insert));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(400, connector.read("users").length);
+        assertTrue(maxTotalConnections.get() <= MAX_CONNECTIONS);
+        assertEquals(0, connector.getConnection().getActiveConnections());
+    }
+
+    @Test
+    public void timesOutWhenAllConnectionsAreBorrowed() throws SQLException {
+        List<Connection> borrowed = new ArrayList<>();
+        try {
+            for (int i = 0; i < MAX_CONNECTIONS; i++) {
+                borrowed.add(connector.getConnection().getConnection());
+            }
+            long startTime = System.nanoTime();
+            try {
+                connector.getConnection().getConnection().close();
+                fail("Borrowed more connections than the pool holds");
+            } catch (SQLException e) {
+                assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(BORROW_TIMEOUT_IN_MS - 100));
+            }
+            assertFalse(connector.insert("users", user("alice")));
+        } finally {
+            for (Connection connection : borrowed) {
+                connection.close();
+            }
+        }
+        assertTrue(connector.insert("users", user("alice")));
+    }
+
+    @Test
+    public void insertsAllRecordsInBatches() {
+        List<Map<String, String>> users = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            users.add(user("user" + i));
+        }
+        BatchInsertResult result = connector.insertAll("users", users, new BatchInsertOptions().setBatchSize(1000));
+        assertTrue(result.isSuccess());
+        assertEquals(2500, result.getInsertedCount());
+        assertEquals(2500, connector.read("users").length);
+    }
+
+    @Test
+    public void insertsRecordsWithDifferentColumns() {
+        Map<String, String> nameOnly = new HashMap<>();
+        nameOnly.put("name", "dave");
+        BatchInsertResult result = connector.insertAll("users",
+                Stream.of(user("alice"), nameOnly, user("bob")), new BatchInsertOptions().setBatchSize(2));
+        assertEquals(3, result.getInsertedCount());
+        Record[] records = connector.read("users");
+        assertEquals(3, records.length);
+    }
+
+    @Test
+    public void reportsFailedRowsAndInsertsTheOthers() {
+        List<Map<String, String>> accounts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            accounts.add(account(i));
+        }
+        // duplicate keys, in the first batch and in the second one
+        accounts.add(2, account(1));
+        accounts.add(8, account(5));
+        accounts.add(new HashMap<>());
+
+        BatchInsertResult result = connector.insertAll("accounts", accounts, new BatchInsertOptions().setBatchSize(5));
+        assertFalse(result.isSuccess());
+        assertEquals(10, result.getInsertedCount());
+        assertEquals(3, result.getFailures().size());
+        assertEquals(2, result.getFailures().get(0).getRowIndex());
+        assertTrue(result.getFailures().get(0).getError() instanceof SQLException);
+        assertEquals(8, result.getFailures().get(1).getRowIndex());
+        assertEquals("5", result.getFailures().get(1).getRecord().get("id"));
+        assertEquals(12, result.getFailures().get(2).getRowIndex());
+        assertEquals(10, connector.read("accounts").length);
+    }
+
+    @Test
+    public void holdsRowsUntilFlushedWithoutAutoFlush() {
+        BatchInserter batchInserter = connector.newBatchInserter("users",
+                new BatchInsertOptions().setBatchSize(2).setAutoFlush(false));
+        for (int i = 0; i < 5; i++) {
+            batchInserter.add(user("user" + i));
+        }
+        assertEquals(0, connector.read("users").length);
+        batchInserter.close();
+        assertEquals(5, connector.read("users").length);
+        assertEquals(5, batchInserter.getResult().getInsertedCount());
+    }
+
+    @Test
+    public void flushesFullBatchesWithAutoFlush() {
+        try (BatchInserter batchInserter = connector.newBatchInserter("users",
+                new BatchInsertOptions().setBatchSize(2))) {
+            for (int i = 0; i < 5; i++) {
+                batchInserter.add(user("user" + i));
+            }
+            assertEquals(4, connector.read("users").length);
+        }
+        assertEquals(5, connector.read("users").length);
+    }
+
+    @Test
+    public void streamsProjectedAndFilteredRecords() {
+        connector.insertAll("accounts", accountsUpTo(10));
+        ReadQuery query = new ReadQuery()
+                .setColumns("name")
+                .setWhere("id >= ? AND id < ?", "3", "6")
+                .setKeyColumn("id")
+                .setFetchSize(2);
+        List<Record> records;
+        try (Stream<Record> stream = connector.stream("accounts", query)) {
+            records = stream.collect(Collectors.toList());
+        }
+        assertEquals(3, records.size());
+        assertEquals("account3", records.get(0).getRecordAttributes().get("name"));
+        assertEquals("3", records.get(0).getRecordAttributes().get("id"));
+        assertEquals(2, records.get(2).getIndex());
+        assertEquals(0, connector.getConnection().getActiveConnections());
+    }
+
+    @Test
+    public void readsPagesByKey() {
+        connector.insertAll("accounts", accountsUpTo(10));
+        ReadQuery query = new ReadQuery().setKeyColumn("id").setLimit(4);
+        List<Integer> pageSizes = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        while (true) {
+            List<Record> page = new ArrayList<>();
+            assertTrue(connector.read("accounts", query, page::add));
+            if (page.isEmpty()) {
+                break;
+            }
+            pageSizes.add(page.size());
+            for (Record record : page) {
+                ids.add(record.getRecordAttributes().get("id"));
+            }
+            query = query.nextPage(page.get(page.size() - 1));
+        }
+        assertEquals(Arrays.asList(4, 4, 2), pageSizes);
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"), ids);
+    }
+
+    @Test
+    public void releasesConnectionOfStreamClosedEarly() {
+        connector.insertAll("accounts", accountsUpTo(10));
+        try (Stream<Record> stream = connector.stream("accounts", new ReadQuery().setFetchSize(1))) {
+            assertEquals(2, stream.limit(2).count());
+            assertEquals(1, connector.getConnection().getActiveConnections());
+        }
+        assertEquals(0, connector.getConnection().getActiveConnections());
+    }
+
+    @Test
+    public void reportsFailedStreamingRead() {
+        assertFalse(connector.read("missing", new ReadQuery(), record -> fail("Read a missing table")));
+        try {
+            connector.stream("missing", new ReadQuery());
+            fail("Streamed a missing table");
+        } catch (ConnectorException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+        assertEquals(0, connector.getConnection().getActiveConnections());
+    }
+
+    @Test
+    public void readsValuesIntoTypedColumns() throws SQLException {
+        try (Connection connection = connector.getConnection().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO measurements VALUES (1, 10000000000, 0.5, 'first', X'0102', 12.50)");
+            statement.execute("INSERT INTO measurements VALUES (2, NULL, NULL, NULL, NULL, NULL)");
+        }
+        RecordBatch batch = connector.readBatch("measurements", new ReadQuery().setKeyColumn("id"));
+        RecordSchema schema = batch.getSchema();
+        assertEquals(Arrays.asList("id", "total", "ratio", "label", "payload", "price"), schema.getColumnLabels());
+        assertEquals(ColumnType.INT, schema.getColumnType(0));
+        assertEquals(ColumnType.LONG, schema.getColumnType(1));
+        assertEquals(ColumnType.DOUBLE, schema.getColumnType(2));
+        assertEquals(ColumnType.STRING, schema.getColumnType(3));
+        assertEquals(ColumnType.BYTES, schema.getColumnType(4));
+        assertEquals(ColumnType.STRING, schema.getColumnType(5));
+        assertEquals(2, batch.size());
+
+        Record first = batch.get(0);
+        assertSame(schema, first.getSchema());
+        assertEquals(1, first.getInt("id"));
+        assertEquals(10000000000L, first.getLong(1));
+        assertEquals(0.5, first.getDouble("ratio"), 0);
+        assertEquals("first", first.getString("label"));
+        assertArrayEquals(new byte[]{1, 2}, first.getBytes("payload"));
+        assertEquals("12.50", first.getString("price"));
+        assertEquals(12, first.getLong("price"));
+        assertEquals("10000000000", first.getRecordAttributes().get("total"));
+
+        Record second = batch.get(1);
+        assertEquals(1, second.getIndex());
+        assertTrue(second.isNull("total"));
+        assertEquals(0, second.getLong("total"));
+        assertTrue(second.isNull(2));
+        assertEquals(null, second.getString("label"));
+        assertEquals(null, second.getBytes("payload"));
+        assertEquals(null, second.getRecordAttributes().get("price"));
+        assertFalse(first.isNull("total"));
+    }
+
+    @Test
+    public void streamsRecordsAcrossBlocks() {
+        connector.insertAll("accounts", accountsUpTo(10));
+        List<Integer> indexes = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Record> stream = connector.stream("accounts", new ReadQuery().setKeyColumn("id").setFetchSize(3))) {
+            stream.forEach(record -> {
+                indexes.add(record.getIndex());
+                ids.add(record.getInt("id"));
+            });
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), indexes);
+        assertEquals(indexes, ids);
+    }
+
+    @Test
+    public void readsTypedValuesOfRecordsBuiltByName() {
+        Record record = new Record(3);
+        record.addRecordAttribute("id", "42");
+        record.addRecordAttribute("ratio", "0.25");
+        assertEquals(3, record.getIndex());
+        assertEquals(42, record.getInt("id"));
+        assertEquals(0.25, record.getDouble("ratio"), 0);
+        assertTrue(record.isNull("missing"));
+        assertEquals(null, record.getSchema());
+    }
+
+    @Test
+    public void detachesRecordFromBatchWhenChanged() {
+        connector.insertAll("accounts", accountsUpTo(1));
+        Record record = connector.read("accounts")[0];
+        record.addRecordAttribute("name", "renamed");
+        assertEquals("renamed", record.getString("name"));
+        assertEquals(0, record.getInt("id"));
+        assertEquals(null, record.getSchema());
+        assertEquals("account0", connector.read("accounts")[0].getString("name"));
+    }
+
+    @Test
+    public void answersRepeatedReadsFromTheCache() throws SQLException {
+        connector.setQueryCache(new QueryCacheConfig());
+        connector.insertAll("accounts", accountsUpTo(3));
+        assertEquals(3, connector.read("accounts").length);
+        // a write the connector does not see is only read once the cached result expires
+        try (Connection connection = connector.getConnection().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM accounts");
+        }
+        assertEquals(3, connector.read("accounts").length);
+
+        QueryCacheStatistics statistics = connector.getQueryCacheStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(0.5, statistics.getHitRate(), 0);
+        assertEquals(1, statistics.getSize());
+    }
+
+    @Test
+    public void doesNotShareBytesOfCachedResults() throws SQLException {
+        connector.setQueryCache(new QueryCacheConfig());
+        try (Connection connection = connector.getConnection().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO measurements VALUES (1, 1, 0.5, 'first', X'0102', 12.50)");
+        }
+        ReadQuery query = new ReadQuery().setKeyColumn("id");
+        connector.readBatch("measurements", query).get(0).getBytes("payload")[0] = 9;
+        assertArrayEquals(new byte[]{1, 2}, connector.readBatch("measurements", query).get(0).getBytes("payload"));
+        assertEquals(1, connector.getQueryCacheStatistics().getHitCount());
+    }
+
+    @Test
+    public void cachesEveryQueryOfATableSeparately() {
+        connector.setQueryCache(new QueryCacheConfig());
+        connector.insertAll("accounts", accountsUpTo(10));
+        ReadQuery firstPage = new ReadQuery().setKeyColumn("id").setLimit(4);
+        assertEquals(4, connector.readBatch("accounts", firstPage).size());
+        assertEquals(10, connector.readBatch("accounts", new ReadQuery()).size());
+        assertEquals(2, connector.readBatch("accounts", new ReadQuery().setWhere("id < ?", "2")).size());
+        assertEquals(3, connector.readBatch("accounts", new ReadQuery().setWhere("id < ?", "3")).size());
+        assertEquals(4, connector.readBatch("accounts", new ReadQuery(firstPage)).size());
+        assertEquals(1, connector.getQueryCacheStatistics().getHitCount());
+        assertEquals(4, connector.getQueryCacheStatistics().getSize());
+    }
+
+    @Test
+    public void dropsCachedResultsOfATableWrittenThroughTheConnector() {
+        connector.setQueryCache(new QueryCacheConfig());
+        connector.insertAll("accounts", accountsUpTo(2));
+        connector.insert("users", user("alice"));
+        assertEquals(2, connector.read("accounts").length);
+        assertEquals(1, connector.read("users").length);
+
+        assertTrue(connector.insert("accounts", account(2)));
+        assertEquals(3, connector.read("accounts").length);
+        connector.insertAll("accounts", Arrays.asList(account(3), account(4)));
+        assertEquals(5, connector.read("accounts").length);
+        try (BatchInserter batchInserter = connector.newBatchInserter("ACCOUNTS", new BatchInsertOptions())) {
+            batchInserter.add(account(5));
+        }
+        assertEquals(6, connector.read("accounts").length);
+        assertEquals(1, connector.read("users").length);
+
+        QueryCacheStatistics statistics = connector.getQueryCacheStatistics();
+        assertEquals(3, statistics.getInvalidationCount());
+        assertEquals(1, statistics.getHitCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyReadAndExpiredResults() throws InterruptedException {
+        connector.setQueryCache(new QueryCacheConfig().setMaxEntries(2).setTimeToLiveInMS(200));
+        connector.read("accounts");
+        connector.read("users");
+        connector.read("accounts");
+        connector.read("measurements");
+        connector.read("accounts");
+        assertEquals(2, connector.getQueryCacheStatistics().getHitCount());
+        assertEquals(1, connector.getQueryCacheStatistics().getEvictionCount());
+        connector.read("users");
+        assertEquals(2, connector.getQueryCacheStatistics().getHitCount());
+
+        TimeUnit.MILLISECONDS.sleep(300);
+        connector.read("accounts");
+        QueryCacheStatistics statistics = connector.getQueryCacheStatistics();
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(5, statistics.getMissCount());
+        assertEquals(3, statistics.getEvictionCount());
+    }
+
+    @Test
+    public void doesNotCacheLargeOrFailedResults() {
+        connector.setQueryCache(new QueryCacheConfig().setMaxRowsPerEntry(2));
+        connector.insertAll("accounts", accountsUpTo(3));
+        connector.read("accounts");
+        connector.read("missing");
+        assertEquals(0, connector.getQueryCacheStatistics().getSize());
+        connector.setQueryCache(null);
+        assertEquals(null, connector.getQueryCacheStatistics());
+        assertEquals(3, connector.read("accounts").length);
+    }
+
+    @Test
+    public void writesQueuedInsertsInBatchesPerTable() {
+        connector.setWriteBehind(new WriteBehindConfig().setMaxBatchSize(100).setFlushIntervalInMS(60000));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(connector.insert("accounts", account(i)));
+            assertTrue(connector.insert("users", user("user" + i)));
+        }
+        assertTrue(connector.insert("accounts", account(0)));
+        assertFalse(connector.insert("accounts", new HashMap<>()));
+        assertEquals(11, connector.getWriteBehindStatistics().getQueueDepth());
+
+        assertTrue(connector.flushWriteBehind());
+        assertEquals(5, connector.read("accounts").length);
+        assertEquals(5, connector.read("users").length);
+        WriteBehindStatistics statistics = connector.getWriteBehindStatistics();
+        assertEquals(0, statistics.getQueueDepth());
+        assertEquals(11, statistics.getEnqueuedCount());
+        assertEquals(10, statistics.getWrittenCount());
+        assertEquals(1, statistics.getFailedCount());
+        assertEquals(1, statistics.getFlushCount());
+        assertTrue(statistics.getMaxFlushTimeInMS() > 0);
+    }
+
+    @Test
+    public void writesAFullBatchWithoutWaitingForTheFlushInterval() throws InterruptedException {
+        connector.setWriteBehind(new WriteBehindConfig().setMaxBatchSize(5).setFlushIntervalInMS(60000));
+        for (int i = 0; i < 5; i++) {
+            connector.insert("accounts", account(i));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (connector.getWriteBehindStatistics().getWrittenCount() < 5 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(5, connector.read("accounts").length);
+    }
+
+    @Test
+    public void writesQueuedInsertsOnShutdown() {
+        connector.setWriteBehind(new WriteBehindConfig().setFlushIntervalInMS(60000));
+        for (int i = 0; i < 3; i++) {
+            connector.insert("accounts", account(i));
+        }
+        MySQLConnector.shutdown();
+        connector = (MySQLConnector) MySQLConnector.getInstance(JDBC_URL, "sa", "", new MySQLConnectionPoolConfig());
+        assertEquals(3, connector.read("accounts").length);
+    }
+
+    @Test
+    public void writesEveryInsertAcceptedWhileClosing() throws Exception {
+        WriteBehindQueue queue = new WriteBehindQueue(connector, new WriteBehindConfig().setFlushIntervalInMS(1));
+        AtomicInteger nextId = new AtomicInteger();
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                producers.add(executor.submit(() -> {
+                    while (queue.enqueue("accounts", account(nextId.getAndIncrement()))) {
+                        accepted.incrementAndGet();
+                    }
+                }));
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+            queue.close();
+            for (Future<?> producer : producers) {
+                producer.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(accepted.get(), connector.read("accounts").length);
+        assertEquals(accepted.get(), queue.getStatistics().getWrittenCount());
+    }
+
+    @Test
+    public void dropsInsertsWhenTheQueueIsFull() throws Exception {
+        assertDropsInsertsWhenTheQueueIsFull(WriteBehindConfig.OverflowPolicy.DROP, 0);
+    }
+
+    @Test
+    public void waitsForRoomInTheQueueBeforeDroppingInserts() throws Exception {
+        assertDropsInsertsWhenTheQueueIsFull(WriteBehindConfig.OverflowPolicy.BLOCK, 200);
+    }
+
+    private void assertDropsInsertsWhenTheQueueIsFull(WriteBehindConfig.OverflowPolicy overflowPolicy,
+                                                      long enqueueTimeoutInMS) throws Exception {
+        connector.setWriteBehind(new WriteBehindConfig()
+                .setQueueCapacity(1)
+                .setFlushIntervalInMS(60000)
+                .setOverflowPolicy(overflowPolicy)
+                .setEnqueueTimeoutInMS(enqueueTimeoutInMS));
+        List<Connection> borrowed = new ArrayList<>();
+        try {
+            for (int i = 0; i < MAX_CONNECTIONS; i++) {
+                borrowed.add(connector.getConnection().getConnection());
+            }
+            // fills the queue, the writer takes the record and waits for a connection
+            assertTrue(connector.insert("users", user("alice")));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (connector.getWriteBehindStatistics().getQueueDepth() > 0 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            assertTrue(connector.insert("users", user("bob")));
+            long startTime = System.nanoTime();
+            assertFalse(connector.insert("users", user("carol")));
+            assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(enqueueTimeoutInMS));
+        } finally {
+            for (Connection connection : borrowed) {
+                connection.close();
+            }
+        }
+        assertTrue(connector.flushWriteBehind());
+        assertEquals(2, connector.read("users").length);
+        assertEquals(1, connector.getWriteBehindStatistics().getDroppedCount());
+    }
+
+    private static List<Map<String, String>> accountsUpTo(int count) {
+        List<Map<String, String>> accounts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            accounts.add(account(i));
+        }
+        return accounts;
+    }
+
+    private static Map<String, String> account(int id) {
+        Map<String, String> account = new HashMap<>();
+        account.put("id", String.valueOf(id));
+        account.put("name", "account" + id);
+        return account;
+    }
+
+    private static Map<String, String> user(String name) {
+        Map<String, String> user = new HashMap<>();
+        user.put("name", name);
+        user.put("email", name + "@example.com");
+        return user;
+    }
+}
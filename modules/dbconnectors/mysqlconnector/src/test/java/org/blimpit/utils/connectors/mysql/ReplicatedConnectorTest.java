@@ -0,0 +1,200 @@
+package org.blimpit.utils.connectors.mysql;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReplicatedConnectorTest {
+
+    // in memory databases emulating MySQL stand in for the primary and the replicas, which are not replicated:
+    // every database holds a different record, telling which one a read went to
+    private static final String JDBC_URL = "jdbc:h2:mem:%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "DB_CLOSE_DELAY=-1;IGNORE_UNKNOWN_SETTINGS=TRUE";
+    private static final String UNREACHABLE_JDBC_URL = "jdbc:h2:tcp://localhost:1/unreachable";
+    private static final MySQLConnectionPoolConfig POOL_CONFIG = new MySQLConnectionPoolConfig()
+            .setMinIdleConnections(1)
+            .setMaxConnections(2)
+            .setBorrowTimeoutInMS(250)
+            .setValidationTimeoutInMS(250);
+
+    private MySQLConnector primary;
+    private MySQLConnector replica1;
+    private MySQLConnector replica2;
+    private MySQLConnector unreachableReplica;
+
+    @BeforeClass
+    public static void createDatabases() throws SQLException {
+        // the first connection loads the database classes, which may take longer than the borrow timeout
+        DriverManager.getConnection(jdbcUrl("primary"), "sa", "").close();
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        primary = connectTo("primary");
+        replica1 = connectTo("replica1");
+        replica2 = connectTo("replica2");
+        unreachableReplica = (MySQLConnector) MySQLConnector.getInstance(UNREACHABLE_JDBC_URL, "sa", "", POOL_CONFIG);
+    }
+
+    @After
+    public void tearDown() {
+        MySQLConnector.shutdown();
+    }
+
+    @Test
+    public void keepsAnInstancePerDatabase() {
+        assertNotSame(primary, replica1);
+        assertSame(primary, MySQLConnector.getInstance(jdbcUrl("primary"), "sa", "", new MySQLConnectionPoolConfig()));
+    }
+
+    @Test
+    public void insertsIntoThePrimary() {
+        ReplicatedConnector connector = new ReplicatedConnector(primary, Arrays.asList(replica1, replica2),
+                new ReplicaRoutingConfig());
+        assertTrue(connector.insert("accounts", account("inserted")));
+        assertEquals(1, connector.insertAll("accounts", Collections.singletonList(account("batched")))
+                .getInsertedCount());
+        assertEquals(3, primary.read("accounts").length);
+        assertEquals(1, replica1.read("accounts").length);
+    }
+
+    @Test
+    public void dropsCachedResultsOfTheReplicasOnInsert() throws SQLException {
+        replica1.setQueryCache(new QueryCacheConfig());
+        ReplicatedConnector connector = new ReplicatedConnector(primary, Collections.singletonList(replica1),
+                new ReplicaRoutingConfig());
+        assertEquals(1, connector.read("accounts").length);
+
+        assertTrue(connector.insert("accounts", account("inserted")));
+        replicate("inserted");
+        assertEquals(2, connector.read("accounts").length);
+
+        assertEquals(1, connector.insertAll("accounts", Collections.singletonList(account("batched")))
+                .getInsertedCount());
+        replicate("batched");
+        assertEquals(3, connector.read("accounts").length);
+    }
+
+    @Test
+    public void readsFromEveryReplicaInTurn() {
+        ReplicatedConnector connector = new ReplicatedConnector(primary, Arrays.asList(replica1, replica2),
+                new ReplicaRoutingConfig());
+        assertEquals(Arrays.asList("replica1", "replica2", "replica1", "replica2"), Arrays.asList(
+                readName(connector), readName(connector), streamName(connector), readNameWithConsumer(connector)));
+    }
+
+    @Test
+    public void readsFromTheLeastLoadedReplica() throws SQLException {
+        ReplicatedConnector connector = new ReplicatedConnector(primary, Arrays.asList(replica1, replica2),
+                new ReplicaRoutingConfig().setBalancing(ReplicaRoutingConfig.Balancing.LEAST_LOADED));
+        try (Connection borrowed = replica1.getConnection().getConnection()) {
+            assertEquals("replica2", readName(connector));
+            assertEquals("replica2", readName(connector));
+        }
+    }
+
+    @Test
+    public void failsOverToTheNextReplica() {
+        ReplicatedConnector connector = new ReplicatedConnector(primary, Arrays.asList(unreachableReplica, replica2),
+                new ReplicaRoutingConfig());
+        assertEquals("replica2", readName(connector));
+        assertEquals(1, connector.getAvailableReplicaCount());
+        // the unreachable replica is skipped, without waiting for it again
+        long startTime = System.nanoTime();
+        assertEquals("replica2", readName(connector));
+        assertEquals("replica2", streamName(connector));
+        assertTrue(System.nanoTime() - startTime < 200_000_000L);
+    }
+
+    @Test
+    public void retriesAReplicaAfterTheRetryInterval() throws InterruptedException {
+        ReplicatedConnector connector = new ReplicatedConnector(primary, Collections.singletonList(unreachableReplica),
+                new ReplicaRoutingConfig().setRetryIntervalInMS(100));
+        assertEquals("primary", readName(connector));
+        assertEquals(0, connector.getAvailableReplicaCount());
+        Thread.sleep(150);
+        assertEquals(1, connector.getAvailableReplicaCount());
+    }
+
+    @Test
+    public void readsFromThePrimaryOnlyIfAllowedWhenReplicasAreDown() {
+        ReplicatedConnector connector = new ReplicatedConnector(primary, Collections.singletonList(unreachableReplica),
+                new ReplicaRoutingConfig().setReadFromPrimaryWhenReplicasDown(false));
+        assertEquals(0, connector.read("accounts").length);
+        assertFalse(connector.read("accounts", new ReadQuery(), record -> { }));
+    }
+
+    @Test
+    public void doesNotFailOverQueryErrors() {
+        ReplicatedConnector connector = new ReplicatedConnector(primary, Arrays.asList(replica1, replica2),
+                new ReplicaRoutingConfig());
+        assertEquals(0, connector.read("missing").length);
+        assertEquals(2, connector.getAvailableReplicaCount());
+    }
+
+    private static String readName(ReplicatedConnector connector) {
+        return connector.read("accounts")[0].getString("name");
+    }
+
+    private static String streamName(ReplicatedConnector connector) {
+        try (Stream<Record> records = connector.stream("accounts", new ReadQuery())) {
+            return records.map(record -> record.getString("name")).collect(Collectors.joining());
+        }
+    }
+
+    private static String readNameWithConsumer(ReplicatedConnector connector) {
+        StringBuilder name = new StringBuilder();
+        assertTrue(connector.read("accounts", new ReadQuery(), record -> name.append(record.getString("name"))));
+        return name.toString();
+    }
+
+    /**
+     * Stands in for the replication of a record inserted into the primary, bypassing the connector of the replica
+     */
+    private void replicate(String name) throws SQLException {
+        try (Connection connection = replica1.getConnection().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO accounts (name) VALUES ('" + name + "')");
+        }
+    }
+
+    private static MySQLConnector connectTo(String database) throws SQLException {
+        MySQLConnector connector = (MySQLConnector) MySQLConnector.getInstance(jdbcUrl(database), "sa", "",
+                POOL_CONFIG);
+        try (Connection connection = connector.getConnection().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS accounts");
+            statement.execute("CREATE TABLE accounts (name VARCHAR(64))");
+        }
+        assertTrue(connector.insert("accounts", account(database)));
+        return connector;
+    }
+
+    private static Map<String, String> account(String name) {
+        Map<String, String> account = new HashMap<>();
+        account.put("name", name);
+        return account;
+    }
+
+    private static String jdbcUrl(String database) {
+        return String.format(JDBC_URL, database);
+    }
+}
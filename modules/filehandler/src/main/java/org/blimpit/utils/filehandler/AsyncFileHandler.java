@@ -0,0 +1,142 @@
+package org.blimpit.utils.filehandler;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An interface having the non blocking variants of the {@link FileHandler} APIs.
+ * Each call returns immediately and the transfer is carried out on the executor of the handler.
+ */
+public interface AsyncFileHandler {
+
+  /**
+   * Upload file to a given web service. Uploads the file as multipart/form-data.
+   * @param sourcePath
+   * @param serviceURL
+   * @return result of the uploading
+   */
+  CompletableFuture<TransferResult> uploadFileToService(String sourcePath, String serviceURL);
+
+  /**
+   * Upload file to a given web service. Uploads the file as multipart/form-data.
+   * @param sourcePath
+   * @param serviceURL
+   * @param timeoutInMS timeout in milliseconds, this value will be set to connection, socket and connection manager timeouts
+   * @param multipartName multipart name for the file to be uploaded
+   * @return result of the uploading
+   */
+  CompletableFuture<TransferResult> uploadFileToService(String sourcePath, String serviceURL, int timeoutInMS,
+                                                        String multipartName);
+
+  /**
+   * Upload file to a given web service. Uploads the file as multipart/form-data.
+   * @param sourcePath
+   * @param serviceURL
+   * @param timeoutInMS timeout in milliseconds, this value will be set to connection, socket and connection manager timeouts
+   * @param multipartName multipart name for the file to be uploaded
+   * @param options settings of the transfer
+   * @return result of the uploading
+   */
+  CompletableFuture<TransferResult> uploadFileToService(String sourcePath, String serviceURL, int timeoutInMS,
+                                                        String multipartName, TransferOptions options);
+
+  /**
+   * Upload file to a local destination
+   * @param sourcePath
+   * @param destinationPath
+   * @return result of the file uploading
+   */
+  CompletableFuture<TransferResult> uploadFileToLocalDst(String sourcePath, String destinationPath);
+
+  /**
+   * Upload file to a remote location using ftp
+   * @param sourcePath
+   * @param destination
+   * @return result of the file uploading
+   */
+  CompletableFuture<TransferResult> uploadFileToaRemoteServer(String sourcePath, String destination);
+
+  /**
+   * Upload file to a remote location using ftp
+   * @param sourcePath
+   * @param destination
+   * @param options settings of the transfer
+   * @return result of the file uploading
+   */
+  CompletableFuture<TransferResult> uploadFileToaRemoteServer(String sourcePath, String destination,
+                                                              TransferOptions options);
+
+  /**
+   * Download file from remote location by calling remote web service
+   * @param downloadServiceURL
+   * @param localPath
+   * @return result of the file downloading
+   */
+  CompletableFuture<TransferResult> downloadFileFromRemoteService(String downloadServiceURL, String localPath);
+
+  /**
+   * Download file from remote location by calling remote web service
+   * @param downloadServiceURL
+   * @param localPath
+   * @param timeoutInMS timeout in milliseconds, this value will be set to connection, socket and connection manager timeouts
+   * @return result of the file downloading
+   */
+  CompletableFuture<TransferResult> downloadFileFromRemoteService(String downloadServiceURL, String localPath,
+                                                                  int timeoutInMS);
+
+  /**
+   * Download file from remote location by calling remote web service
+   * @param downloadServiceURL
+   * @param localPath
+   * @param timeoutInMS timeout in milliseconds, this value will be set to connection, socket and connection manager timeouts
+   * @param options settings of the transfer
+   * @return result of the file downloading
+   */
+  CompletableFuture<TransferResult> downloadFileFromRemoteService(String downloadServiceURL, String localPath,
+                                                                  int timeoutInMS, TransferOptions options);
+
+  /**
+   * Download file from remote location by calling remote web service, fetching byte ranges of the file in parallel
+   * @param downloadServiceURL
+   * @param localPath
+   * @param chunkCount number of ranges fetched in parallel
+   * @param timeoutInMS timeout in milliseconds, this value will be set to connection, socket and connection manager timeouts
+   * @return result of the file downloading
+   */
+  CompletableFuture<TransferResult> downloadFileFromRemoteServiceInChunks(String downloadServiceURL, String localPath,
+                                                                          int chunkCount, int timeoutInMS);
+
+  /**
+   * Copy file from one location to another location locally
+   * @param destination
+   * @param newLocation
+   * @return result of the file copying
+   */
+  CompletableFuture<TransferResult> copyFile(String destination, String newLocation);
+
+  /**
+   * Copy file from one location to another location locally
+   * @param destination
+   * @param newLocation
+   * @param options settings of the transfer
+   * @return result of the file copying
+   */
+  CompletableFuture<TransferResult> copyFile(String destination, String newLocation, TransferOptions options);
+
+  /**
+   * Download file from remote server using ftp
+   * @param remoteLocation
+   * @param localPath
+   * @return result of the file downloading
+   */
+  CompletableFuture<TransferResult> downloadFileFromRemoteServer(String remoteLocation, String localPath);
+
+  /**
+   * Download file from remote server using ftp
+   * @param remoteLocation
+   * @param localPath
+   * @param options settings of the transfer
+   * @return result of the file downloading
+   */
+  CompletableFuture<TransferResult> downloadFileFromRemoteServer(String remoteLocation, String localPath,
+                                                                 TransferOptions options);
+}
@@ -0,0 +1,98 @@
+package org.blimpit.utils.filehandler;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket limiting the rate at which bytes pass through the streams sharing it.
+ * A stream reserves the bytes it is about to move and then waits until the bucket has refilled enough to cover them,
+ * so the streams sharing a limiter are served in the order of their reservations, chunk by chunk.
+ * The rate can be changed at any time and applies to the next reservation.
+ */
+public class BandwidthLimiter {
+
+    /**
+     * Rate which disables the limit
+     */
+    public static final long UNLIMITED = 0;
+
+    /**
+     * How much traffic an idle limiter lets through at once, expressed as time at the configured rate
+     */
+    private static final long BURST_IN_MS = 100;
+
+    private long bytesPerSecond;
+    private double availableBytes;
+    private long lastRefillNanos = System.nanoTime();
+
+    public BandwidthLimiter(long bytesPerSecond) {
+        setBytesPerSecond(bytesPerSecond);
+    }
+
+    public synchronized long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Changes the rate of the limiter
+     * @param bytesPerSecond the rate, or {@link #UNLIMITED}
+     */
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        refill();
+        this.bytesPerSecond = Math.max(bytesPerSecond, UNLIMITED);
+        // bytes reserved at the old rate stay reserved, only the unused burst is clamped to the new rate
+        availableBytes = Math.min(availableBytes, getBurstSize());
+    }
+
+    public boolean isUnlimited() {
+        return getBytesPerSecond() == UNLIMITED;
+    }
+
+    /**
+     * Blocks until the given number of bytes may pass
+     * @param bytes
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    public void acquire(int bytes) throws InterruptedIOException {
+        sleep(reserve(bytes));
+    }
+
+    /**
+     * Takes the given number of bytes from the bucket, letting it go into debt if it does not hold enough of them
+     * @param bytes
+     * @return nanoseconds the caller has to wait before the bytes may pass
+     */
+    synchronized long reserve(int bytes) {
+        if (bytesPerSecond == UNLIMITED) {
+            return 0;
+        }
+        refill();
+        availableBytes -= bytes;
+        return availableBytes >= 0 ? 0 : (long) (-availableBytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (bytesPerSecond != UNLIMITED) {
+            double refilledBytes = (double) (now - lastRefillNanos) * bytesPerSecond / TimeUnit.SECONDS.toNanos(1);
+            availableBytes = Math.min(availableBytes + refilledBytes, getBurstSize());
+        }
+        lastRefillNanos = now;
+    }
+
+    private double getBurstSize() {
+        return (double) bytesPerSecond * BURST_IN_MS / 1000;
+    }
+
+    static void sleep(long nanos) throws InterruptedIOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+        }
+    }
+}
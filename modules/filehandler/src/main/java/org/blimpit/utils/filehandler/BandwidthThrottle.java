@@ -0,0 +1,153 @@
+package org.blimpit.utils.filehandler;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The bandwidth limits of the network transfers of {@link BlimpItFileHandler}: a global limit shared by every transfer
+ * and a limit per remote host. Every stream of a transfer takes its bytes from both limiters in chunks of at most
+ * {@link #MAX_CHUNK_SIZE}, so a large transfer cannot hold the link while smaller ones wait.
+ * The limits can be changed while transfers are running. Local copies are not limited.
+ */
+public class BandwidthThrottle {
+
+    static final int MAX_CHUNK_SIZE = 16 * 1024;
+
+    private final BandwidthLimiter globalLimiter = new BandwidthLimiter(BandwidthLimiter.UNLIMITED);
+    private final ConcurrentMap<String, BandwidthLimiter> hostLimiters = new ConcurrentHashMap<>();
+
+    public long getGlobalBytesPerSecond() {
+        return globalLimiter.getBytesPerSecond();
+    }
+
+    /**
+     * Limits the combined rate of all the transfers
+     * @param bytesPerSecond the rate, or {@link BandwidthLimiter#UNLIMITED}
+     */
+    public void setGlobalBytesPerSecond(long bytesPerSecond) {
+        globalLimiter.setBytesPerSecond(bytesPerSecond);
+    }
+
+    /**
+     * @param host
+     * @return the limit of the host, or {@link BandwidthLimiter#UNLIMITED} if it has none
+     */
+    public long getHostBytesPerSecond(String host) {
+        BandwidthLimiter limiter = hostLimiters.get(normalizeHost(host));
+        return limiter == null ? BandwidthLimiter.UNLIMITED : limiter.getBytesPerSecond();
+    }
+
+    /**
+     * Limits the combined rate of the transfers to or from the given host
+     * @param host the host name, as it appears in the transfer URLs
+     * @param bytesPerSecond the rate, or {@link BandwidthLimiter#UNLIMITED} to remove the limit
+     */
+    public void setHostBytesPerSecond(String host, long bytesPerSecond) {
+        String key = normalizeHost(host);
+        if (bytesPerSecond <= BandwidthLimiter.UNLIMITED) {
+            // transfers already holding the limiter see it as unlimited from their next chunk on
+            BandwidthLimiter limiter = hostLimiters.remove(key);
+            if (limiter != null) {
+                limiter.setBytesPerSecond(BandwidthLimiter.UNLIMITED);
+            }
+            return;
+        }
+        hostLimiters.computeIfAbsent(key, k -> new BandwidthLimiter(bytesPerSecond)).setBytesPerSecond(bytesPerSecond);
+    }
+
+    /**
+     * Blocks until the given number of bytes may pass to or from the given host
+     * @param host
+     * @param bytes
+     * @throws InterruptedIOException
+     */
+    void acquire(String host, int bytes) throws InterruptedIOException {
+        long globalWait = globalLimiter.reserve(bytes);
+        BandwidthLimiter hostLimiter = host == null ? null : hostLimiters.get(host);
+        long hostWait = hostLimiter == null ? 0 : hostLimiter.reserve(bytes);
+        BandwidthLimiter.sleep(Math.max(globalWait, hostWait));
+    }
+
+    /**
+     * Returns the streams limiting the transfers of the given remote location
+     * @param location a URL
+     * @return
+     */
+    Streams forLocation(String location) {
+        try {
+            return new Streams(normalizeHost(new URL(location).getHost()));
+        } catch (MalformedURLException e) {
+            return new Streams(null);
+        }
+    }
+
+    private static String normalizeHost(String host) {
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Wraps the streams of a transfer so that they take their bytes from the global limiter and the limiter of a host
+     */
+    class Streams implements StreamDecorator {
+
+        private final String host;
+
+        private Streams(String host) {
+            this.host = host;
+        }
+
+        @Override
+        public InputStream wrap(InputStream inputStream) {
+            return new FilterInputStream(inputStream) {
+                @Override
+                public int read() throws IOException {
+                    int value = super.read();
+                    if (value != -1) {
+                        acquire(host, 1);
+                    }
+                    return value;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, Math.min(length, MAX_CHUNK_SIZE));
+                    if (read > 0) {
+                        acquire(host, read);
+                    }
+                    return read;
+                }
+            };
+        }
+
+        @Override
+        public OutputStream wrap(OutputStream outputStream) {
+            return new FilterOutputStream(outputStream) {
+                @Override
+                public void write(int value) throws IOException {
+                    acquire(host, 1);
+                    out.write(value);
+                }
+
+                @Override
+                public void write(byte[] buffer, int offset, int length) throws IOException {
+                    while (length > 0) {
+                        int chunkSize = Math.min(length, MAX_CHUNK_SIZE);
+                        acquire(host, chunkSize);
+                        out.write(buffer, offset, chunkSize);
+                        offset += chunkSize;
+                        length -= chunkSize;
+                    }
+                }
+            };
+        }
+    }
+}
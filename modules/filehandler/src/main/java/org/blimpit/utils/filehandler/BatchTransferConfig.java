@@ -0,0 +1,117 @@
+package org.blimpit.utils.filehandler;
+
+/**
+ * Settings of the {@link BatchTransferEngine}.
+ */
+public class BatchTransferConfig {
+
+    public static final int DEFAULT_PARALLELISM = 8;
+    public static final int DEFAULT_MAX_CONCURRENT_TRANSFERS_PER_HOST = 4;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_INITIAL_BACKOFF_IN_MS = 200;
+    public static final long DEFAULT_MAX_BACKOFF_IN_MS = 10000;
+    public static final long DEFAULT_SMALL_TRANSFER_MAX_BYTES = 1024 * 1024;
+    public static final long DEFAULT_LARGE_TRANSFER_MIN_BYTES = 64 * 1024 * 1024;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int maxConcurrentTransfersPerHost = DEFAULT_MAX_CONCURRENT_TRANSFERS_PER_HOST;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long initialBackoffInMS = DEFAULT_INITIAL_BACKOFF_IN_MS;
+    private long maxBackoffInMS = DEFAULT_MAX_BACKOFF_IN_MS;
+    private long smallTransferMaxBytes = DEFAULT_SMALL_TRANSFER_MAX_BYTES;
+    private long largeTransferMinBytes = DEFAULT_LARGE_TRANSFER_MIN_BYTES;
+
+    /**
+     * Number of worker threads running the transfers of a batch
+     * @return
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public BatchTransferConfig setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Maximum number of transfers running against the same remote host at a time.
+     * Local copies are counted against a single "local" host.
+     * @return
+     */
+    public int getMaxConcurrentTransfersPerHost() {
+        return maxConcurrentTransfersPerHost;
+    }
+
+    public BatchTransferConfig setMaxConcurrentTransfersPerHost(int maxConcurrentTransfersPerHost) {
+        this.maxConcurrentTransfersPerHost = maxConcurrentTransfersPerHost;
+        return this;
+    }
+
+    /**
+     * Number of times a failed transfer is retried before it is reported as failed
+     * @return
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public BatchTransferConfig setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Wait time before the first retry, doubled on every further retry
+     * @return
+     */
+    public long getInitialBackoffInMS() {
+        return initialBackoffInMS;
+    }
+
+    public BatchTransferConfig setInitialBackoffInMS(long initialBackoffInMS) {
+        this.initialBackoffInMS = initialBackoffInMS;
+        return this;
+    }
+
+    /**
+     * Upper bound of the wait time between retries
+     * @return
+     */
+    public long getMaxBackoffInMS() {
+        return maxBackoffInMS;
+    }
+
+    public BatchTransferConfig setMaxBackoffInMS(long maxBackoffInMS) {
+        this.maxBackoffInMS = maxBackoffInMS;
+        return this;
+    }
+
+    /**
+     * Transfers of files up to this size are scheduled as small ones. The workers take small, medium and large
+     * transfers in turn, so small transfers queued behind large ones do not wait for all of them.
+     * @return
+     */
+    public long getSmallTransferMaxBytes() {
+        return smallTransferMaxBytes;
+    }
+
+    public BatchTransferConfig setSmallTransferMaxBytes(long smallTransferMaxBytes) {
+        this.smallTransferMaxBytes = smallTransferMaxBytes;
+        return this;
+    }
+
+    /**
+     * Transfers of files of at least this size are scheduled as large ones.
+     * Downloads, whose size is not known before they start, are scheduled as medium ones.
+     * @return
+     */
+    public long getLargeTransferMinBytes() {
+        return largeTransferMinBytes;
+    }
+
+    public BatchTransferConfig setLargeTransferMinBytes(long largeTransferMinBytes) {
+        this.largeTransferMinBytes = largeTransferMinBytes;
+        return this;
+    }
+}
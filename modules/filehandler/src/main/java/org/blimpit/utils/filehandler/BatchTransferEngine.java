@@ -0,0 +1,297 @@
+package org.blimpit.utils.filehandler;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class which runs batches of file transfers on a bounded pool of workers.
+ * The transfers are carried out through the given {@link FileHandler}, concurrency is capped per remote host
+ * and failed transfers are retried with exponential backoff. Workers take small, medium and large transfers in turn,
+ * see {@link BatchTransferConfig#getSmallTransferMaxBytes()}. A worker neither waits for a busy host nor sleeps through
+ * a backoff, it runs the transfers to the other hosts in the meantime.
+ */
+public class BatchTransferEngine {
+
+    private static final String LOCAL_HOST_KEY = "local";
+
+    private final FileHandler fileHandler;
+    private final BatchTransferConfig config;
+    private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    public BatchTransferEngine(BatchTransferConfig config) {
+        this(null, config);
+    }
+
+    public BatchTransferEngine(FileHandler fileHandler, BatchTransferConfig config) {
+        this.fileHandler = fileHandler;
+        this.config = config;
+    }
+
+    /**
+     * Transfers all the given files and blocks until every transfer has either succeeded or run out of retries.
+     * @param requests
+     * @return per transfer results, in the order of the requests, and aggregate statistics of the batch
+     */
+    public BatchTransferResult transfer(List<TransferRequest> requests) {
+        long startTime = System.nanoTime();
+        int workerCount = Math.max(1, Math.min(config.getParallelism(), requests.size()));
+        ExecutorService executor = FileTransferExecutors.newPlatformThreadExecutor(workerCount);
+        ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(
+                FileTransferExecutors.newDaemonThreadFactory("blimpit-transfer-retry-"));
+        try {
+            Batch batch = new Batch(requests.size(), config, retryScheduler);
+            List<PendingTransfer> transfers = new ArrayList<>(requests.size());
+            for (TransferRequest request : requests) {
+                PendingTransfer transfer = new PendingTransfer(request, getTransferSize(request),
+                        hostPermits.computeIfAbsent(getHostKey(request),
+                                host -> new Semaphore(config.getMaxConcurrentTransfersPerHost(), true)));
+                transfers.add(transfer);
+                batch.add(transfer);
+            }
+            for (int i = 0; i < workerCount; i++) {
+                executor.execute(() -> runQueuedTransfers(batch));
+            }
+            List<TransferResult> results = new ArrayList<>(requests.size());
+            for (PendingTransfer transfer : transfers) {
+                results.add(transfer.future.join());
+            }
+            return new BatchTransferResult(results, (System.nanoTime() - startTime) / 1000000);
+        } finally {
+            executor.shutdownNow();
+            retryScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Worker loop taking transfers from the batch until every transfer of the batch is done
+     * @param batch
+     */
+    private void runQueuedTransfers(Batch batch) {
+        try {
+            PendingTransfer transfer;
+            while ((transfer = batch.take()) != null) {
+                runAttempt(batch, transfer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a single attempt of a transfer whose host permit is already held.
+     * A failed attempt with retries left is handed back to the batch after the backoff, instead of keeping the
+     * worker asleep in the meantime.
+     * @param batch
+     * @param transfer
+     */
+    private void runAttempt(Batch batch, PendingTransfer transfer) {
+        if (transfer.attempts == 0) {
+            transfer.startTime = System.nanoTime();
+        }
+        transfer.attempts++;
+        boolean success;
+        BlimpItFileHandler.takeLastTransferMetrics();
+        try {
+            success = runTransfer(transfer.request);
+        } catch (RuntimeException e) {
+            transfer.future.completeExceptionally(e);
+            batch.finished();
+            return;
+        } finally {
+            transfer.permits.release();
+            batch.permitReleased();
+        }
+        transfer.metrics = BlimpItFileHandler.takeLastTransferMetrics();
+        if (!success && transfer.attempts <= config.getMaxRetries()) {
+            batch.addLater(transfer, getBackoffInMS(transfer.attempts));
+            return;
+        }
+        TransferRequest request = transfer.request;
+        long durationInMS = (System.nanoTime() - transfer.startTime) / 1000000;
+        long bytesTransferred = success ? new File(getLocalPath(request)).length() : 0;
+        transfer.future.complete(new TransferResult(request.getSource(), request.getDestination(), success,
+                bytesTransferred, durationInMS, transfer.attempts, transfer.metrics));
+        batch.finished();
+    }
+
+    /**
+     * Picks the {@link FileHandler} operation matching the source and the destination of the request.
+     * @param request
+     * @return status of the transfer
+     */
+    private boolean runTransfer(TransferRequest request) {
+        String source = request.getSource();
+        String destination = request.getDestination();
+        if (isHttpUrl(source)) {
+            return getFileHandler().downloadFileFromRemoteService(source, destination);
+        } else if (isFtpUrl(source)) {
+            return getFileHandler().downloadFileFromRemoteServer(source, destination);
+        } else if (isHttpUrl(destination)) {
+            return getFileHandler().uploadFileToService(source, destination);
+        } else if (isFtpUrl(destination)) {
+            return getFileHandler().uploadFileToaRemoteServer(source, destination);
+        }
+        return getFileHandler().uploadFileToLocalDst(source, destination);
+    }
+
+    /**
+     * The shared {@link BlimpItFileHandler} is looked up per call, so that the engine keeps working after
+     * {@link BlimpItFileHandler#shutdown()} replaced it.
+     * @return
+     */
+    private FileHandler getFileHandler() {
+        return fileHandler != null ? fileHandler : BlimpItFileHandler.getInstance();
+    }
+
+    /**
+     * Exponential backoff with jitter, bounded by the configured maximum
+     * @param retry
+     * @return
+     */
+    private long getBackoffInMS(int retry) {
+        long backoff = config.getInitialBackoffInMS() << Math.min(retry - 1, 30);
+        backoff = Math.min(Math.max(backoff, 0), config.getMaxBackoffInMS());
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private static String getHostKey(TransferRequest request) {
+        String remote = isRemote(request.getSource()) ? request.getSource() : request.getDestination();
+        if (!isRemote(remote)) {
+            return LOCAL_HOST_KEY;
+        }
+        try {
+            URL url = new URL(remote);
+            return url.getHost() + ":" + url.getPort();
+        } catch (MalformedURLException e) {
+            return remote;
+        }
+    }
+
+    /**
+     * Size of the file sent by an upload or a copy. The size of a download is not known before it starts.
+     * @param request
+     * @return
+     */
+    private static long getTransferSize(TransferRequest request) {
+        if (isRemote(request.getSource())) {
+            return FairTransferQueue.UNKNOWN_SIZE;
+        }
+        return new File(request.getSource()).length();
+    }
+
+    private static String getLocalPath(TransferRequest request) {
+        return isRemote(request.getDestination()) ? request.getSource() : request.getDestination();
+    }
+
+    private static boolean isRemote(String location) {
+        return isHttpUrl(location) || isFtpUrl(location);
+    }
+
+    private static boolean isHttpUrl(String location) {
+        String lowerCaseLocation = location.toLowerCase();
+        return lowerCaseLocation.startsWith("http://") || lowerCaseLocation.startsWith("https://");
+    }
+
+    private static boolean isFtpUrl(String location) {
+        return location.toLowerCase().startsWith("ftp://");
+    }
+
+    /**
+     * A request of a batch, with the permits of its remote host and the state carried between its attempts
+     */
+    private static class PendingTransfer {
+
+        private final TransferRequest request;
+        private final long size;
+        private final Semaphore permits;
+        private final CompletableFuture<TransferResult> future = new CompletableFuture<>();
+        private long startTime;
+        private int attempts;
+        private TransferMetrics metrics;
+
+        private PendingTransfer(TransferRequest request, long size, Semaphore permits) {
+            this.request = request;
+            this.size = size;
+            this.permits = permits;
+        }
+    }
+
+    /**
+     * The transfers of a batch which are ready to run. A worker skips the transfers whose host has no free permit,
+     * they are parked until a permit is released, so that a busy host does not hold up the transfers to the others.
+     */
+    private static class Batch {
+
+        /**
+         * Parked transfers are also looked at again after this long, as permits of a host shared with another batch
+         * of the same engine are released without notice to this one
+         */
+        private static final long PARKED_RECHECK_INTERVAL_IN_MS = 50;
+
+        private final FairTransferQueue<PendingTransfer> ready;
+        private final Deque<PendingTransfer> parked = new ArrayDeque<>();
+        private final ScheduledExecutorService retryScheduler;
+        private int remaining;
+
+        private Batch(int size, BatchTransferConfig config, ScheduledExecutorService retryScheduler) {
+            this.ready = new FairTransferQueue<>(config);
+            this.remaining = size;
+            this.retryScheduler = retryScheduler;
+        }
+
+        synchronized void add(PendingTransfer transfer) {
+            ready.add(transfer, transfer.size);
+            notifyAll();
+        }
+
+        void addLater(PendingTransfer transfer, long delayInMS) {
+            retryScheduler.schedule(() -> add(transfer), delayInMS, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Waits for a transfer which is ready and whose host has a free permit, and acquires the permit.
+         * @return the transfer, or null once every transfer of the batch is done
+         * @throws InterruptedException
+         */
+        synchronized PendingTransfer take() throws InterruptedException {
+            while (remaining > 0) {
+                PendingTransfer transfer;
+                while ((transfer = ready.poll()) != null) {
+                    if (transfer.permits.tryAcquire()) {
+                        return transfer;
+                    }
+                    parked.addLast(transfer);
+                }
+                wait(PARKED_RECHECK_INTERVAL_IN_MS);
+                while ((transfer = parked.pollFirst()) != null) {
+                    ready.add(transfer, transfer.size);
+                }
+            }
+            return null;
+        }
+
+        synchronized void permitReleased() {
+            notifyAll();
+        }
+
+        synchronized void finished() {
+            if (--remaining == 0) {
+                notifyAll();
+            }
+        }
+    }
+}
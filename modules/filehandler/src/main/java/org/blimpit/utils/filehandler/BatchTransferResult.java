@@ -0,0 +1,76 @@
+package org.blimpit.utils.filehandler;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a batch of transfers run by the {@link BatchTransferEngine}.
+ */
+public class BatchTransferResult {
+
+    private final List<TransferResult> results;
+    private final long durationInMS;
+
+    public BatchTransferResult(List<TransferResult> results, long durationInMS) {
+        this.results = Collections.unmodifiableList(results);
+        this.durationInMS = durationInMS;
+    }
+
+    /**
+     * Results of the individual transfers, in the order of the requests
+     * @return
+     */
+    public List<TransferResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Wall clock time taken by the whole batch in milliseconds
+     * @return
+     */
+    public long getDurationInMS() {
+        return durationInMS;
+    }
+
+    public int getSuccessCount() {
+        int successCount = 0;
+        for (TransferResult result : results) {
+            if (result.isSuccess()) {
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+
+    public int getFailureCount() {
+        return results.size() - getSuccessCount();
+    }
+
+    /**
+     * Total number of retries over all the transfers
+     * @return
+     */
+    public int getRetryCount() {
+        int retryCount = 0;
+        for (TransferResult result : results) {
+            retryCount += result.getAttempts() - 1;
+        }
+        return retryCount;
+    }
+
+    public long getTotalBytesTransferred() {
+        long totalBytes = 0;
+        for (TransferResult result : results) {
+            totalBytes += result.getBytesTransferred();
+        }
+        return totalBytes;
+    }
+
+    /**
+     * Aggregate throughput of the batch in bytes per second
+     * @return
+     */
+    public double getThroughputInBytesPerSecond() {
+        return durationInMS == 0 ? 0 : getTotalBytesTransferred() * 1000.0 / durationInMS;
+    }
+}
@@ -0,0 +1,176 @@
+package org.blimpit.utils.filehandler;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A class which runs the {@link FileHandler} operations on an executor and reports their outcome
+ * through {@link CompletableFuture}s, so that the calling thread is not blocked for the duration of the transfer.
+ */
+public class BlimpItAsyncFileHandler implements AsyncFileHandler {
+
+    private static volatile BlimpItAsyncFileHandler blimpItAsyncFileHandler;
+
+    private final FileHandler fileHandler;
+    private final Executor executor;
+
+    /**
+     * Creates an async handler which runs the transfers of the shared {@link BlimpItFileHandler} on the given executor
+     * @param executor
+     */
+    public BlimpItAsyncFileHandler(Executor executor) {
+        this(null, executor);
+    }
+
+    /**
+     * Creates an async handler which runs the transfers of the given file handler on the given executor
+     * @param fileHandler
+     * @param executor
+     */
+    public BlimpItAsyncFileHandler(FileHandler fileHandler, Executor executor) {
+        this.fileHandler = fileHandler;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> uploadFileToService(String sourcePath, String serviceURL) {
+        return transfer(sourcePath, serviceURL, sourcePath,
+                () -> getFileHandler().uploadFileToService(sourcePath, serviceURL));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> uploadFileToService(String sourcePath, String serviceURL, int timeoutInMS,
+                                                               String multipartName) {
+        return transfer(sourcePath, serviceURL, sourcePath,
+                () -> getFileHandler().uploadFileToService(sourcePath, serviceURL, timeoutInMS, multipartName));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> uploadFileToService(String sourcePath, String serviceURL, int timeoutInMS,
+                                                               String multipartName, TransferOptions options) {
+        return transfer(sourcePath, serviceURL, sourcePath,
+                () -> getFileHandler().uploadFileToService(sourcePath, serviceURL, timeoutInMS, multipartName, options));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> uploadFileToLocalDst(String sourcePath, String destinationPath) {
+        return transfer(sourcePath, destinationPath, destinationPath,
+                () -> getFileHandler().uploadFileToLocalDst(sourcePath, destinationPath));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> uploadFileToaRemoteServer(String sourcePath, String destination) {
+        return transfer(sourcePath, destination, sourcePath,
+                () -> getFileHandler().uploadFileToaRemoteServer(sourcePath, destination));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> uploadFileToaRemoteServer(String sourcePath, String destination,
+                                                                     TransferOptions options) {
+        return transfer(sourcePath, destination, sourcePath,
+                () -> getFileHandler().uploadFileToaRemoteServer(sourcePath, destination, options));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> downloadFileFromRemoteService(String downloadServiceURL, String localPath) {
+        return transfer(downloadServiceURL, localPath, localPath,
+                () -> getFileHandler().downloadFileFromRemoteService(downloadServiceURL, localPath));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> downloadFileFromRemoteService(String downloadServiceURL, String localPath,
+                                                                         int timeoutInMS) {
+        return transfer(downloadServiceURL, localPath, localPath,
+                () -> getFileHandler().downloadFileFromRemoteService(downloadServiceURL, localPath, timeoutInMS));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> downloadFileFromRemoteService(String downloadServiceURL, String localPath,
+                                                                         int timeoutInMS, TransferOptions options) {
+        return transfer(downloadServiceURL, localPath, localPath,
+                () -> getFileHandler().downloadFileFromRemoteService(downloadServiceURL, localPath, timeoutInMS,
+                        options));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> downloadFileFromRemoteServiceInChunks(String downloadServiceURL,
+                                                                                 String localPath, int chunkCount,
+                                                                                 int timeoutInMS) {
+        return transfer(downloadServiceURL, localPath, localPath,
+                () -> getFileHandler().downloadFileFromRemoteServiceInChunks(downloadServiceURL, localPath,
+                        chunkCount, timeoutInMS));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> copyFile(String destination, String newLocation) {
+        return transfer(destination, newLocation, newLocation,
+                () -> getFileHandler().copyFile(destination, newLocation));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> copyFile(String destination, String newLocation, TransferOptions options) {
+        return transfer(destination, newLocation, newLocation,
+                () -> getFileHandler().copyFile(destination, newLocation, options));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> downloadFileFromRemoteServer(String remoteLocation, String localPath) {
+        return transfer(remoteLocation, localPath, localPath,
+                () -> getFileHandler().downloadFileFromRemoteServer(remoteLocation, localPath));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> downloadFileFromRemoteServer(String remoteLocation, String localPath,
+                                                                        TransferOptions options) {
+        return transfer(remoteLocation, localPath, localPath,
+                () -> getFileHandler().downloadFileFromRemoteServer(remoteLocation, localPath, options));
+    }
+
+    /**
+     * The shared {@link BlimpItFileHandler} is looked up per call, so that the handler keeps working after
+     * {@link BlimpItFileHandler#shutdown()} replaced it.
+     * @return
+     */
+    private FileHandler getFileHandler() {
+        return fileHandler != null ? fileHandler : BlimpItFileHandler.getInstance();
+    }
+
+    /**
+     * Runs the given operation on the executor and times it.
+     * @param source
+     * @param destination
+     * @param localPath local side of the transfer, used to find the number of bytes transferred
+     * @param operation
+     * @return
+     */
+    private CompletableFuture<TransferResult> transfer(String source, String destination, String localPath,
+                                                       BooleanSupplier operation) {
+        return CompletableFuture.supplyAsync(() -> {
+            // the executor threads are reused, so metrics left by an earlier task are dropped first
+            BlimpItFileHandler.takeLastTransferMetrics();
+            long startTime = System.nanoTime();
+            boolean success = operation.getAsBoolean();
+            long durationInMS = (System.nanoTime() - startTime) / 1000000;
+            long bytesTransferred = success ? new File(localPath).length() : 0;
+            return new TransferResult(source, destination, success, bytesTransferred, durationInMS, 1,
+                    BlimpItFileHandler.takeLastTransferMetrics());
+        }, executor);
+    }
+
+    /**
+     * A method which returns an instance running the transfers on {@link FileTransferExecutors#newDefaultExecutor()}
+     * @return
+     */
+    public static AsyncFileHandler getInstance() {
+        if (blimpItAsyncFileHandler == null) {
+            synchronized (BlimpItAsyncFileHandler.class) {
+                if (blimpItAsyncFileHandler == null) {
+                    blimpItAsyncFileHandler = new BlimpItAsyncFileHandler(FileTransferExecutors.newDefaultExecutor());
+                }
+            }
+        }
+        return blimpItAsyncFileHandler;
+    }
+}
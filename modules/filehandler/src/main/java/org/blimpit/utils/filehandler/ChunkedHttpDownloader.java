@@ -0,0 +1,322 @@
+package org.blimpit.utils.filehandler;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Downloads a file as byte ranges fetched in parallel over the shared http client.
+ * The ranges are written in place into a preallocated temporary file ({@code localPath + ".download"}),
+ * and the completed ranges are recorded in a sidecar file ({@code localPath + ".download.progress"}),
+ * so that an interrupted download only fetches the missing ranges when it is started again.
+ */
+class ChunkedHttpDownloader {
+
+    static final String DOWNLOAD_SUFFIX = ".download";
+    static final String PROGRESS_SUFFIX = ".download.progress";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CONTENT_LENGTH_KEY = "contentLength";
+    private static final String VALIDATOR_KEY = "validator";
+    private static final String CHUNK_COUNT_KEY = "chunkCount";
+    private static final String COMPLETED_CHUNKS_KEY = "completedChunks";
+
+    private final CloseableHttpClient httpClient;
+    private final BandwidthThrottle bandwidthThrottle;
+    private final int maxParallelChunks;
+
+    /**
+     * @param httpClient
+     * @param bandwidthThrottle
+     * @param maxParallelChunks upper bound of ranges fetched at the same time, usually the connections allowed per route
+     */
+    ChunkedHttpDownloader(CloseableHttpClient httpClient, BandwidthThrottle bandwidthThrottle, int maxParallelChunks) {
+        this.httpClient = httpClient;
+        this.bandwidthThrottle = bandwidthThrottle;
+        this.maxParallelChunks = Math.max(1, maxParallelChunks);
+    }
+
+    /**
+     * Probes the server and downloads the file in ranges if the server supports it.
+     * @param downloadServiceURL
+     * @param localPath
+     * @param chunkCount number of ranges, at most the max parallel chunks are fetched at the same time
+     * @param requestConfig
+     * @return true if the file was downloaded, false if the server does not support range requests
+     * @throws IOException if the download failed, the completed ranges are kept for the next attempt
+     */
+    boolean download(String downloadServiceURL, String localPath, int chunkCount, RequestConfig requestConfig)
+            throws IOException {
+        HttpHead headRequest = new HttpHead(downloadServiceURL);
+        headRequest.setConfig(requestConfig);
+        long contentLength;
+        String validator;
+        try (CloseableHttpResponse response = httpClient.execute(headRequest)) {
+            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK || !acceptsByteRanges(response)) {
+                return false;
+            }
+            Header contentLengthHeader = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+            contentLength = contentLengthHeader == null ? -1 : Long.parseLong(contentLengthHeader.getValue().trim());
+            validator = getValidator(response);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (contentLength <= 0) {
+            return false;
+        }
+
+        int effectiveChunkCount = (int) Math.max(1, Math.min(chunkCount, contentLength));
+        File dataFile = new File(localPath + DOWNLOAD_SUFFIX);
+        File progressFile = new File(localPath + PROGRESS_SUFFIX);
+        DownloadProgress progress = DownloadProgress.load(progressFile, contentLength, validator, effectiveChunkCount);
+        if (progress == null || !dataFile.exists()) {
+            progress = new DownloadProgress(progressFile, contentLength, validator, effectiveChunkCount);
+        }
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(dataFile, "rw")) {
+            randomAccessFile.setLength(contentLength);
+            progress.save();
+            fetchMissingChunks(downloadServiceURL, requestConfig, randomAccessFile.getChannel(), progress);
+        }
+        Files.move(dataFile.toPath(), new File(localPath).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(progressFile.toPath());
+        return true;
+    }
+
+    private void fetchMissingChunks(String downloadServiceURL, RequestConfig requestConfig, FileChannel channel,
+                                    DownloadProgress progress) throws IOException {
+        List<Integer> missingChunks = progress.getMissingChunks();
+        if (missingChunks.isEmpty()) {
+            return;
+        }
+        // more threads than pooled connections per route would only wait for a connection
+        ExecutorService executor = FileTransferExecutors.newPlatformThreadExecutor(
+                Math.min(missingChunks.size(), maxParallelChunks));
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int chunk : missingChunks) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        fetchChunk(downloadServiceURL, requestConfig, channel, progress, chunk);
+                        // the range has to be on disk before the sidecar claims it
+                        channel.force(false);
+                        progress.markCompleted(chunk);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Fetches a single range and writes it at its position in the file.
+     */
+    private void fetchChunk(String downloadServiceURL, RequestConfig requestConfig, FileChannel channel,
+                            DownloadProgress progress, int chunk) throws IOException {
+        long start = progress.getChunkStart(chunk);
+        long end = progress.getChunkEnd(chunk);
+        HttpGet getRequest = new HttpGet(downloadServiceURL);
+        getRequest.setConfig(requestConfig);
+        getRequest.setHeader(HttpHeaders.RANGE, "bytes=" + start + "-" + end);
+        if (progress.getValidator() != null) {
+            getRequest.setHeader(HttpHeaders.IF_RANGE, progress.getValidator());
+        }
+        try (CloseableHttpResponse response = httpClient.execute(getRequest)) {
+            HttpEntity entity = response.getEntity();
+            try {
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (statusCode != HttpStatus.SC_PARTIAL_CONTENT) {
+                    if (statusCode == HttpStatus.SC_OK) {
+                        // the file changed on the server or the range was ignored, the completed ranges cannot be trusted
+                        progress.discard();
+                    }
+                    throw new IOException("Expected a partial content response for range " + start + "-" + end
+                            + " but received " + response.getStatusLine());
+                }
+                long position = start;
+                byte[] buffer = new byte[BUFFER_SIZE];
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+                try (InputStream inputStream = bandwidthThrottle.forLocation(downloadServiceURL)
+                        .wrap(entity.getContent())) {
+                    int read;
+                    while (position <= end && (read = inputStream.read(buffer)) != -1) {
+                        byteBuffer.clear().limit((int) Math.min(read, end - position + 1));
+                        while (byteBuffer.hasRemaining()) {
+                            position += channel.write(byteBuffer, position);
+                        }
+                    }
+                }
+                if (position != end + 1) {
+                    throw new IOException("Range " + start + "-" + end + " ended at " + position);
+                }
+            } finally {
+                EntityUtils.consumeQuietly(entity);
+            }
+        }
+    }
+
+    private static boolean acceptsByteRanges(CloseableHttpResponse response) {
+        Header acceptRanges = response.getFirstHeader(HttpHeaders.ACCEPT_RANGES);
+        return acceptRanges != null && acceptRanges.getValue().trim().equalsIgnoreCase("bytes");
+    }
+
+    /**
+     * A strong ETag, or else the Last-Modified date, used to detect a file changing between attempts
+     */
+    private static String getValidator(CloseableHttpResponse response) {
+        Header eTag = response.getFirstHeader(HttpHeaders.ETAG);
+        if (eTag != null && !eTag.getValue().startsWith("W/")) {
+            return eTag.getValue();
+        }
+        Header lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+        return lastModified == null ? null : lastModified.getValue();
+    }
+
+    /**
+     * The sidecar recording which ranges of a download are already on disk
+     */
+    static class DownloadProgress {
+
+        private final File progressFile;
+        private final long contentLength;
+        private final String validator;
+        private final int chunkCount;
+        private final long chunkSize;
+        private final BitSet completedChunks = new BitSet();
+        private boolean discarded;
+
+        DownloadProgress(File progressFile, long contentLength, String validator, int chunkCount) {
+            this.progressFile = progressFile;
+            this.contentLength = contentLength;
+            this.validator = validator;
+            this.chunkCount = chunkCount;
+            this.chunkSize = (contentLength + chunkCount - 1) / chunkCount;
+        }
+
+        /**
+         * Loads the progress of an earlier attempt, if it was for the same version of the file and the same chunking
+         * @return the progress or null if there is no usable progress
+         */
+        static DownloadProgress load(File progressFile, long contentLength, String validator, int chunkCount) {
+            if (!progressFile.isFile()) {
+                return null;
+            }
+            Properties properties = new Properties();
+            try (InputStream inputStream = new FileInputStream(progressFile)) {
+                properties.load(inputStream);
+                String savedValidator = properties.getProperty(VALIDATOR_KEY);
+                if (Long.parseLong(properties.getProperty(CONTENT_LENGTH_KEY)) != contentLength
+                        || Integer.parseInt(properties.getProperty(CHUNK_COUNT_KEY)) != chunkCount
+                        || !Objects.equals(savedValidator, validator)) {
+                    return null;
+                }
+                DownloadProgress progress = new DownloadProgress(progressFile, contentLength, validator, chunkCount);
+                String completedChunks = properties.getProperty(COMPLETED_CHUNKS_KEY, "");
+                for (String chunk : completedChunks.split(",")) {
+                    if (!chunk.isEmpty()) {
+                        progress.completedChunks.set(Integer.parseInt(chunk));
+                    }
+                }
+                return progress;
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        long getChunkStart(int chunk) {
+            return chunk * chunkSize;
+        }
+
+        long getChunkEnd(int chunk) {
+            return Math.min(contentLength, (chunk + 1) * chunkSize) - 1;
+        }
+
+        String getValidator() {
+            return validator;
+        }
+
+        synchronized List<Integer> getMissingChunks() {
+            List<Integer> missingChunks = new ArrayList<>();
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                if (!completedChunks.get(chunk) && getChunkStart(chunk) < contentLength) {
+                    missingChunks.add(chunk);
+                }
+            }
+            return missingChunks;
+        }
+
+        synchronized void markCompleted(int chunk) throws IOException {
+            if (discarded) {
+                return;
+            }
+            completedChunks.set(chunk);
+            save();
+        }
+
+        synchronized void discard() throws IOException {
+            discarded = true;
+            completedChunks.clear();
+            Files.deleteIfExists(progressFile.toPath());
+        }
+
+        /**
+         * Writes the sidecar to a temporary file first, so that a crash never leaves a half written sidecar
+         */
+        synchronized void save() throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty(CONTENT_LENGTH_KEY, Long.toString(contentLength));
+            properties.setProperty(CHUNK_COUNT_KEY, Integer.toString(chunkCount));
+            if (validator != null) {
+                properties.setProperty(VALIDATOR_KEY, validator);
+            }
+            StringBuilder completed = new StringBuilder();
+            for (int chunk = completedChunks.nextSetBit(0); chunk >= 0; chunk = completedChunks.nextSetBit(chunk + 1)) {
+                if (completed.length() > 0) {
+                    completed.append(',');
+                }
+                completed.append(chunk);
+            }
+            properties.setProperty(COMPLETED_CHUNKS_KEY, completed.toString());
+            File temporaryFile = new File(progressFile.getPath() + ".tmp");
+            try (OutputStream outputStream = new FileOutputStream(temporaryFile)) {
+                properties.store(outputStream, null);
+            }
+            Files.move(temporaryFile.toPath(), progressFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
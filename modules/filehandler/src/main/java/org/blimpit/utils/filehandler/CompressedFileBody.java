@@ -0,0 +1,72 @@
+package org.blimpit.utils.filehandler;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.entity.mime.content.FileBody;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+/**
+ * A multipart file body which compresses the file with the codec of the options while it is written, so that neither
+ * the compressed file nor its content is ever held on disk or in memory. The length of the compressed content is not
+ * known in advance, so the request is sent with chunked transfer encoding.
+ */
+class CompressedFileBody extends FileBody {
+
+    private final TransferOptions options;
+    private final MessageDigest digest;
+
+    /**
+     * @param file
+     * @param options
+     * @param digest if not null, updated with the uncompressed content of the file while it is written
+     */
+    CompressedFileBody(File file, TransferOptions options, MessageDigest digest) {
+        super(file, ContentType.DEFAULT_BINARY, options.getCompression().appendFileSuffix(file.getName()));
+        this.options = options;
+        this.digest = digest;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (digest != null) {
+            // a retried request writes the body again
+            digest.reset();
+        }
+        // closing the compressing stream finishes the compressed data, the request stream is closed by the client
+        try (FileInputStream fileInputStream = new FileInputStream(getFile());
+             OutputStream compressingStream = options.getCompression().compress(
+                     new CloseShieldOutputStream(outputStream), options.getCompressionLevel())) {
+            NioTransfers.copy(fileInputStream.getChannel(), compressingStream, options, digest);
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * A multipart entity holding a {@link CompressedFileBody}. A multipart entity of unknown length reports itself as
+     * not repeatable, but the compressed body is written again from the file on every attempt, so the request
+     * can still be retried if a pooled connection turns out to be stale.
+     */
+    static class RepeatableMultipartEntity extends HttpEntityWrapper {
+
+        RepeatableMultipartEntity(HttpEntity multipartEntity) {
+            super(multipartEntity);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.blimpit.utils.filehandler;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The codecs used to compress uploads on the fly and to decompress downloads while they are written to disk.
+ * A compressed file is named with the suffix of its codec, which is how a download recognizes it.
+ */
+public enum CompressionCodec {
+
+    NONE("", "identity") {
+        @Override
+        public OutputStream compress(OutputStream outputStream, int level) {
+            return outputStream;
+        }
+
+        @Override
+        public InputStream decompress(InputStream inputStream) {
+            return inputStream;
+        }
+    },
+
+    /**
+     * Gzip, understood by every http server and client. Levels range from 1 (fastest) to 9 (smallest).
+     */
+    GZIP(".gz", "gzip") {
+        @Override
+        public OutputStream compress(OutputStream outputStream, int level) throws IOException {
+            checkLevel(level, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION);
+            return new LeveledGZIPOutputStream(outputStream, level);
+        }
+
+        @Override
+        public InputStream decompress(InputStream inputStream) throws IOException {
+            return new GZIPInputStream(inputStream, STREAM_BUFFER_SIZE);
+        }
+    },
+
+    /**
+     * LZ4 frames, several times faster than gzip at a lower ratio, for links fast enough that gzip is the bottleneck.
+     * The default level uses the fast compressor, levels from 1 to 17 use the high compression one.
+     */
+    LZ4(".lz4", "lz4") {
+        @Override
+        public OutputStream compress(OutputStream outputStream, int level) throws IOException {
+            checkLevel(level, 1, LZ4_MAX_LEVEL);
+            LZ4Factory factory = LZ4Factory.fastestInstance();
+            LZ4Compressor compressor = level > 0 ? factory.highCompressor(level) : factory.fastCompressor();
+            return new LZ4FrameOutputStream(outputStream, LZ4FrameOutputStream.BLOCKSIZE.SIZE_256KB, -1L, compressor,
+                    XXHashFactory.fastestInstance().hash32(), LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE);
+        }
+
+        @Override
+        public InputStream decompress(InputStream inputStream) throws IOException {
+            return new LZ4FrameInputStream(inputStream);
+        }
+    };
+
+    /**
+     * Level which lets the codec choose its own balance of speed and ratio
+     */
+    public static final int DEFAULT_LEVEL = -1;
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int LZ4_MAX_LEVEL = 17;
+
+    private final String fileSuffix;
+    private final String contentEncoding;
+
+    CompressionCodec(String fileSuffix, String contentEncoding) {
+        this.fileSuffix = fileSuffix;
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * Wraps the stream so that the bytes written to the returned stream are compressed.
+     * Closing the returned stream finishes the compressed data and closes the given stream.
+     * @param outputStream
+     * @param level the compression level, or {@link #DEFAULT_LEVEL}
+     * @return
+     * @throws IOException also if the level is not supported by the codec
+     */
+    public abstract OutputStream compress(OutputStream outputStream, int level) throws IOException;
+
+    /**
+     * Wraps the stream so that the bytes read from the returned stream are decompressed
+     * @param inputStream
+     * @return
+     * @throws IOException
+     */
+    public abstract InputStream decompress(InputStream inputStream) throws IOException;
+
+    public String getFileSuffix() {
+        return fileSuffix;
+    }
+
+    /**
+     * Value of the Content-Encoding header of content compressed with this codec
+     * @return
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Appends the suffix of the codec to the file name, unless the name already ends with it
+     * @param fileName
+     * @return
+     */
+    public String appendFileSuffix(String fileName) {
+        return fileName.toLowerCase().endsWith(fileSuffix) ? fileName : fileName + fileSuffix;
+    }
+
+    /**
+     * Returns the codec whose suffix the file name ends with
+     * @param fileName
+     * @return the codec, or {@link #NONE} if the name has no known suffix
+     */
+    public static CompressionCodec fromFileName(String fileName) {
+        String lowerCaseName = fileName.toLowerCase();
+        for (CompressionCodec codec : values()) {
+            if (codec != NONE && lowerCaseName.endsWith(codec.fileSuffix)) {
+                return codec;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the codec of the given Content-Encoding header value
+     * @param contentEncoding
+     * @return the codec, or {@link #NONE} if the encoding is null or unknown
+     */
+    public static CompressionCodec fromContentEncoding(String contentEncoding) {
+        if (contentEncoding != null) {
+            for (CompressionCodec codec : values()) {
+                if (codec.contentEncoding.equalsIgnoreCase(contentEncoding.trim())) {
+                    return codec;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Rejects a level the codec does not support as an IOException, so that it fails the transfer like any other error
+     */
+    private static void checkLevel(int level, int minLevel, int maxLevel) throws IOException {
+        if (level != DEFAULT_LEVEL && (level < minLevel || level > maxLevel)) {
+            throw new IOException("Unsupported compression level " + level + ", expected " + minLevel + " to "
+                    + maxLevel + " or " + DEFAULT_LEVEL);
+        }
+    }
+
+    /**
+     * GZIPOutputStream always deflates at the default level, the deflater it creates can only be tuned by a subclass
+     */
+    private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+
+        LeveledGZIPOutputStream(OutputStream outputStream, int level) throws IOException {
+            super(outputStream, STREAM_BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.blimpit.utils.filehandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helpers for the content digests computed while files are transferred.
+ */
+final class ContentDigests {
+
+    /**
+     * Algorithm of the digests kept by the {@link DeduplicationIndex}
+     */
+    static final String DEDUPLICATION_ALGORITHM = "SHA-256";
+
+    private ContentDigests() {
+
+    }
+
+    static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE is required to support MD5 and SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Feeds the first bytes of a file to the digest, for transfers which only stream the rest of the file
+     * @param digest
+     * @param fileChannel
+     * @param length
+     * @throws IOException
+     */
+    static void update(MessageDigest digest, FileChannel fileChannel, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, 64 * 1024));
+        long position = 0;
+        while (position < length) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), length - position));
+            int read = fileChannel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            digest.update(buffer.array(), 0, read);
+            position += read;
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,263 @@
+package org.blimpit.utils.filehandler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent index of the content digests of uploaded files, used to skip uploads of unchanged content.
+ * It maps a local file (path, size and modification time) to the SHA-256 digest of its content, and a digest to the
+ * destinations already holding that content.
+ * <p>
+ * The index is kept in memory and every change is appended to a journal file, which is compacted when the index is
+ * opened. A single instance can be shared by any number of concurrent transfers; the journal file must not be
+ * opened by more than one instance at a time.
+ */
+public class DeduplicationIndex {
+
+    private static final String FILE_RECORD = "F";
+    private static final String DESTINATION_RECORD = "D";
+    private static final String REMOVED_DESTINATION_RECORD = "R";
+    private static final String SEPARATOR = "\t";
+
+    private final Path journalFile;
+    private final Map<String, FileDigest> fileDigests = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> destinations = new ConcurrentHashMap<>();
+    private final Object journalLock = new Object();
+    private Writer journalWriter;
+
+    /**
+     * Opens the index kept in the given journal file, creating the file if it does not exist
+     * @param journalFile
+     * @throws IOException
+     */
+    public DeduplicationIndex(Path journalFile) throws IOException {
+        this.journalFile = journalFile;
+        if (Files.exists(journalFile)) {
+            load();
+        } else if (journalFile.getParent() != null) {
+            Files.createDirectories(journalFile.getParent());
+        }
+        compact();
+    }
+
+    /**
+     * Returns the digest recorded for the file, if the file has not changed since it was recorded
+     * @param file
+     * @return the digest in hex or null if the file is unknown or has changed
+     */
+    public String getDigest(File file) {
+        FileDigest fileDigest = fileDigests.get(file.getAbsolutePath());
+        if (fileDigest == null || fileDigest.size != file.length() || fileDigest.lastModified != file.lastModified()) {
+            return null;
+        }
+        return fileDigest.digest;
+    }
+
+    /**
+     * Returns true if content with the given digest was uploaded to the given destination
+     * @param digest
+     * @param destination
+     * @return
+     */
+    public boolean isStoredAt(String digest, String destination) {
+        Set<String> digestDestinations = destinations.get(digest);
+        return digestDestinations != null && digestDestinations.contains(normalizeDestination(destination));
+    }
+
+    /**
+     * Records that the file, with the given size and modification time, has the given digest
+     * and that its content is now held by the destination
+     * @param file
+     * @param size size of the file when the digest was computed
+     * @param lastModified modification time of the file when the digest was computed
+     * @param digest
+     * @param destination
+     * @throws IOException
+     */
+    public void record(File file, long size, long lastModified, String digest, String destination) throws IOException {
+        String path = file.getAbsolutePath();
+        String normalizedDestination = normalizeDestination(destination);
+        synchronized (journalLock) {
+            FileDigest fileDigest = new FileDigest(size, lastModified, digest);
+            if (!fileDigest.equals(fileDigests.put(path, fileDigest))) {
+                appendToJournal(FILE_RECORD, path, Long.toString(size), Long.toString(lastModified), digest);
+            }
+            if (destinations.computeIfAbsent(digest, key -> ConcurrentHashMap.newKeySet()).add(normalizedDestination)) {
+                appendToJournal(DESTINATION_RECORD, digest, normalizedDestination);
+            }
+        }
+    }
+
+    /**
+     * Forgets that content with the given digest is held by the destination, so that it is transferred again
+     * @param digest
+     * @param destination
+     * @throws IOException
+     */
+    public void remove(String digest, String destination) throws IOException {
+        String normalizedDestination = normalizeDestination(destination);
+        synchronized (journalLock) {
+            Set<String> digestDestinations = destinations.get(digest);
+            if (digestDestinations != null && digestDestinations.remove(normalizedDestination)) {
+                appendToJournal(REMOVED_DESTINATION_RECORD, digest, normalizedDestination);
+            }
+        }
+    }
+
+    /**
+     * Closes the journal file
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        synchronized (journalLock) {
+            if (journalWriter != null) {
+                journalWriter.close();
+                journalWriter = null;
+            }
+        }
+    }
+
+    /**
+     * Rewrites the journal with the current content of the index, dropping the superseded records
+     */
+    private void compact() throws IOException {
+        synchronized (journalLock) {
+            close();
+            Path temporaryFile = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, FileDigest> entry : fileDigests.entrySet()) {
+                    FileDigest fileDigest = entry.getValue();
+                    writeRecord(writer, FILE_RECORD, entry.getKey(), Long.toString(fileDigest.size),
+                            Long.toString(fileDigest.lastModified), fileDigest.digest);
+                }
+                for (Map.Entry<String, Set<String>> entry : destinations.entrySet()) {
+                    for (String destination : entry.getValue()) {
+                        writeRecord(writer, DESTINATION_RECORD, entry.getKey(), destination);
+                    }
+                }
+            }
+            Files.move(temporaryFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journalWriter = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+    }
+
+    private void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR);
+                try {
+                    if (fields[0].equals(FILE_RECORD) && fields.length == 5) {
+                        fileDigests.put(decode(fields[1]), new FileDigest(Long.parseLong(fields[2]),
+                                Long.parseLong(fields[3]), fields[4]));
+                    } else if (fields[0].equals(DESTINATION_RECORD) && fields.length == 3) {
+                        destinations.computeIfAbsent(fields[1], key -> ConcurrentHashMap.newKeySet())
+                                .add(decode(fields[2]));
+                    } else if (fields[0].equals(REMOVED_DESTINATION_RECORD) && fields.length == 3) {
+                        Set<String> digestDestinations = destinations.get(fields[1]);
+                        if (digestDestinations != null) {
+                            digestDestinations.remove(decode(fields[2]));
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    // a record cut short by a crash, the transfer is simply not skipped next time
+                }
+            }
+        }
+    }
+
+    private void appendToJournal(String... fields) throws IOException {
+        if (journalWriter == null) {
+            journalWriter = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        }
+        writeRecord(journalWriter, fields);
+        journalWriter.flush();
+    }
+
+    private static void writeRecord(Writer writer, String... fields) throws IOException {
+        StringBuilder record = new StringBuilder(fields[0]);
+        for (int i = 1; i < fields.length; i++) {
+            record.append(SEPARATOR).append(encode(fields[i]));
+        }
+        writer.write(record.append('\n').toString());
+    }
+
+    /**
+     * Drops the password of an ftp url, so that credentials are never written to the journal
+     */
+    static String normalizeDestination(String destination) {
+        int schemeEnd = destination.indexOf("://");
+        int userInfoEnd = destination.indexOf('@');
+        if (schemeEnd < 0 || userInfoEnd < schemeEnd) {
+            return destination;
+        }
+        String userInfo = destination.substring(schemeEnd + 3, userInfoEnd);
+        int passwordStart = userInfo.indexOf(':');
+        if (passwordStart < 0) {
+            return destination;
+        }
+        return destination.substring(0, schemeEnd + 3) + userInfo.substring(0, passwordStart)
+                + destination.substring(userInfoEnd);
+    }
+
+    private static String encode(String field) {
+        try {
+            return URLEncoder.encode(field, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(String field) {
+        try {
+            return URLDecoder.decode(field, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class FileDigest {
+
+        private final long size;
+        private final long lastModified;
+        private final String digest;
+
+        private FileDigest(long size, long lastModified, String digest) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileDigest that = (FileDigest) o;
+            return size == that.size && lastModified == that.lastModified && digest.equals(that.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return digest.hashCode();
+        }
+    }
+}
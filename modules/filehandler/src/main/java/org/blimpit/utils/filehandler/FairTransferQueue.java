@@ -0,0 +1,66 @@
+package org.blimpit.utils.filehandler;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The pending transfers of a batch, grouped into small, medium and large ones by the size of their files.
+ * Transfers are taken from the groups in turn and in order within a group, so the transfers of every size class
+ * make progress however many transfers of another class are queued before them.
+ * @param <T> the type of the queued transfers
+ */
+class FairTransferQueue<T> {
+
+    /**
+     * Size of a transfer whose file size is not known
+     */
+    static final long UNKNOWN_SIZE = -1;
+
+    private static final int SMALL = 0;
+    private static final int MEDIUM = 1;
+    private static final int LARGE = 2;
+
+    private final Deque<T>[] sizeClasses;
+    private final long smallTransferMaxBytes;
+    private final long largeTransferMinBytes;
+    private int nextSizeClass;
+
+    @SuppressWarnings("unchecked")
+    FairTransferQueue(BatchTransferConfig config) {
+        this.sizeClasses = new Deque[] {new ArrayDeque<T>(), new ArrayDeque<T>(), new ArrayDeque<T>()};
+        this.smallTransferMaxBytes = config.getSmallTransferMaxBytes();
+        this.largeTransferMinBytes = config.getLargeTransferMinBytes();
+    }
+
+    /**
+     * @param transfer
+     * @param size size of the file of the transfer, or {@link #UNKNOWN_SIZE}
+     */
+    synchronized void add(T transfer, long size) {
+        sizeClasses[getSizeClass(size)].addLast(transfer);
+    }
+
+    /**
+     * @return the next transfer, or null if the queue is empty
+     */
+    synchronized T poll() {
+        for (int i = 0; i < sizeClasses.length; i++) {
+            Deque<T> sizeClass = sizeClasses[nextSizeClass];
+            nextSizeClass = (nextSizeClass + 1) % sizeClasses.length;
+            if (!sizeClass.isEmpty()) {
+                return sizeClass.pollFirst();
+            }
+        }
+        return null;
+    }
+
+    private int getSizeClass(long size) {
+        if (size == UNKNOWN_SIZE) {
+            return MEDIUM;
+        }
+        if (size <= smallTransferMaxBytes) {
+            return SMALL;
+        }
+        return size >= largeTransferMinBytes ? LARGE : MEDIUM;
+    }
+}
@@ -23,6 +23,18 @@ public interface FileHandler {
    */
   boolean uploadFileToService(String sourcePath, String serviceURL, int timeoutInMS, String multipartName);
 
+  /**
+   * Upload file to a given web service. Uploads the file as multipart/form-data.
+   * @param sourcePath
+   * @param serviceURL
+   * @param timeoutInMS timeout in milliseconds, this value will be set to connection, socket and connection manager timeouts
+   * @param multipartName multipart name for the file to be uploaded
+   * @param options settings of the transfer
+   * @return status of the uploading
+   */
+  boolean uploadFileToService(String sourcePath, String serviceURL, int timeoutInMS, String multipartName,
+                              TransferOptions options);
+
   /**
      * Upload file to a local destination
      * @param sourcePath
@@ -39,6 +51,15 @@ public interface FileHandler {
    */
   boolean uploadFileToaRemoteServer(String sourcePath, String destination);
 
+  /**
+   * Upload file to a remote location
+   * @param sourcePath
+   * @param destination
+   * @param options settings of the transfer
+   * @return status of the file uploading
+   */
+  boolean uploadFileToaRemoteServer(String sourcePath, String destination, TransferOptions options);
+
     /**
      * Download file from remote location by calling remote web service
      * @param downloadServiceURL
@@ -56,6 +77,30 @@ public interface FileHandler {
    */
   boolean downloadFileFromRemoteService(String downloadServiceURL, String localPath, int timeoutInMS);
 
+  /**
+   * Download file from remote location by calling remote web service
+   * @param downloadServiceURL
+   * @param localPath
+   * @param timeoutInMS timeout in milliseconds, this value will be set to connection, socket and connection manager timeouts
+   * @param options settings of the transfer
+   * @return status of the file downloading
+   */
+  boolean downloadFileFromRemoteService(String downloadServiceURL, String localPath, int timeoutInMS,
+                                        TransferOptions options);
+
+  /**
+   * Download file from remote location by calling remote web service, fetching byte ranges of the file in parallel.
+   * The completed ranges are kept if the download fails, so calling this again resumes the download.
+   * Falls back to a single stream download if the service does not support range requests.
+   * @param downloadServiceURL
+   * @param localPath
+   * @param chunkCount number of ranges fetched in parallel
+   * @param timeoutInMS timeout in milliseconds, this value will be set to connection, socket and connection manager timeouts
+   * @return status of the file downloading
+   */
+  boolean downloadFileFromRemoteServiceInChunks(String downloadServiceURL, String localPath, int chunkCount,
+                                                int timeoutInMS);
+
   /**
      * Copy file from one location to another location locally
      * @param destination
@@ -64,6 +109,15 @@ public interface FileHandler {
      */
   boolean copyFile(String destination, String newLocation);
 
+  /**
+   * Copy file from one location to another location locally
+   * @param destination
+   * @param newLocation
+   * @param options settings of the transfer
+   * @return status of the file copying
+   */
+  boolean copyFile(String destination, String newLocation, TransferOptions options);
+
 
     /***
      * Download file from remote server
@@ -72,4 +126,13 @@ public interface FileHandler {
      * @return status of the file downloading
      */
   boolean downloadFileFromRemoteServer(String remotelocation, String localPath);
+
+  /***
+   * Download file from remote server
+   * @param remotelocation
+   * @param localPath
+   * @param options settings of the transfer
+   * @return status of the file downloading
+   */
+  boolean downloadFileFromRemoteServer(String remotelocation, String localPath, TransferOptions options);
 }
@@ -0,0 +1,90 @@
+package org.blimpit.utils.filehandler;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory methods for the executors which run file transfers.
+ */
+public final class FileTransferExecutors {
+
+    /**
+     * Number of platform threads used for transfers when virtual threads are not available
+     */
+    public static final int DEFAULT_PLATFORM_THREAD_COUNT = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+    private FileTransferExecutors() {
+
+    }
+
+    /**
+     * Returns an executor which starts a virtual thread per transfer when the JDK supports them (JDK 21+),
+     * otherwise a fixed pool of {@link #DEFAULT_PLATFORM_THREAD_COUNT} daemon threads.
+     * @return
+     */
+    public static ExecutorService newDefaultExecutor() {
+        ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+        if (virtualThreadExecutor != null) {
+            return virtualThreadExecutor;
+        }
+        return newPlatformThreadExecutor(DEFAULT_PLATFORM_THREAD_COUNT);
+    }
+
+    /**
+     * Returns a fixed pool of daemon threads.
+     * @param threadCount
+     * @return
+     */
+    public static ExecutorService newPlatformThreadExecutor(int threadCount) {
+        return Executors.newFixedThreadPool(threadCount, newDaemonThreadFactory("blimpit-file-transfer-"));
+    }
+
+    /**
+     * Returns true if virtual threads are supported by the running JDK.
+     * @return
+     */
+    public static boolean isVirtualThreadSupported() {
+        return getVirtualThreadExecutorFactory() != null;
+    }
+
+    /**
+     * Returns a thread factory creating daemon threads with the given name prefix
+     * @param namePrefix
+     * @return
+     */
+    static ThreadFactory newDaemonThreadFactory(String namePrefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Looked up reflectively so that the module still builds and runs on JDK 8.
+     * @return
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        Method factory = getVirtualThreadExecutorFactory();
+        if (factory == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static Method getVirtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.blimpit.utils.filehandler;
+
+/**
+ * Settings of the pool of logged in ftp sessions kept by the {@link BlimpItFileHandler} instance.
+ */
+public class FtpClientPoolConfig {
+
+    public static final int DEFAULT_MAX_SESSIONS_PER_KEY = 8;
+    public static final long DEFAULT_MAX_IDLE_TIME_IN_MS = 60000;
+    public static final long DEFAULT_BORROW_TIMEOUT_IN_MS = 30000;
+    public static final long DEFAULT_VALIDATE_AFTER_INACTIVITY_IN_MS = 0;
+    public static final long DEFAULT_EVICTION_INTERVAL_IN_MS = 30000;
+
+    private int maxSessionsPerKey = DEFAULT_MAX_SESSIONS_PER_KEY;
+    private long maxIdleTimeInMS = DEFAULT_MAX_IDLE_TIME_IN_MS;
+    private long borrowTimeoutInMS = DEFAULT_BORROW_TIMEOUT_IN_MS;
+    private long validateAfterInactivityInMS = DEFAULT_VALIDATE_AFTER_INACTIVITY_IN_MS;
+    private long evictionIntervalInMS = DEFAULT_EVICTION_INTERVAL_IN_MS;
+
+    /**
+     * Maximum number of sessions, idle or in use, for a single host, port and user
+     * @return
+     */
+    public int getMaxSessionsPerKey() {
+        return maxSessionsPerKey;
+    }
+
+    public FtpClientPoolConfig setMaxSessionsPerKey(int maxSessionsPerKey) {
+        this.maxSessionsPerKey = maxSessionsPerKey;
+        return this;
+    }
+
+    /**
+     * Sessions idle for longer than this are logged out and closed
+     * @return
+     */
+    public long getMaxIdleTimeInMS() {
+        return maxIdleTimeInMS;
+    }
+
+    public FtpClientPoolConfig setMaxIdleTimeInMS(long maxIdleTimeInMS) {
+        this.maxIdleTimeInMS = maxIdleTimeInMS;
+        return this;
+    }
+
+    /**
+     * Maximum time to wait for a session when all the sessions of the key are in use
+     * @return
+     */
+    public long getBorrowTimeoutInMS() {
+        return borrowTimeoutInMS;
+    }
+
+    public FtpClientPoolConfig setBorrowTimeoutInMS(long borrowTimeoutInMS) {
+        this.borrowTimeoutInMS = borrowTimeoutInMS;
+        return this;
+    }
+
+    /**
+     * Idle sessions are checked with a NOOP before being reused if they have been idle for longer than this.
+     * 0 checks every reused session.
+     * @return
+     */
+    public long getValidateAfterInactivityInMS() {
+        return validateAfterInactivityInMS;
+    }
+
+    public FtpClientPoolConfig setValidateAfterInactivityInMS(long validateAfterInactivityInMS) {
+        this.validateAfterInactivityInMS = validateAfterInactivityInMS;
+        return this;
+    }
+
+    /**
+     * How often the background thread looks for sessions idle for longer than the max idle time
+     * @return
+     */
+    public long getEvictionIntervalInMS() {
+        return evictionIntervalInMS;
+    }
+
+    public FtpClientPoolConfig setEvictionIntervalInMS(long evictionIntervalInMS) {
+        this.evictionIntervalInMS = evictionIntervalInMS;
+        return this;
+    }
+}
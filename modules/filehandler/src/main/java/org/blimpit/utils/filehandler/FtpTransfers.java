@@ -0,0 +1,299 @@
+package org.blimpit.utils.filehandler;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+/**
+ * The ftp upload and download routines used by {@link BlimpItFileHandler} on a logged in session.
+ * With {@link TransferOptions#isResume()} an upload continues from the size of the remote file with APPE
+ * and a download continues from the size of the local file with REST, and the sizes are compared at the end.
+ * Compressed uploads and decompressed downloads are streamed through the codec and always start from the beginning.
+ */
+final class FtpTransfers {
+
+    /**
+     * Extension command (RFC 3659) replying with the size of a file
+     */
+    static final String SIZE_COMMAND = "SIZE";
+
+    /**
+     * Non standard command supported by several servers, replying with the MD5 digest of a file
+     */
+    static final String MD5_COMMAND = "XMD5";
+
+    private static final int MD5_BUFFER_SIZE = 64 * 1024;
+
+    private FtpTransfers() {
+
+    }
+
+    /**
+     * Uploads the file to the given remote path
+     * @param ftpClient
+     * @param remotePath
+     * @param fileInputStream
+     * @param options
+     * @param digest if not null, updated with the content of the file while it is uploaded
+     * @param streams wraps the streams carrying the file, to limit their rate and count their bytes
+     * @return status of the uploading
+     * @throws IOException
+     */
+    static boolean store(FTPClient ftpClient, String remotePath, FileInputStream fileInputStream, TransferOptions options,
+                         MessageDigest digest, StreamDecorator streams) throws IOException {
+        if (options.getCompression() != CompressionCodec.NONE) {
+            return storeCompressed(ftpClient, options.getCompression().appendFileSuffix(remotePath), fileInputStream,
+                    options, digest, streams);
+        }
+        long localSize = fileInputStream.getChannel().size();
+        if (!options.isResume()) {
+            return write(ftpClient, remotePath, fileInputStream, options, false, digest, streams)
+                    && verifyChecksum(ftpClient, remotePath, fileInputStream, options);
+        }
+        ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+        try {
+            long remoteSize = getRemoteFileSize(ftpClient, remotePath);
+            // a remote file larger than the local file is not a partial upload of it
+            long offset = remoteSize > 0 && remoteSize <= localSize ? remoteSize : 0;
+            if (digest != null) {
+                // the part already on the server is not streamed again
+                ContentDigests.update(digest, fileInputStream.getChannel(), offset);
+            }
+            if (offset < localSize || localSize == 0) {
+                fileInputStream.getChannel().position(offset);
+                if (!write(ftpClient, remotePath, fileInputStream, options, offset > 0, digest, streams)) {
+                    return false;
+                }
+            }
+            return getRemoteFileSize(ftpClient, remotePath) == localSize
+                    && verifyChecksum(ftpClient, remotePath, fileInputStream, options);
+        } finally {
+            // the session goes back to the pool, the other calls expect the default file type
+            ftpClient.setFileType(FTP.ASCII_FILE_TYPE);
+        }
+    }
+
+    /**
+     * Downloads the given remote path to the local file
+     * @param ftpClient
+     * @param remotePath
+     * @param localFile
+     * @param options
+     * @param streams wraps the streams carrying the file, to limit their rate and count their bytes
+     * @return status of the downloading
+     * @throws IOException
+     */
+    static boolean retrieve(FTPClient ftpClient, String remotePath, File localFile, TransferOptions options,
+                            StreamDecorator streams) throws IOException {
+        CompressionCodec codec = options.isDecompress() ? CompressionCodec.fromFileName(remotePath) : CompressionCodec.NONE;
+        if (codec != CompressionCodec.NONE) {
+            return retrieveDecompressed(ftpClient, remotePath, localFile, codec, options, streams);
+        }
+        if (!options.isResume()) {
+            try (FileOutputStream fileOutputStream = new FileOutputStream(localFile)) {
+                if (!read(ftpClient, remotePath, fileOutputStream, options, streams)) {
+                    return false;
+                }
+            }
+            return verifyChecksum(ftpClient, remotePath, localFile, options);
+        }
+        ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+        try {
+            long remoteSize = getRemoteFileSize(ftpClient, remotePath);
+            long localSize = localFile.isFile() ? localFile.length() : 0;
+            // a local file larger than the remote file is not a partial download of it and is downloaded again
+            long offset = remoteSize < 0 || localSize <= remoteSize ? localSize : 0;
+            if (offset < remoteSize || remoteSize <= 0) {
+                try (FileOutputStream fileOutputStream = new FileOutputStream(localFile, offset > 0)) {
+                    ftpClient.setRestartOffset(offset);
+                    if (!read(ftpClient, remotePath, fileOutputStream, options, streams)) {
+                        return false;
+                    }
+                }
+            }
+            return (remoteSize < 0 || localFile.length() == remoteSize)
+                    && verifyChecksum(ftpClient, remotePath, localFile, options);
+        } finally {
+            // the session goes back to the pool, the other calls expect the default file type
+            ftpClient.setFileType(FTP.ASCII_FILE_TYPE);
+        }
+    }
+
+    /**
+     * Uploads the file compressed with the codec of the options. The compressed bytes are streamed to the data
+     * connection as they are produced.
+     */
+    private static boolean storeCompressed(FTPClient ftpClient, String remotePath, FileInputStream fileInputStream,
+                                           TransferOptions options, MessageDigest digest,
+                                           StreamDecorator streams) throws IOException {
+        ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+        try {
+            try (OutputStream outputStream = ftpClient.storeFileStream(remotePath)) {
+                if (outputStream == null) {
+                    return false;
+                }
+                try (OutputStream compressingStream = options.getCompression().compress(streams.wrap(outputStream),
+                        options.getCompressionLevel())) {
+                    NioTransfers.copy(fileInputStream.getChannel(), compressingStream, options, digest);
+                }
+            }
+            return ftpClient.completePendingCommand();
+        } finally {
+            // the session goes back to the pool, the other calls expect the default file type
+            ftpClient.setFileType(FTP.ASCII_FILE_TYPE);
+        }
+    }
+
+    /**
+     * Downloads the remote file, decompressing it with the given codec while it is written to the local file
+     */
+    private static boolean retrieveDecompressed(FTPClient ftpClient, String remotePath, File localFile,
+                                                CompressionCodec codec, TransferOptions options,
+                                                StreamDecorator streams) throws IOException {
+        ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+        try {
+            try (InputStream inputStream = ftpClient.retrieveFileStream(remotePath)) {
+                if (inputStream == null) {
+                    return false;
+                }
+                try (InputStream decompressingStream = codec.decompress(streams.wrap(inputStream));
+                     FileOutputStream fileOutputStream = new FileOutputStream(localFile)) {
+                    NioTransfers.copy(decompressingStream, fileOutputStream.getChannel(), options);
+                }
+            }
+            return ftpClient.completePendingCommand();
+        } finally {
+            // the session goes back to the pool, the other calls expect the default file type
+            ftpClient.setFileType(FTP.ASCII_FILE_TYPE);
+        }
+    }
+
+    /**
+     * Returns the size of the remote file, using SIZE if the server supports it and LIST otherwise
+     * @param ftpClient
+     * @param remotePath
+     * @return the size in bytes, or -1 if the file does not exist or its size is unknown
+     * @throws IOException
+     */
+    static long getRemoteFileSize(FTPClient ftpClient, String remotePath) throws IOException {
+        if (FTPReply.isPositiveCompletion(ftpClient.sendCommand(SIZE_COMMAND, remotePath))) {
+            try {
+                return Long.parseLong(getLastReplyToken(ftpClient));
+            } catch (NumberFormatException e) {
+                // fall back to LIST
+            }
+        }
+        FTPFile[] files = ftpClient.listFiles(remotePath);
+        if (files.length == 1 && files[0].isFile()) {
+            return files[0].getSize();
+        }
+        return -1;
+    }
+
+    private static boolean write(FTPClient ftpClient, String remotePath, FileInputStream fileInputStream,
+                                 TransferOptions options, boolean append, MessageDigest digest,
+                                 StreamDecorator streams) throws IOException {
+        if (options.getMode() != TransferMode.NIO) {
+            InputStream inputStream = streams.wrap(
+                    digest == null ? fileInputStream : new DigestInputStream(fileInputStream, digest));
+            return append ? ftpClient.appendFile(remotePath, inputStream)
+                    : ftpClient.storeFile(remotePath, inputStream);
+        }
+        int bufferSize = ftpClient.getBufferSize();
+        ftpClient.setBufferSize(options.getBufferSize());
+        try {
+            try (OutputStream outputStream = append ? ftpClient.appendFileStream(remotePath)
+                    : ftpClient.storeFileStream(remotePath)) {
+                if (outputStream == null) {
+                    return false;
+                }
+                NioTransfers.copy(fileInputStream.getChannel(), streams.wrap(outputStream), options, digest);
+            }
+            return ftpClient.completePendingCommand();
+        } finally {
+            // the session goes back to the pool, so the buffer size of the other calls must not change
+            ftpClient.setBufferSize(bufferSize);
+        }
+    }
+
+    private static boolean read(FTPClient ftpClient, String remotePath, FileOutputStream fileOutputStream,
+                                TransferOptions options, StreamDecorator streams) throws IOException {
+        if (options.getMode() != TransferMode.NIO) {
+            return ftpClient.retrieveFile(remotePath, streams.wrap(fileOutputStream));
+        }
+        int bufferSize = ftpClient.getBufferSize();
+        ftpClient.setBufferSize(options.getBufferSize());
+        try {
+            try (InputStream inputStream = ftpClient.retrieveFileStream(remotePath)) {
+                if (inputStream == null) {
+                    return false;
+                }
+                NioTransfers.copy(streams.wrap(inputStream), fileOutputStream.getChannel(), options);
+            }
+            return ftpClient.completePendingCommand();
+        } finally {
+            // the session goes back to the pool, so the buffer size of the other calls must not change
+            ftpClient.setBufferSize(bufferSize);
+        }
+    }
+
+    private static boolean verifyChecksum(FTPClient ftpClient, String remotePath, FileInputStream fileInputStream,
+                                          TransferOptions options) throws IOException {
+        if (!options.isVerifyChecksum()) {
+            return true;
+        }
+        fileInputStream.getChannel().position(0);
+        return md5Hex(fileInputStream).equalsIgnoreCase(getRemoteChecksum(ftpClient, remotePath));
+    }
+
+    private static boolean verifyChecksum(FTPClient ftpClient, String remotePath, File localFile,
+                                          TransferOptions options) throws IOException {
+        if (!options.isVerifyChecksum()) {
+            return true;
+        }
+        try (InputStream inputStream = Files.newInputStream(localFile.toPath())) {
+            return md5Hex(inputStream).equalsIgnoreCase(getRemoteChecksum(ftpClient, remotePath));
+        }
+    }
+
+    /**
+     * Returns the MD5 digest of the remote file in hex
+     * @param ftpClient
+     * @param remotePath
+     * @return the digest, or an empty string if the server does not support {@link #MD5_COMMAND}
+     * @throws IOException
+     */
+    private static String getRemoteChecksum(FTPClient ftpClient, String remotePath) throws IOException {
+        if (!FTPReply.isPositiveCompletion(ftpClient.sendCommand(MD5_COMMAND, remotePath))) {
+            return "";
+        }
+        return getLastReplyToken(ftpClient);
+    }
+
+    static String md5Hex(InputStream inputStream) throws IOException {
+        MessageDigest messageDigest = ContentDigests.newDigest("MD5");
+        byte[] buffer = new byte[MD5_BUFFER_SIZE];
+        try (DigestInputStream digestInputStream = new DigestInputStream(inputStream, messageDigest)) {
+            while (digestInputStream.read(buffer) != -1) {
+                // the digest is updated while reading
+            }
+        }
+        return ContentDigests.toHex(messageDigest.digest());
+    }
+
+    private static String getLastReplyToken(FTPClient ftpClient) {
+        String[] tokens = ftpClient.getReplyString().trim().split("\\s+");
+        return tokens[tokens.length - 1];
+    }
+}
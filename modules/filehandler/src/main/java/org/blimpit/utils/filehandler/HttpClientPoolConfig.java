@@ -0,0 +1,84 @@
+package org.blimpit.utils.filehandler;
+
+/**
+ * Settings of the pooled http client shared by the {@link BlimpItFileHandler} instance.
+ */
+public class HttpClientPoolConfig {
+
+    public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 200;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    public static final long DEFAULT_KEEP_ALIVE_IN_MS = 30000;
+    public static final long DEFAULT_MAX_IDLE_TIME_IN_MS = 60000;
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_IN_MS = 2000;
+
+    private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private long keepAliveInMS = DEFAULT_KEEP_ALIVE_IN_MS;
+    private long maxIdleTimeInMS = DEFAULT_MAX_IDLE_TIME_IN_MS;
+    private int validateAfterInactivityInMS = DEFAULT_VALIDATE_AFTER_INACTIVITY_IN_MS;
+
+    /**
+     * Maximum number of connections kept by the pool across all routes
+     * @return
+     */
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    public HttpClientPoolConfig setMaxTotalConnections(int maxTotalConnections) {
+        this.maxTotalConnections = maxTotalConnections;
+        return this;
+    }
+
+    /**
+     * Maximum number of connections kept by the pool for a single host
+     * @return
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public HttpClientPoolConfig setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        return this;
+    }
+
+    /**
+     * How long a connection is kept alive for reuse when the server does not send a Keep-Alive timeout
+     * @return
+     */
+    public long getKeepAliveInMS() {
+        return keepAliveInMS;
+    }
+
+    public HttpClientPoolConfig setKeepAliveInMS(long keepAliveInMS) {
+        this.keepAliveInMS = keepAliveInMS;
+        return this;
+    }
+
+    /**
+     * Connections idle for longer than this are evicted from the pool by a background thread
+     * @return
+     */
+    public long getMaxIdleTimeInMS() {
+        return maxIdleTimeInMS;
+    }
+
+    public HttpClientPoolConfig setMaxIdleTimeInMS(long maxIdleTimeInMS) {
+        this.maxIdleTimeInMS = maxIdleTimeInMS;
+        return this;
+    }
+
+    /**
+     * Pooled connections idle for longer than this are checked for staleness before being leased
+     * @return
+     */
+    public int getValidateAfterInactivityInMS() {
+        return validateAfterInactivityInMS;
+    }
+
+    public HttpClientPoolConfig setValidateAfterInactivityInMS(int validateAfterInactivityInMS) {
+        this.validateAfterInactivityInMS = validateAfterInactivityInMS;
+        return this;
+    }
+}
@@ -0,0 +1,116 @@
+package org.blimpit.utils.filehandler;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link TransferListener} which keeps histograms and counters of the transfers in memory, per
+ * {@link TransferOperation}. Register it with {@link BlimpItFileHandler#addTransferListener(TransferListener)}.
+ */
+public class InMemoryTransferMetrics implements TransferListener {
+
+    private final Map<TransferOperation, OperationStatistics> statistics = new EnumMap<>(TransferOperation.class);
+
+    public InMemoryTransferMetrics() {
+        for (TransferOperation operation : TransferOperation.values()) {
+            statistics.put(operation, new OperationStatistics());
+        }
+    }
+
+    @Override
+    public void onTransferFinished(TransferMetrics metrics) {
+        statistics.get(metrics.getOperation()).record(metrics);
+    }
+
+    public OperationStatistics getStatistics(TransferOperation operation) {
+        return statistics.get(operation);
+    }
+
+    /**
+     * The statistics of the transfers of one operation
+     */
+    public static class OperationStatistics {
+
+        private final Histogram durationInMS = new Histogram();
+        private final Histogram connectTimeInMS = new Histogram();
+        private final Histogram timeToFirstByteInMS = new Histogram();
+        private final Histogram bytesPerSecond = new Histogram();
+        private final LongAdder successCount = new LongAdder();
+        private final LongAdder retryCount = new LongAdder();
+        private final LongAdder bytesTransferred = new LongAdder();
+        private final Map<TransferErrorCategory, LongAdder> errorCounts = new EnumMap<>(TransferErrorCategory.class);
+
+        OperationStatistics() {
+            for (TransferErrorCategory category : TransferErrorCategory.values()) {
+                errorCounts.put(category, new LongAdder());
+            }
+        }
+
+        private void record(TransferMetrics metrics) {
+            durationInMS.record(metrics.getDurationInMS());
+            if (metrics.getConnectTimeInMS() >= 0) {
+                connectTimeInMS.record(metrics.getConnectTimeInMS());
+            }
+            if (metrics.getTimeToFirstByteInMS() >= 0) {
+                timeToFirstByteInMS.record(metrics.getTimeToFirstByteInMS());
+            }
+            retryCount.add(metrics.getRetries());
+            bytesTransferred.add(metrics.getBytesTransferred());
+            if (metrics.isSuccess()) {
+                successCount.increment();
+                bytesPerSecond.record(metrics.getBytesPerSecond());
+            } else {
+                errorCounts.get(metrics.getErrorCategory()).increment();
+            }
+        }
+
+        /**
+         * Durations of all the transfers, successful or not
+         * @return
+         */
+        public Histogram getDurationInMS() {
+            return durationInMS;
+        }
+
+        public Histogram getConnectTimeInMS() {
+            return connectTimeInMS;
+        }
+
+        public Histogram getTimeToFirstByteInMS() {
+            return timeToFirstByteInMS;
+        }
+
+        /**
+         * Average rates of the successful transfers
+         * @return
+         */
+        public Histogram getBytesPerSecond() {
+            return bytesPerSecond;
+        }
+
+        public long getSuccessCount() {
+            return successCount.sum();
+        }
+
+        public long getFailureCount() {
+            long failureCount = 0;
+            for (LongAdder errorCount : errorCounts.values()) {
+                failureCount += errorCount.sum();
+            }
+            return failureCount;
+        }
+
+        public long getErrorCount(TransferErrorCategory category) {
+            return errorCounts.get(category).sum();
+        }
+
+        public long getRetryCount() {
+            return retryCount.sum();
+        }
+
+        public long getBytesTransferred() {
+            return bytesTransferred.sum();
+        }
+    }
+}
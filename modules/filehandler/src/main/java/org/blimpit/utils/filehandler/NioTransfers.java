@@ -0,0 +1,129 @@
+package org.blimpit.utils.filehandler;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.content.FileBody;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * The channel based copy routines of {@link TransferMode#NIO}.
+ */
+final class NioTransfers {
+
+    private NioTransfers() {
+
+    }
+
+    /**
+     * Copies a local file with FileChannel.transferTo, which lets the kernel move the bytes without copying them
+     * through the heap where the platform supports it.
+     * @param source
+     * @param target
+     * @throws IOException
+     */
+    static void copyFile(Path source, Path target) throws IOException {
+        try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = sourceChannel.size();
+            long position = 0;
+            while (position < size) {
+                position += sourceChannel.transferTo(position, size - position, targetChannel);
+            }
+        }
+    }
+
+    /**
+     * Writes a stream, e.g. the content of a response, to a file channel
+     * @param inputStream
+     * @param fileChannel
+     * @param options
+     * @return number of bytes copied
+     * @throws IOException
+     */
+    static long copy(InputStream inputStream, FileChannel fileChannel, TransferOptions options) throws IOException {
+        byte[] buffer = new byte[options.getBufferSize()];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long total = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            byteBuffer.clear().limit(read);
+            while (byteBuffer.hasRemaining()) {
+                total += fileChannel.write(byteBuffer);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Writes a file channel to a stream, e.g. the data connection of an ftp upload
+     * @param fileChannel
+     * @param outputStream
+     * @param options
+     * @param digest if not null, updated with the bytes copied
+     * @return number of bytes copied
+     * @throws IOException
+     */
+    static long copy(FileChannel fileChannel, OutputStream outputStream, TransferOptions options, MessageDigest digest)
+            throws IOException {
+        byte[] buffer = new byte[options.getBufferSize()];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long total = 0;
+        int read;
+        while ((read = fileChannel.read(byteBuffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+            if (digest != null) {
+                digest.update(buffer, 0, read);
+            }
+            total += read;
+            byteBuffer.clear();
+        }
+        return total;
+    }
+
+    /**
+     * A multipart file body which reads the file through a channel with a large buffer,
+     * instead of the 4 KB buffer of {@link FileBody}. Still repeatable, as it reopens the file on every write.
+     */
+    static class FileChannelBody extends FileBody {
+
+        private final TransferOptions options;
+        private final MessageDigest digest;
+
+        FileChannelBody(File file, TransferOptions options) {
+            this(file, options, null);
+        }
+
+        /**
+         * @param file
+         * @param options
+         * @param digest if not null, updated with the content of the file while it is written
+         */
+        FileChannelBody(File file, TransferOptions options, MessageDigest digest) {
+            super(file, ContentType.DEFAULT_BINARY, file.getName());
+            this.options = options;
+            this.digest = digest;
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            if (digest != null) {
+                // a retried request writes the body again
+                digest.reset();
+            }
+            try (FileInputStream fileInputStream = new FileInputStream(getFile())) {
+                copy(fileInputStream.getChannel(), outputStream, options, digest);
+            }
+            outputStream.flush();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.blimpit.utils.filehandler;
+
+/**
+ * Receives the progress of a long transfer, see {@link TransferOptions#setProgressListener(ProgressListener)}.
+ * It is called on the thread running the transfer, so it should return quickly.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Minimum time between two calls while bytes are moving
+     */
+    long PROGRESS_INTERVAL_IN_MS = 100;
+
+    /**
+     * Called while bytes are moving, and once more when the transfer ends
+     * @param source
+     * @param destination
+     * @param bytesTransferred bytes moved so far
+     * @param totalBytes size of the file, or -1 if it is not known
+     */
+    void onProgress(String source, String destination, long bytesTransferred, long totalBytes);
+}
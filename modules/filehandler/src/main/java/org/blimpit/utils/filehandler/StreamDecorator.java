@@ -0,0 +1,47 @@
+package org.blimpit.utils.filehandler;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Wraps the streams carrying the bytes of a transfer, e.g. to limit their rate or to count their bytes.
+ */
+interface StreamDecorator {
+
+    /**
+     * Leaves the streams as they are
+     */
+    StreamDecorator NONE = new StreamDecorator() {
+        @Override
+        public InputStream wrap(InputStream inputStream) {
+            return inputStream;
+        }
+
+        @Override
+        public OutputStream wrap(OutputStream outputStream) {
+            return outputStream;
+        }
+    };
+
+    InputStream wrap(InputStream inputStream);
+
+    OutputStream wrap(OutputStream outputStream);
+
+    /**
+     * Wraps the stream the entity is written to
+     * @param entity
+     * @return
+     */
+    default HttpEntity wrap(HttpEntity entity) {
+        return new HttpEntityWrapper(entity) {
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                super.writeTo(wrap(outputStream));
+            }
+        };
+    }
+}
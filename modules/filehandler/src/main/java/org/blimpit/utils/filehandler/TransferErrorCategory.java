@@ -0,0 +1,93 @@
+package org.blimpit.utils.filehandler;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+
+import java.io.FileNotFoundException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * Why a transfer failed.
+ */
+public enum TransferErrorCategory {
+
+    /**
+     * The transfer succeeded
+     */
+    NONE,
+
+    /**
+     * The local file could not be found or opened
+     */
+    LOCAL_FILE,
+
+    /**
+     * The url of the remote location is not valid
+     */
+    INVALID_LOCATION,
+
+    /**
+     * The server could not be reached
+     */
+    CONNECTION,
+
+    /**
+     * Connecting, waiting for a pooled connection or waiting for data took too long
+     */
+    TIMEOUT,
+
+    /**
+     * The ftp server did not accept the user name and password
+     */
+    AUTHENTICATION,
+
+    /**
+     * The server answered with an error status or a negative reply
+     */
+    REJECTED,
+
+    /**
+     * The transfer completed, but the size or checksum of the remote file did not match the local file
+     */
+    VERIFICATION,
+
+    /**
+     * The thread was interrupted during the transfer
+     */
+    INTERRUPTED,
+
+    /**
+     * Any other I/O failure, e.g. a connection reset in the middle of the transfer
+     */
+    IO;
+
+    /**
+     * Returns the category of the given failure
+     * @param error
+     * @return
+     */
+    public static TransferErrorCategory of(Throwable error) {
+        if (error instanceof FileNotFoundException || error instanceof NoSuchFileException) {
+            return LOCAL_FILE;
+        } else if (error instanceof MalformedURLException) {
+            return INVALID_LOCATION;
+        } else if (error instanceof FtpClientPool.LoginFailedException) {
+            return AUTHENTICATION;
+        } else if (error instanceof SocketTimeoutException || error instanceof ConnectTimeoutException
+                || error instanceof ConnectionPoolTimeoutException) {
+            return TIMEOUT;
+        } else if (error instanceof UnknownHostException || error instanceof ConnectException
+                || error instanceof NoRouteToHostException) {
+            return CONNECTION;
+        } else if (error instanceof InterruptedIOException || error instanceof InterruptedException) {
+            return INTERRUPTED;
+        }
+        return IO;
+    }
+}
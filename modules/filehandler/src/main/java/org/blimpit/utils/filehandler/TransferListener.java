@@ -0,0 +1,16 @@
+package org.blimpit.utils.filehandler;
+
+/**
+ * Receives the metrics of every transfer carried out by {@link BlimpItFileHandler},
+ * see {@link BlimpItFileHandler#addTransferListener(TransferListener)}.
+ * It is called on the thread which ran the transfer, so it should return quickly.
+ */
+@FunctionalInterface
+public interface TransferListener {
+
+    /**
+     * Called once a transfer has succeeded or failed
+     * @param metrics
+     */
+    void onTransferFinished(TransferMetrics metrics);
+}
@@ -0,0 +1,147 @@
+package org.blimpit.utils.filehandler;
+
+/**
+ * Measurements of a single transfer carried out by {@link BlimpItFileHandler}.
+ */
+public class TransferMetrics {
+
+    private final TransferOperation operation;
+    private final String source;
+    private final String destination;
+    private final boolean success;
+    private final long bytesTransferred;
+    private final long durationInMS;
+    private final long connectTimeInMS;
+    private final long timeToFirstByteInMS;
+    private final int retries;
+    private final int statusCode;
+    private final TransferErrorCategory errorCategory;
+    private final Throwable error;
+
+    TransferMetrics(TransferOperation operation, String source, String destination, boolean success,
+                    long bytesTransferred, long durationInMS, long connectTimeInMS, long timeToFirstByteInMS,
+                    int retries, int statusCode, TransferErrorCategory errorCategory, Throwable error) {
+        this.operation = operation;
+        this.source = source;
+        this.destination = destination;
+        this.success = success;
+        this.bytesTransferred = bytesTransferred;
+        this.durationInMS = durationInMS;
+        this.connectTimeInMS = connectTimeInMS;
+        this.timeToFirstByteInMS = timeToFirstByteInMS;
+        this.retries = retries;
+        this.statusCode = statusCode;
+        this.errorCategory = errorCategory;
+        this.error = error;
+    }
+
+    public TransferOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Path or url the file was transferred from, without the password of an ftp url
+     * @return
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Path or url the file was transferred to, without the password of an ftp url
+     * @return
+     */
+    public String getDestination() {
+        return destination;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Bytes moved over the network, or copied for a local copy. A compressed transfer counts the compressed bytes.
+     * @return
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    public long getDurationInMS() {
+        return durationInMS;
+    }
+
+    /**
+     * Time taken to obtain a connected http connection or a logged in ftp session, which is close to zero
+     * when a pooled one is reused
+     * @return the time, or -1 if the transfer did not get that far or is a local copy
+     */
+    public long getConnectTimeInMS() {
+        return connectTimeInMS;
+    }
+
+    /**
+     * Time from the start of the transfer until the first byte of the file was sent or received
+     * @return the time, or -1 if no byte was moved
+     */
+    public long getTimeToFirstByteInMS() {
+        return timeToFirstByteInMS;
+    }
+
+    /**
+     * Number of times the http client sent the request again after an I/O failure
+     * @return
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * The http status, or the last ftp reply code, received for the transfer
+     * @return the code, or -1 if none was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public TransferErrorCategory getErrorCategory() {
+        return errorCategory;
+    }
+
+    /**
+     * The exception which made the transfer fail
+     * @return the exception, or null if the transfer succeeded or failed on a status or reply code
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Average rate of the transfer
+     * @return bytes per second, or 0 if no byte was moved
+     */
+    public long getBytesPerSecond() {
+        if (bytesTransferred == 0) {
+            return 0;
+        }
+        return durationInMS == 0 ? bytesTransferred * 1000 : bytesTransferred * 1000 / durationInMS;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferMetrics{" +
+                "operation=" + operation +
+                ", source='" + source + '\'' +
+                ", destination='" + destination + '\'' +
+                ", success=" + success +
+                ", bytesTransferred=" + bytesTransferred +
+                ", durationInMS=" + durationInMS +
+                ", connectTimeInMS=" + connectTimeInMS +
+                ", timeToFirstByteInMS=" + timeToFirstByteInMS +
+                ", retries=" + retries +
+                ", statusCode=" + statusCode +
+                ", errorCategory=" + errorCategory +
+                ", error=" + error +
+                '}';
+    }
+}
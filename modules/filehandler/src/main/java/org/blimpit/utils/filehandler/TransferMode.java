@@ -0,0 +1,18 @@
+package org.blimpit.utils.filehandler;
+
+/**
+ * How the bytes of a transfer are moved between the file and the other side of the transfer.
+ */
+public enum TransferMode {
+
+    /**
+     * Streams through the default buffers of the underlying libraries, Files.copy for local copies
+     */
+    STREAM,
+
+    /**
+     * Uses FileChannel.transferTo for local copies and file channels with a large configurable
+     * buffer for the network transfers
+     */
+    NIO
+}
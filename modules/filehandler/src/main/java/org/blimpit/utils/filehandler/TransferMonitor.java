@@ -0,0 +1,196 @@
+package org.blimpit.utils.filehandler;
+
+import org.apache.http.client.protocol.HttpClientContext;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures a single transfer of {@link BlimpItFileHandler} while it runs and builds its {@link TransferMetrics}.
+ * The streams it wraps count the bytes of the transfer, after passing them through the given decorator.
+ */
+class TransferMonitor implements StreamDecorator {
+
+    /**
+     * Attribute of the http context holding the monitor of the request
+     */
+    static final String HTTP_CONTEXT_ATTRIBUTE = TransferMonitor.class.getName();
+
+    private static final long PROGRESS_INTERVAL_IN_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(ProgressListener.PROGRESS_INTERVAL_IN_MS);
+
+    private final TransferOperation operation;
+    private final String source;
+    private final String destination;
+    private final StreamDecorator streams;
+    private final ProgressListener progressListener;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final AtomicInteger attempts = new AtomicInteger();
+    private volatile long connectedNanos = -1;
+    private volatile long firstByteNanos = -1;
+    private volatile long lastProgressNanos = startNanos;
+    private volatile long totalBytes = -1;
+    private volatile int statusCode = -1;
+    private volatile TransferErrorCategory errorCategory;
+    private volatile Throwable error;
+
+    /**
+     * @param operation
+     * @param source
+     * @param destination
+     * @param streams decorator applied to the streams before their bytes are counted, e.g. a bandwidth limit
+     * @param options
+     */
+    TransferMonitor(TransferOperation operation, String source, String destination, StreamDecorator streams,
+                    TransferOptions options) {
+        this.operation = operation;
+        this.source = source;
+        this.destination = destination;
+        this.streams = streams;
+        this.progressListener = options.getProgressListener();
+    }
+
+    /**
+     * Returns a new http context through which the request executor reports the attempts of the request
+     * @return
+     */
+    HttpClientContext newHttpContext() {
+        HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(HTTP_CONTEXT_ATTRIBUTE, this);
+        return context;
+    }
+
+    /**
+     * Called when a request is about to be sent over an established connection, once per attempt
+     */
+    void attemptStarted() {
+        if (attempts.getAndIncrement() == 0) {
+            connected();
+        } else {
+            // a retried request sends its body again
+            bytesTransferred.set(0);
+        }
+    }
+
+    /**
+     * Called once the connection or the logged in session of the transfer is available
+     */
+    void connected() {
+        if (connectedNanos < 0) {
+            connectedNanos = System.nanoTime();
+        }
+    }
+
+    void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    void setStatusCode(int statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    void failed(Throwable error) {
+        this.error = error;
+        this.errorCategory = TransferErrorCategory.of(error);
+    }
+
+    void failed(TransferErrorCategory errorCategory) {
+        this.errorCategory = errorCategory;
+    }
+
+    /**
+     * Counts bytes moved without passing through a wrapped stream, e.g. by a local copy
+     * @param bytes
+     */
+    void addBytes(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (firstByteNanos < 0) {
+            firstByteNanos = now;
+        }
+        long transferred = bytesTransferred.addAndGet(bytes);
+        if (progressListener != null && now - lastProgressNanos >= PROGRESS_INTERVAL_IN_NANOS) {
+            lastProgressNanos = now;
+            progressListener.onProgress(source, destination, transferred, totalBytes);
+        }
+    }
+
+    /**
+     * Builds the metrics of the finished transfer and reports them to the given listener
+     * @param success
+     * @param listener
+     * @return
+     */
+    TransferMetrics finish(boolean success, TransferListener listener) {
+        long now = System.nanoTime();
+        if (progressListener != null) {
+            progressListener.onProgress(source, destination, bytesTransferred.get(), totalBytes);
+        }
+        TransferErrorCategory category = TransferErrorCategory.NONE;
+        if (!success) {
+            category = errorCategory != null ? errorCategory
+                    : statusCode >= 0 ? TransferErrorCategory.REJECTED : TransferErrorCategory.IO;
+        }
+        TransferMetrics metrics = new TransferMetrics(operation, DeduplicationIndex.normalizeDestination(source),
+                DeduplicationIndex.normalizeDestination(destination), success, bytesTransferred.get(),
+                toMillis(now - startNanos), since(connectedNanos), since(firstByteNanos),
+                Math.max(attempts.get() - 1, 0), statusCode, category, success ? null : error);
+        listener.onTransferFinished(metrics);
+        return metrics;
+    }
+
+    @Override
+    public InputStream wrap(InputStream inputStream) {
+        return new FilterInputStream(streams.wrap(inputStream)) {
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value != -1) {
+                    addBytes(1);
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                addBytes(read);
+                return read;
+            }
+        };
+    }
+
+    @Override
+    public OutputStream wrap(OutputStream outputStream) {
+        return new FilterOutputStream(streams.wrap(outputStream)) {
+            @Override
+            public void write(int value) throws IOException {
+                out.write(value);
+                addBytes(1);
+            }
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                out.write(buffer, offset, length);
+                addBytes(length);
+            }
+        };
+    }
+
+    private long since(long nanos) {
+        return nanos < 0 ? -1 : toMillis(nanos - startNanos);
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
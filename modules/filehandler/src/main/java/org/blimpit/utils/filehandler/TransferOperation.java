@@ -0,0 +1,12 @@
+package org.blimpit.utils.filehandler;
+
+/**
+ * The kinds of transfer carried out by {@link BlimpItFileHandler}, used to group their metrics.
+ */
+public enum TransferOperation {
+    HTTP_UPLOAD,
+    HTTP_DOWNLOAD,
+    FTP_UPLOAD,
+    FTP_DOWNLOAD,
+    LOCAL_COPY
+}
@@ -0,0 +1,162 @@
+package org.blimpit.utils.filehandler;
+
+/**
+ * Per call settings of a transfer. The options used when none are given are set through
+ * {@link BlimpItFileHandler#setDefaultTransferOptions(TransferOptions)}.
+ */
+public class TransferOptions {
+
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    private TransferMode mode = TransferMode.STREAM;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private boolean resume;
+    private boolean verifyChecksum;
+    private DeduplicationIndex deduplicationIndex;
+    private CompressionCodec compression = CompressionCodec.NONE;
+    private int compressionLevel = CompressionCodec.DEFAULT_LEVEL;
+    private boolean decompress;
+    private ProgressListener progressListener;
+
+    /**
+     * Returns a copy of the given options, so that the copy can be changed without affecting the given options
+     * @param options
+     */
+    public TransferOptions(TransferOptions options) {
+        this.mode = options.mode;
+        this.bufferSize = options.bufferSize;
+        this.resume = options.resume;
+        this.verifyChecksum = options.verifyChecksum;
+        this.deduplicationIndex = options.deduplicationIndex;
+        this.compression = options.compression;
+        this.compressionLevel = options.compressionLevel;
+        this.decompress = options.decompress;
+        this.progressListener = options.progressListener;
+    }
+
+    public TransferOptions() {
+
+    }
+
+    public TransferMode getMode() {
+        return mode;
+    }
+
+    public TransferOptions setMode(TransferMode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * Size of the buffer used by the {@link TransferMode#NIO} network transfers
+     * @return
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public TransferOptions setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Whether an ftp transfer continues from the bytes already transferred by an earlier failed attempt.
+     * A failed download keeps the partial local file, an upload appends to the partial remote file,
+     * and the local and remote sizes are compared once the transfer is done.
+     * @return
+     */
+    public boolean isResume() {
+        return resume;
+    }
+
+    public TransferOptions setResume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    /**
+     * Whether an ftp transfer is verified by comparing the MD5 digest of the local file with the digest reported
+     * by the server through the XMD5 command. The transfer fails if the server does not support the command.
+     * @return
+     */
+    public boolean isVerifyChecksum() {
+        return verifyChecksum;
+    }
+
+    public TransferOptions setVerifyChecksum(boolean verifyChecksum) {
+        this.verifyChecksum = verifyChecksum;
+        return this;
+    }
+
+    /**
+     * Index used to skip uploads and copies of content the destination already holds, null to always transfer.
+     * The digest of a file is computed from the bytes read while it is transferred and recorded in the index
+     * once the transfer succeeds.
+     * @return
+     */
+    public DeduplicationIndex getDeduplicationIndex() {
+        return deduplicationIndex;
+    }
+
+    public TransferOptions setDeduplicationIndex(DeduplicationIndex deduplicationIndex) {
+        this.deduplicationIndex = deduplicationIndex;
+        return this;
+    }
+
+    /**
+     * Codec which compresses an upload while it is sent. The name of the uploaded file gets the suffix of the codec,
+     * and a multipart upload also labels its part with the Content-Encoding of the codec.
+     * A compressed ftp upload is neither resumed nor verified by checksum, as the remote file differs from the local one.
+     * @return
+     */
+    public CompressionCodec getCompression() {
+        return compression;
+    }
+
+    public TransferOptions setCompression(CompressionCodec compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Level given to the compression codec, {@link CompressionCodec#DEFAULT_LEVEL} to let the codec choose
+     * @return
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public TransferOptions setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    /**
+     * Whether a download of a file named with the suffix of a {@link CompressionCodec} is decompressed while it is
+     * written to the local path. An http response with a Content-Encoding of a codec is always decompressed.
+     * A decompressed ftp download is neither resumed nor verified by checksum.
+     * @return
+     */
+    public boolean isDecompress() {
+        return decompress;
+    }
+
+    public TransferOptions setDecompress(boolean decompress) {
+        this.decompress = decompress;
+        return this;
+    }
+
+    /**
+     * Listener receiving the progress of the transfer, null for none
+     * @return
+     */
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public TransferOptions setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+}
@@ -0,0 +1,115 @@
+package org.blimpit.utils.filehandler;
+
+/**
+ * Outcome of a single file transfer.
+ */
+public class TransferResult {
+
+    private final String source;
+    private final String destination;
+    private final boolean success;
+    private final long bytesTransferred;
+    private final long durationInMS;
+    private final int attempts;
+    private final TransferMetrics metrics;
+
+    public TransferResult(String source, String destination, boolean success, long bytesTransferred, long durationInMS) {
+        this(source, destination, success, bytesTransferred, durationInMS, 1);
+    }
+
+    public TransferResult(String source, String destination, boolean success, long bytesTransferred, long durationInMS,
+                          int attempts) {
+        this(source, destination, success, bytesTransferred, durationInMS, attempts, null);
+    }
+
+    public TransferResult(String source, String destination, boolean success, long bytesTransferred, long durationInMS,
+                          int attempts, TransferMetrics metrics) {
+        this.source = source;
+        this.destination = destination;
+        this.success = success;
+        this.bytesTransferred = bytesTransferred;
+        this.durationInMS = durationInMS;
+        this.attempts = attempts;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Path or url the file was transferred from
+     * @return
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Path or url the file was transferred to
+     * @return
+     */
+    public String getDestination() {
+        return destination;
+    }
+
+    /**
+     * status of the transfer
+     * @return
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Size of the transferred file in bytes, 0 if the transfer failed
+     * @return
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * Time taken by the transfer in milliseconds
+     * @return
+     */
+    public long getDurationInMS() {
+        return durationInMS;
+    }
+
+    /**
+     * Number of times the transfer was attempted, including retries
+     * @return
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Metrics of the last attempt of the transfer
+     * @return the metrics, or null if the transfer was not run by {@link BlimpItFileHandler}
+     */
+    public TransferMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Why the transfer failed
+     * @return {@link TransferErrorCategory#NONE} if it succeeded
+     */
+    public TransferErrorCategory getErrorCategory() {
+        if (success) {
+            return TransferErrorCategory.NONE;
+        }
+        return metrics == null ? TransferErrorCategory.IO : metrics.getErrorCategory();
+    }
+
+    @Override
+    public String toString() {
+        return "TransferResult{" +
+                "source='" + source + '\'' +
+                ", destination='" + destination + '\'' +
+                ", success=" + success +
+                ", bytesTransferred=" + bytesTransferred +
+                ", durationInMS=" + durationInMS +
+                ", attempts=" + attempts +
+                ", errorCategory=" + getErrorCategory() +
+                '}';
+    }
+}
@@ -0,0 +1,269 @@
+package org.blimpit.utils.filehandler;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchTransferEngineTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8080);
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final String HTTP_FILE_UPLOAD_URL = "http://localhost:8080/upload";
+
+    private String sourceFilePath;
+
+    @Before
+    public void setUp() throws IOException {
+        File sourceFile = temporaryFolder.newFile("source.txt");
+        Files.write(sourceFile.toPath(), "abcdef 1234567890".getBytes(StandardCharsets.UTF_8));
+        sourceFilePath = sourceFile.getAbsolutePath();
+    }
+
+    @Test
+    public void copiesBatchOfFilesInRequestOrder() throws IOException {
+        File targetFolder = temporaryFolder.newFolder();
+        List<TransferRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            requests.add(new TransferRequest(sourceFilePath, targetFolder.getAbsolutePath() + File.separator + i + ".txt"));
+        }
+        BatchTransferResult batchResult = new BatchTransferEngine(new BatchTransferConfig()).transfer(requests);
+
+        assertEquals(200, batchResult.getSuccessCount());
+        assertEquals(0, batchResult.getFailureCount());
+        assertEquals(200 * 17, batchResult.getTotalBytesTransferred());
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(requests.get(i).getDestination(), batchResult.getResults().get(i).getDestination());
+        }
+    }
+
+    @Test
+    public void retriesFailedUploads() {
+        stubFor(post(urlEqualTo("/upload")).inScenario("retry")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withStatus(503))
+                .willSetStateTo("recovered"));
+        stubFor(post(urlEqualTo("/upload")).inScenario("retry")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()));
+        List<TransferRequest> requests = new ArrayList<>();
+        requests.add(new TransferRequest(sourceFilePath, HTTP_FILE_UPLOAD_URL));
+        BatchTransferConfig config = new BatchTransferConfig().setInitialBackoffInMS(10);
+
+        BatchTransferResult batchResult = new BatchTransferEngine(config).transfer(requests);
+
+        assertEquals(1, batchResult.getSuccessCount());
+        assertEquals(2, batchResult.getResults().get(0).getAttempts());
+        assertEquals(1, batchResult.getRetryCount());
+    }
+
+    @Test
+    public void reportsFailureAfterRetriesAreExhausted() {
+        stubFor(post(urlEqualTo("/upload")).willReturn(aResponse().withStatus(500)));
+        List<TransferRequest> requests = new ArrayList<>();
+        requests.add(new TransferRequest(sourceFilePath, HTTP_FILE_UPLOAD_URL));
+        BatchTransferConfig config = new BatchTransferConfig().setMaxRetries(2).setInitialBackoffInMS(10);
+
+        BatchTransferResult batchResult = new BatchTransferEngine(config).transfer(requests);
+
+        TransferResult result = batchResult.getResults().get(0);
+        assertFalse(result.isSuccess());
+        assertEquals(3, result.getAttempts());
+        verify(3, postRequestedFor(urlEqualTo("/upload")));
+    }
+
+    @Test
+    public void capsConcurrentTransfersPerHost() {
+        ConcurrencyTrackingFileHandler fileHandler = new ConcurrencyTrackingFileHandler();
+        List<TransferRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            requests.add(new TransferRequest(sourceFilePath, HTTP_FILE_UPLOAD_URL));
+        }
+        BatchTransferConfig config = new BatchTransferConfig().setParallelism(16).setMaxConcurrentTransfersPerHost(3);
+
+        BatchTransferResult batchResult = new BatchTransferEngine(fileHandler, config).transfer(requests);
+
+        assertEquals(40, batchResult.getSuccessCount());
+        assertTrue(fileHandler.maxConcurrentTransfers.get() <= 3);
+    }
+
+    @Test
+    public void interleavesSmallTransfersWithQueuedLargeOnes() throws IOException {
+        ConcurrencyTrackingFileHandler fileHandler = new ConcurrencyTrackingFileHandler();
+        List<TransferRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            File largeFile = temporaryFolder.newFile("large" + i + ".txt");
+            Files.write(largeFile.toPath(), new byte[100]);
+            requests.add(new TransferRequest(largeFile.getAbsolutePath(), largeFile.getAbsolutePath() + ".copy"));
+        }
+        requests.add(new TransferRequest(sourceFilePath, sourceFilePath + ".copy"));
+        BatchTransferConfig config = new BatchTransferConfig().setParallelism(1)
+                .setSmallTransferMaxBytes(50).setLargeTransferMinBytes(100);
+
+        BatchTransferResult batchResult = new BatchTransferEngine(fileHandler, config).transfer(requests);
+
+        assertEquals(4, batchResult.getSuccessCount());
+        assertEquals(4, fileHandler.transferredSources.size());
+        assertTrue(fileHandler.transferredSources.indexOf(sourceFilePath)
+                < fileHandler.transferredSources.indexOf(requests.get(1).getSource()));
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(requests.get(i).getDestination(), batchResult.getResults().get(i).getDestination());
+        }
+    }
+
+    @Test
+    public void runsTransfersToOtherHostsWhileAHostIsBusy() {
+        ConcurrencyTrackingFileHandler fileHandler = new ConcurrencyTrackingFileHandler();
+        List<TransferRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            requests.add(new TransferRequest(sourceFilePath, HTTP_FILE_UPLOAD_URL));
+        }
+        String otherHostUrl = "http://127.0.0.1:8080/upload";
+        requests.add(new TransferRequest(sourceFilePath, otherHostUrl));
+        BatchTransferConfig config = new BatchTransferConfig().setParallelism(2).setMaxConcurrentTransfersPerHost(1);
+
+        BatchTransferResult batchResult = new BatchTransferEngine(fileHandler, config).transfer(requests);
+
+        assertEquals(7, batchResult.getSuccessCount());
+        assertTrue(fileHandler.uploadedDestinations.indexOf(otherHostUrl) < 3);
+    }
+
+    @Test
+    public void runsOtherTransfersDuringTheBackoff() {
+        ConcurrencyTrackingFileHandler fileHandler = new ConcurrencyTrackingFileHandler();
+        String failingUrl = "http://127.0.0.1:8080/upload";
+        fileHandler.failOnce.add(failingUrl);
+        List<TransferRequest> requests = new ArrayList<>();
+        requests.add(new TransferRequest(sourceFilePath, failingUrl));
+        requests.add(new TransferRequest(sourceFilePath, HTTP_FILE_UPLOAD_URL));
+        BatchTransferConfig config = new BatchTransferConfig().setParallelism(1).setInitialBackoffInMS(100);
+
+        BatchTransferResult batchResult = new BatchTransferEngine(fileHandler, config).transfer(requests);
+
+        assertEquals(2, batchResult.getSuccessCount());
+        assertEquals(2, batchResult.getResults().get(0).getAttempts());
+        assertEquals(Arrays.asList(failingUrl, HTTP_FILE_UPLOAD_URL, failingUrl), fileHandler.uploadedDestinations);
+    }
+
+    /**
+     * A file handler which only records how many transfers run at the same time, and the order of the local copies
+     * and of the uploads. The first upload to a url of failOnce fails.
+     */
+    private static class ConcurrencyTrackingFileHandler implements FileHandler {
+
+        private final AtomicInteger concurrentTransfers = new AtomicInteger();
+        private final AtomicInteger maxConcurrentTransfers = new AtomicInteger();
+        private final List<String> transferredSources = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> uploadedDestinations = Collections.synchronizedList(new ArrayList<>());
+        private final Set<String> failOnce = ConcurrentHashMap.newKeySet();
+
+        private boolean track() {
+            int current = concurrentTransfers.incrementAndGet();
+            maxConcurrentTransfers.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            concurrentTransfers.decrementAndGet();
+            return true;
+        }
+
+        @Override
+        public boolean uploadFileToService(String sourcePath, String serviceURL) {
+            uploadedDestinations.add(serviceURL);
+            return track() && !failOnce.remove(serviceURL);
+        }
+
+        @Override
+        public boolean uploadFileToService(String sourcePath, String serviceURL, int timeoutInMS, String multipartName) {
+            return track();
+        }
+
+        @Override
+        public boolean uploadFileToService(String sourcePath, String serviceURL, int timeoutInMS, String multipartName,
+                                           TransferOptions options) {
+            return track();
+        }
+
+        @Override
+        public boolean uploadFileToLocalDst(String sourcePath, String destinationPath) {
+            transferredSources.add(sourcePath);
+            return track();
+        }
+
+        @Override
+        public boolean uploadFileToaRemoteServer(String sourcePath, String destination) {
+            return track();
+        }
+
+        @Override
+        public boolean uploadFileToaRemoteServer(String sourcePath, String destination, TransferOptions options) {
+            return track();
+        }
+
+        @Override
+        public boolean downloadFileFromRemoteService(String downloadServiceURL, String localPath) {
+            return track();
+        }
+
+        @Override
+        public boolean downloadFileFromRemoteService(String downloadServiceURL, String localPath, int timeoutInMS) {
+            return track();
+        }
+
+        @Override
+        public boolean downloadFileFromRemoteService(String downloadServiceURL, String localPath, int timeoutInMS,
+                                                     TransferOptions options) {
+            return track();
+        }
+
+        @Override
+        public boolean downloadFileFromRemoteServiceInChunks(String downloadServiceURL, String localPath, int chunkCount,
+                                                             int timeoutInMS) {
+            return track();
+        }
+
+        @Override
+        public boolean copyFile(String destination, String newLocation) {
+            return track();
+        }
+
+        @Override
+        public boolean copyFile(String destination, String newLocation, TransferOptions options) {
+            return track();
+        }
+
+        @Override
+        public boolean downloadFileFromRemoteServer(String remotelocation, String localPath) {
+            return track();
+        }
+
+        @Override
+        public boolean downloadFileFromRemoteServer(String remotelocation, String localPath, TransferOptions options) {
+            return track();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.blimpit.utils.filehandler;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BlimpItAsyncFileHandlerTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8080);
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final String HTTP_FILE_UPLOAD_URL = "http://localhost:8080/upload";
+    private static final String HTTP_FILE_DOWNLOAD_URL = "http://localhost:8080/download";
+
+    private ExecutorService executor;
+    private AsyncFileHandler asyncFileHandler;
+    private String sourceFilePath;
+
+    @Before
+    public void setUp() throws IOException {
+        executor = FileTransferExecutors.newDefaultExecutor();
+        asyncFileHandler = new BlimpItAsyncFileHandler(executor);
+        File sourceFile = temporaryFolder.newFile("source.txt");
+        Files.write(sourceFile.toPath(), "abcdef 1234567890".getBytes(StandardCharsets.UTF_8));
+        sourceFilePath = sourceFile.getAbsolutePath();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void copiesFilesConcurrently() throws IOException {
+        File targetFolder = temporaryFolder.newFolder();
+        List<CompletableFuture<TransferResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String target = targetFolder.getAbsolutePath() + File.separator + "copy" + i + ".txt";
+            futures.add(asyncFileHandler.copyFile(sourceFilePath, target));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        for (CompletableFuture<TransferResult> future : futures) {
+            TransferResult result = future.join();
+            assertTrue(result.isSuccess());
+            assertEquals(17, result.getBytesTransferred());
+            assertTrue(new File(result.getDestination()).exists());
+        }
+    }
+
+    @Test
+    public void reportsFailureWhenCopyingMissingFile() {
+        String missingFile = temporaryFolder.getRoot().getAbsolutePath() + File.separator + "does_not_exist.txt";
+        String target = temporaryFolder.getRoot().getAbsolutePath() + File.separator + "copy.txt";
+        TransferResult result = asyncFileHandler.copyFile(missingFile, target).join();
+        assertFalse(result.isSuccess());
+        assertEquals(0, result.getBytesTransferred());
+        assertEquals(TransferErrorCategory.LOCAL_FILE, result.getErrorCategory());
+        assertEquals(TransferOperation.LOCAL_COPY, result.getMetrics().getOperation());
+    }
+
+    @Test
+    public void uploadsFileToRestService() {
+        stubFor(post(urlEqualTo("/upload")).willReturn(aResponse()));
+        TransferResult result = asyncFileHandler.uploadFileToService(sourceFilePath, HTTP_FILE_UPLOAD_URL).join();
+        assertTrue(result.isSuccess());
+        assertEquals(HTTP_FILE_UPLOAD_URL, result.getDestination());
+    }
+
+    @Test
+    public void downloadsFileFromRestService() throws IOException {
+        stubFor(get(urlEqualTo("/download"))
+                .willReturn(aResponse().withStatus(200).withBodyFile("downloadFile.txt")));
+        String localPath = temporaryFolder.newFolder().getAbsolutePath() + File.separator + "downloaded.txt";
+        TransferResult result = asyncFileHandler.downloadFileFromRemoteService(HTTP_FILE_DOWNLOAD_URL, localPath).join();
+        assertTrue(result.isSuccess());
+        assertEquals(new File(localPath).length(), result.getBytesTransferred());
+    }
+}
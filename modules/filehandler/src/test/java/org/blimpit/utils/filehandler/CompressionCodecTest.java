@@ -0,0 +1,112 @@
+package org.blimpit.utils.filehandler;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompressionCodecTest {
+
+    private static final byte[] CONTENT = repeat("0123456789abcdefghijklmnopqrstuvwxyz ", 2000);
+
+    @Test
+    public void restoresContentCompressedWithGzip() throws IOException {
+        assertArrayEquals(CONTENT, decompress(CompressionCodec.GZIP, compress(CompressionCodec.GZIP,
+                CompressionCodec.DEFAULT_LEVEL)));
+    }
+
+    @Test
+    public void restoresContentCompressedWithLz4() throws IOException {
+        assertArrayEquals(CONTENT, decompress(CompressionCodec.LZ4, compress(CompressionCodec.LZ4,
+                CompressionCodec.DEFAULT_LEVEL)));
+    }
+
+    @Test
+    public void restoresContentCompressedWithLz4HighCompressor() throws IOException {
+        assertArrayEquals(CONTENT, decompress(CompressionCodec.LZ4, compress(CompressionCodec.LZ4, 9)));
+    }
+
+    @Test
+    public void compressesContent() throws IOException {
+        assertTrue(compress(CompressionCodec.GZIP, 1).length < CONTENT.length / 10);
+        assertTrue(compress(CompressionCodec.LZ4, CompressionCodec.DEFAULT_LEVEL).length < CONTENT.length / 10);
+    }
+
+    @Test
+    public void leavesContentUnchangedWithoutCodec() throws IOException {
+        assertArrayEquals(CONTENT, compress(CompressionCodec.NONE, CompressionCodec.DEFAULT_LEVEL));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnsupportedGzipLevel() throws IOException {
+        compress(CompressionCodec.GZIP, 10);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnsupportedLz4Level() throws IOException {
+        compress(CompressionCodec.LZ4, 18);
+    }
+
+    @Test
+    public void findsCodecByFileSuffix() {
+        assertEquals(CompressionCodec.GZIP, CompressionCodec.fromFileName("/data/file.txt.GZ"));
+        assertEquals(CompressionCodec.LZ4, CompressionCodec.fromFileName("file.txt.lz4"));
+        assertEquals(CompressionCodec.NONE, CompressionCodec.fromFileName("file.txt"));
+    }
+
+    @Test
+    public void findsCodecByContentEncoding() {
+        assertEquals(CompressionCodec.GZIP, CompressionCodec.fromContentEncoding("gzip"));
+        assertEquals(CompressionCodec.LZ4, CompressionCodec.fromContentEncoding(" LZ4"));
+        assertEquals(CompressionCodec.NONE, CompressionCodec.fromContentEncoding("br"));
+        assertEquals(CompressionCodec.NONE, CompressionCodec.fromContentEncoding(null));
+    }
+
+    @Test
+    public void appendsFileSuffixOnce() {
+        assertEquals("file.txt.gz", CompressionCodec.GZIP.appendFileSuffix("file.txt"));
+        assertEquals("file.txt.gz", CompressionCodec.GZIP.appendFileSuffix("file.txt.gz"));
+        assertEquals("file.txt", CompressionCodec.NONE.appendFileSuffix("file.txt"));
+    }
+
+    static byte[] compress(CompressionCodec codec, byte[] content, int level) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (OutputStream outputStream = codec.compress(byteArrayOutputStream, level)) {
+            outputStream.write(content);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static byte[] compress(CompressionCodec codec, int level) throws IOException {
+        return compress(codec, CONTENT, level);
+    }
+
+    static byte[] decompress(CompressionCodec codec, byte[] content) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        try (InputStream inputStream = codec.decompress(new ByteArrayInputStream(content))) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                byteArrayOutputStream.write(buffer, 0, read);
+            }
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static byte[] repeat(String text, int times) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[] content = new byte[bytes.length * times];
+        for (int i = 0; i < times; i++) {
+            System.arraycopy(bytes, 0, content, i * bytes.length, bytes.length);
+        }
+        return content;
+    }
+}
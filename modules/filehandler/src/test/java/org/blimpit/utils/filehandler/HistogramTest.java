@@ -0,0 +1,67 @@
+package org.blimpit.utils.filehandler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void reportsPercentilesOfRecordedValues() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void reportsLargeValuesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        long[] values = {1000, 123456, 98765432, 1L << 40, Long.MAX_VALUE / 3};
+        for (long value : values) {
+            Histogram single = new Histogram();
+            single.record(value);
+            single.record(0);
+            long reported = single.getValueAtPercentile(100);
+            assertEquals(value, reported);
+            long median = single.getValueAtPercentile(50);
+            assertEquals(0, median);
+            histogram.record(value);
+        }
+        for (int i = 0; i < values.length - 1; i++) {
+            long reported = histogram.getValueAtPercentile((i + 1) * 100.0 / values.length);
+            assertTrue(reported >= values[i]);
+            assertTrue(reported - values[i] <= values[i] / 64);
+        }
+    }
+
+    @Test
+    public void keepsBucketsOrderedAndContiguous() {
+        for (int index = 1; index < Histogram.indexOf(Long.MAX_VALUE); index++) {
+            long lowestValue = Histogram.highestValueAt(index - 1) + 1;
+            assertEquals(index, Histogram.indexOf(lowestValue));
+            assertEquals(index, Histogram.indexOf(Histogram.highestValueAt(index)));
+        }
+    }
+
+    @Test
+    public void reportsZeroWhenEmpty() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeValues() {
+        new Histogram().record(-1);
+    }
+}
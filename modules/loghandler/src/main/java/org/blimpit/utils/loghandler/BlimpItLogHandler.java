@@ -0,0 +1,444 @@
+package org.blimpit.utils.loghandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A class which logs the activities of the users to files, one directory per user under the base directory.
+ * <p>
+ * logMessage only hands the entry over to a ring buffer, without taking a lock or touching the disk. A single writer
+ * thread takes the entries in batches and writes them to the files of their users, see {@link FileLogConfig} for the
+ * fsync policy and the rolling of the files. Another thread compresses the rolled files and deletes the ones past the
+ * retention, see {@link LogSegmentCompactor}, and the logs are read from the active, rolled and compressed files alike.
+ * <p>
+ * Entries are only stored in a DB if a {@link DataSource} is given to getInstance, see {@link DBLogConfig}.
+ */
+public class BlimpItLogHandler implements LogHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlimpItLogHandler.class);
+
+    private static volatile BlimpItLogHandler blimpItLogHandler;
+
+    private static final String WRITER_THREAD_NAME = "blimpit-loghandler-writer";
+    private static final String COMPACTOR_THREAD_NAME = "blimpit-loghandler-compactor";
+    private static final int IDLE_SPIN_COUNT = 100;
+    private static final int IDLE_YIELD_COUNT = 200;
+    private static final long IDLE_PARK_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Path baseDirectory;
+    private final LogRingBuffer ringBuffer;
+    private final LogFileWriter fileWriter;
+    private final Thread writer;
+    private final LogSegmentCompactor compactor;
+    private final long compactionIntervalInNanos;
+    private final Thread compactorThread;
+    private final DBLogSink dbLogSink;
+    private final Thread shutdownHook;
+    private volatile boolean running = true;
+    // the last sequence written to the files, only written by the writer
+    private volatile long writtenSequence = -1;
+
+    private BlimpItLogHandler(Path baseDirectory, FileLogConfig config, DataSource dataSource, DBLogConfig dbConfig) {
+        this.baseDirectory = baseDirectory;
+        this.ringBuffer = new LogRingBuffer(config.getRingBufferSize());
+        this.fileWriter = new LogFileWriter(baseDirectory, config);
+        this.dbLogSink = dataSource == null ? null : new DBLogSink(dataSource, dbConfig);
+        this.writer = new Thread(this::run, WRITER_THREAD_NAME);
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.compactor = new LogSegmentCompactor(baseDirectory, config);
+        this.compactionIntervalInNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getCompactionIntervalInMS()));
+        if (LogSegmentCompactor.isNeeded(config)) {
+            this.compactorThread = new Thread(this::compact, COMPACTOR_THREAD_NAME);
+            this.compactorThread.setDaemon(true);
+            this.compactorThread.setPriority(Thread.MIN_PRIORITY);
+            this.compactorThread.start();
+        } else {
+            this.compactorThread = null;
+        }
+        this.shutdownHook = new Thread(this::stop, "blimpit-loghandler-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Log the given activity to the file of the user, without waiting for it to be written.
+     * Waits only while the ring buffer is full.
+     *
+     * @param userName name of the directory of the user under the base directory
+     * @param activity
+     * @throws IllegalArgumentException if the user name is not a plain directory name
+     * @throws IllegalStateException if the handler has been shut down, or was shut down before the entry could be
+     *                               handed over, or the writer thread has died
+     */
+    @Override
+    public void logMessage(String userName, String activity) {
+        checkUserName(userName);
+        if (!running) {
+            throw new IllegalStateException("The log handler has been shut down");
+        }
+        long timestamp = System.currentTimeMillis();
+        long sequence = ringBuffer.claim(this::isWriterRunning);
+        if (sequence < 0) {
+            throw new IllegalStateException(running ? "The log writer has stopped"
+                    : "The log handler has been shut down");
+        }
+        ringBuffer.get(sequence).set(userName, activity, timestamp);
+        ringBuffer.publish(sequence);
+        if (!running) {
+            // the writer may have seen every claimed entry written and stopped before this one was claimed
+            awaitWritten(sequence);
+            if (writtenSequence < sequence) {
+                throw new IllegalStateException("The log handler has been shut down");
+            }
+        }
+    }
+
+    /**
+     * Store the activity in the DB, without waiting for it to be written.
+     * The entry is dropped if too many entries are waiting to be written, see {@link #getDBLogStatistics()}.
+     *
+     * @param username
+     * @param activity
+     * @throws IllegalArgumentException if the user name is not a plain directory name
+     * @throws IllegalStateException if the handler has been shut down
+     * @throws UnsupportedOperationException if no DB was given to the handler
+     */
+    @Override
+    public void storeLogInDB(String username, String activity) {
+        checkUserName(username);
+        DBLogSink sink = getDBLogSink();
+        if (!running) {
+            throw new IllegalStateException("The log handler has been shut down");
+        }
+        sink.store(username, activity, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the entries of the user logged between the given times, once the entries logged before the call are
+     * written. Only the files which may hold entries of the range are read, from the indexed entry preceding the
+     * range. Every entry is a line of its time in milliseconds since the epoch, a tab and the activity, with
+     * backslashes and line breaks escaped.
+     *
+     * @param beginTimeStamp in milliseconds since the epoch, inclusive
+     * @param endTimeStamp   in milliseconds since the epoch, inclusive
+     * @param userName
+     * @return
+     */
+    @Override
+    public String getLogs(double beginTimeStamp, double endTimeStamp, String userName) {
+        checkUserName(userName);
+        flush();
+        StringBuilder logs = new StringBuilder();
+        readLogs(userName, new LogQuery()
+                .setBeginTimestamp((long) Math.ceil(beginTimeStamp))
+                .setEndTimestamp((long) Math.floor(endTimeStamp)), entry -> {
+            logs.append(entry).append('\n');
+            return true;
+        });
+        return logs.toString();
+    }
+
+    /**
+     * Returns the entries of the user selected by the query, once the entries logged before the call are written.
+     * Only the files which may hold entries of the range are read, from the indexed entry preceding the range.
+     *
+     * @param userName
+     * @param query    time range and page of the entries
+     * @return
+     */
+    @Override
+    public Stream<LogEntry> streamLogs(String userName, LogQuery query) {
+        checkUserName(userName);
+        flush();
+        LogEntryCursor cursor = new LogEntryCursor(baseDirectory.resolve(userName), query);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
+    @Override
+    public boolean readLogs(String userName, LogQuery query, Predicate<LogEntry> consumer) {
+        checkUserName(userName);
+        flush();
+        try (LogEntryCursor cursor = new LogEntryCursor(baseDirectory.resolve(userName), query)) {
+            while (cursor.hasNext()) {
+                if (!consumer.test(cursor.next())) {
+                    break;
+                }
+            }
+            return true;
+        } catch (LogHandlerException e) {
+            LOGGER.error("Could not read the logs of {}", userName, e);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the entries of the user stored in the DB between the given times, once the entries stored before the
+     * call are written, in the format of {@link #getLogs(double, double, String)}
+     *
+     * @param beginTimeStamp in milliseconds since the epoch, inclusive
+     * @param endTimeStamp   in milliseconds since the epoch, inclusive
+     * @param userName
+     * @return
+     * @throws UnsupportedOperationException if no DB was given to the handler
+     */
+    @Override
+    public String getLogsFromDB(double beginTimeStamp, double endTimeStamp, String userName) {
+        StringBuilder logs = new StringBuilder();
+        readLogsFromDB(userName, new LogQuery()
+                .setBeginTimestamp((long) Math.ceil(beginTimeStamp))
+                .setEndTimestamp((long) Math.floor(endTimeStamp)), entry -> {
+            logs.append(entry).append('\n');
+            return true;
+        });
+        return logs.toString();
+    }
+
+    /**
+     * Returns the entries of the user stored in the DB selected by the query, once the entries stored before the call
+     * are written
+     *
+     * @param userName
+     * @param query    time range and page of the entries
+     * @return
+     * @throws UnsupportedOperationException if no DB was given to the handler
+     */
+    @Override
+    public Stream<LogEntry> streamLogsFromDB(String userName, LogQuery query) {
+        checkUserName(userName);
+        DBLogSink sink = getDBLogSink();
+        sink.flush();
+        DBLogCursor cursor = sink.openCursor(userName, query);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
+    /**
+     * @throws UnsupportedOperationException if no DB was given to the handler
+     */
+    @Override
+    public boolean readLogsFromDB(String userName, LogQuery query, Predicate<LogEntry> consumer) {
+        checkUserName(userName);
+        DBLogSink sink = getDBLogSink();
+        sink.flush();
+        try (DBLogCursor cursor = sink.openCursor(userName, query)) {
+            while (cursor.hasNext()) {
+                if (!consumer.test(cursor.next())) {
+                    break;
+                }
+            }
+            return true;
+        } catch (LogHandlerException e) {
+            LOGGER.error("Could not read the logs of {} from the DB", userName, e);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the counters of the entries stored in the DB
+     *
+     * @return the counters, or null if no DB was given to the handler
+     */
+    public DBLogStatistics getDBLogStatistics() {
+        return dbLogSink == null ? null : dbLogSink.getStatistics();
+    }
+
+    /**
+     * Waits until the entries stored in the DB before the call have been written, or refused by the DB
+     *
+     * @throws UnsupportedOperationException if no DB was given to the handler
+     */
+    public void flushDB() {
+        getDBLogSink().flush();
+    }
+
+    /**
+     * Waits until the entries logged before the call have been written to their files
+     */
+    public void flush() {
+        awaitWritten(ringBuffer.getClaimedSequence());
+    }
+
+    private void awaitWritten(long sequence) {
+        LockSupport.unpark(writer);
+        while (writtenSequence < sequence && writer.isAlive()) {
+            LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * Returns true while the writer frees the slots of the ring, i.e. a producer waiting for a slot gets one
+     */
+    private boolean isWriterRunning() {
+        return running && writer.isAlive();
+    }
+
+    /**
+     * A method which returns instance of a BlimpIt Log handler
+     * @param baseDirectory directory under which the directories of the users are created
+     * @return
+     */
+    public static LogHandler getInstance(String baseDirectory) {
+        return getInstance(baseDirectory, new FileLogConfig());
+    }
+
+    /**
+     * A method which returns instance of a BlimpIt Log handler.
+     * The given settings are only used when the instance is created, i.e. on the first call
+     * or on the first call after {@link #shutdown()}.
+     * @param baseDirectory directory under which the directories of the users are created
+     * @param config        settings of the log files
+     * @return
+     */
+    public static LogHandler getInstance(String baseDirectory, FileLogConfig config) {
+        return getInstance(baseDirectory, config, null, null);
+    }
+
+    /**
+     * A method which returns instance of a BlimpIt Log handler, which also stores entries in the given DB.
+     * The given settings are only used when the instance is created, i.e. on the first call
+     * or on the first call after {@link #shutdown()}.
+     * @param baseDirectory directory under which the directories of the users are created
+     * @param config        settings of the log files
+     * @param dataSource    DB the entries are stored in, null to only write files. MySQL Connector/J only streams the
+     *                      entries which are read if its useCursorFetch property is set.
+     * @param dbConfig      settings of the entries stored in the DB
+     * @return
+     */
+    public static LogHandler getInstance(String baseDirectory, FileLogConfig config, DataSource dataSource,
+                                         DBLogConfig dbConfig) {
+        if (blimpItLogHandler == null) {
+            synchronized (BlimpItLogHandler.class) {
+                if (blimpItLogHandler == null) {
+                    blimpItLogHandler = new BlimpItLogHandler(Paths.get(baseDirectory), config, dataSource,
+                            dbConfig == null ? new DBLogConfig() : dbConfig);
+                }
+            }
+        }
+        return blimpItLogHandler;
+    }
+
+    /**
+     * Writes the entries logged or stored so far and closes the files of the current instance. This is also done by a shutdown
+     * hook when the JVM exits. A later call to {@link #getInstance(String)} creates a new instance.
+     */
+    public static void shutdown() {
+        synchronized (BlimpItLogHandler.class) {
+            if (blimpItLogHandler != null) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(blimpItLogHandler.shutdownHook);
+                } catch (IllegalStateException e) {
+                    // the JVM is already shutting down, the hook takes care of writing the entries
+                }
+                blimpItLogHandler.stop();
+                blimpItLogHandler = null;
+            }
+        }
+    }
+
+    private void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (compactorThread != null) {
+            // a pass being run is finished, the next one is not started
+            LockSupport.unpark(compactorThread);
+            try {
+                compactorThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (dbLogSink != null) {
+            dbLogSink.close();
+        }
+    }
+
+    private void compact() {
+        while (true) {
+            long deadline = System.nanoTime() + compactionIntervalInNanos;
+            long remaining;
+            while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            if (!running) {
+                break;
+            }
+            compactor.compactAll();
+        }
+    }
+
+    private void run() {
+        long next = 0;
+        int idleCount = 0;
+        while (true) {
+            long available = ringBuffer.getHighestPublished(next);
+            if (available >= next) {
+                for (long sequence = next; sequence <= available; sequence++) {
+                    LogEvent event = ringBuffer.get(sequence);
+                    fileWriter.write(event);
+                    event.clear();
+                }
+                // the entries are in the buffers of their files, the producers can reuse the slots
+                ringBuffer.release(available);
+                fileWriter.endBatch();
+                writtenSequence = available;
+                next = available + 1;
+                idleCount = 0;
+            } else if (!running && ringBuffer.getClaimedSequence() < next) {
+                break;
+            } else {
+                fileWriter.onIdle();
+                idle(idleCount++);
+            }
+        }
+        fileWriter.close();
+    }
+
+    /**
+     * Waits for entries, spinning first, then yielding, then sleeping, so that a busy writer does not pay for a wake up
+     * and an idle one does not hold a core
+     * @param idleCount
+     */
+    private static void idle(int idleCount) {
+        if (idleCount < IDLE_SPIN_COUNT) {
+            return;
+        }
+        if (idleCount < IDLE_YIELD_COUNT) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(IDLE_PARK_IN_NANOS);
+        }
+    }
+
+    private DBLogSink getDBLogSink() {
+        if (dbLogSink == null) {
+            throw new UnsupportedOperationException("Logs are only written to files, no DB was given");
+        }
+        return dbLogSink;
+    }
+
+    private static void checkUserName(String userName) {
+        if (userName == null || userName.isEmpty() || userName.equals(".") || userName.equals("..")
+                || userName.indexOf('/') >= 0 || userName.indexOf('\\') >= 0 || userName.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("Not a valid user name: " + userName);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package org.blimpit.utils.loghandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * The format of a compressed log file, written by {@link LogSegmentCompactor} from one or more rolled files of a user.
+ * <p>
+ * The entries are cut into blocks of whole lines, about a block size each, and every block is deflated on its own.
+ * The blocks are followed by their index, the time of the first entry, offset, compressed and uncompressed size of
+ * every block, then by a trailer holding the offset of the index, the number of blocks and a magic number. A range
+ * query binary searches the index for the last block starting before the range, and only inflates the blocks from
+ * there, see {@link CompressedLogFileReader}.
+ * <p>
+ * A file is written under a temporary name, then renamed, so that a compressed file is always complete.
+ */
+class CompressedLogFile {
+
+    static final String FILE_SUFFIX = ".logz";
+    static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    static final int MAGIC = 0x424C4F47;
+    static final int BLOCK_INDEX_ENTRY_SIZE = 2 * Long.BYTES + 2 * Integer.BYTES;
+    static final int TRAILER_SIZE = Long.BYTES + 2 * Integer.BYTES;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private CompressedLogFile() {
+
+    }
+
+    /**
+     * Compresses the entries of the given files, in order, into a file. An incomplete last entry of a file is left out.
+     * @param sources   log files, oldest first, rolled or compressed
+     * @param target    the compressed file, replaced if it exists
+     * @param blockSize size of the uncompressed entries of a block
+     * @throws IOException
+     */
+    static void compress(List<Path> sources, Path target, int blockSize) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + TEMPORARY_FILE_SUFFIX);
+        Deflater deflater = new Deflater();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            BlockWriter writer = new BlockWriter(channel, deflater, Math.max(256, blockSize));
+            byte[] chunk = new byte[READ_BUFFER_SIZE];
+            for (Path source : sources) {
+                if (source.getFileName().toString().endsWith(FILE_SUFFIX)) {
+                    try (CompressedLogFileReader reader = new CompressedLogFileReader(source, Long.MIN_VALUE)) {
+                        while (reader.nextBlock()) {
+                            writer.write(reader.getBlock(), reader.getBlockLength());
+                        }
+                    }
+                } else {
+                    try (InputStream in = Files.newInputStream(source)) {
+                        int read;
+                        while ((read = in.read(chunk)) > 0) {
+                            writer.write(chunk, read);
+                        }
+                    }
+                }
+                writer.dropIncompleteLine();
+            }
+            writer.finish();
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        } finally {
+            deflater.end();
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the block index of a compressed file
+     * @param channel
+     * @return the times, offsets, compressed sizes and uncompressed sizes of the blocks
+     * @throws IOException if the file is not a complete compressed file
+     */
+    static long[][] readBlockIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < TRAILER_SIZE) {
+            throw new IOException("Not a compressed log file");
+        }
+        ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+        long indexOffset = trailer.getLong();
+        int count = trailer.getInt();
+        if (trailer.getInt() != MAGIC || count < 0
+                || indexOffset + (long) count * BLOCK_INDEX_ENTRY_SIZE != size - TRAILER_SIZE) {
+            throw new IOException("Not a compressed log file");
+        }
+        ByteBuffer index = readFully(channel, indexOffset, count * BLOCK_INDEX_ENTRY_SIZE);
+        long[][] blocks = new long[4][count];
+        for (int i = 0; i < count; i++) {
+            blocks[0][i] = index.getLong();
+            blocks[1][i] = index.getLong();
+            blocks[2][i] = index.getInt();
+            blocks[3][i] = index.getInt();
+        }
+        return blocks;
+    }
+
+    static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of a compressed log file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Cuts the entries into blocks and writes them deflated, then the index of the blocks
+     */
+    private static class BlockWriter {
+
+        private final FileChannel channel;
+        private final Deflater deflater;
+        private final int blockSize;
+        private byte[] block;
+        private int blockLength;
+        // end of the last complete line of the block
+        private int lineEnd;
+        private byte[] compressed;
+        private long offset;
+        private long[] timestamps = new long[16];
+        private long[] offsets = new long[16];
+        private int[] compressedSizes = new int[16];
+        private int[] sizes = new int[16];
+        private int count;
+
+        BlockWriter(FileChannel channel, Deflater deflater, int blockSize) throws IOException {
+            this.channel = channel;
+            this.deflater = deflater;
+            this.blockSize = blockSize;
+            this.block = new byte[blockSize];
+            this.compressed = new byte[blockSize + blockSize / 8 + 64];
+            this.offset = channel.position();
+        }
+
+        void write(byte[] bytes, int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                if (blockLength == block.length) {
+                    // a line longer than a block
+                    block = Arrays.copyOf(block, block.length * 2);
+                }
+                byte b = bytes[i];
+                block[blockLength++] = b;
+                if (b == '\n') {
+                    lineEnd = blockLength;
+                    if (blockLength >= blockSize) {
+                        writeBlock();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Leaves out the bytes after the last complete line, the incomplete last entry of a file
+         */
+        void dropIncompleteLine() {
+            blockLength = lineEnd;
+        }
+
+        void finish() throws IOException {
+            dropIncompleteLine();
+            if (blockLength > 0) {
+                writeBlock();
+            }
+            ByteBuffer index = ByteBuffer.allocate(count * BLOCK_INDEX_ENTRY_SIZE + TRAILER_SIZE);
+            for (int i = 0; i < count; i++) {
+                index.putLong(timestamps[i]).putLong(offsets[i]).putInt(compressedSizes[i]).putInt(sizes[i]);
+            }
+            index.putLong(offset).putInt(count).putInt(MAGIC);
+            index.flip();
+            writeFully(index);
+        }
+
+        private void writeBlock() throws IOException {
+            deflater.reset();
+            deflater.setInput(block, 0, blockLength);
+            deflater.finish();
+            int compressedSize = 0;
+            while (!deflater.finished()) {
+                if (compressedSize == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                compressedSize += deflater.deflate(compressed, compressedSize, compressed.length - compressedSize);
+            }
+            if (count == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+                compressedSizes = Arrays.copyOf(compressedSizes, count * 2);
+                sizes = Arrays.copyOf(sizes, count * 2);
+            }
+            timestamps[count] = parseTimestamp(block);
+            offsets[count] = offset;
+            compressedSizes[count] = compressedSize;
+            sizes[count] = blockLength;
+            count++;
+            writeFully(ByteBuffer.wrap(compressed, 0, compressedSize));
+            offset += compressedSize;
+            blockLength = 0;
+            lineEnd = 0;
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private static long parseTimestamp(byte[] line) {
+            long timestamp = 0;
+            for (byte b : line) {
+                if (b < '0' || b > '9') {
+                    break;
+                }
+                timestamp = timestamp * 10 + (b - '0');
+            }
+            return timestamp;
+        }
+    }
+}
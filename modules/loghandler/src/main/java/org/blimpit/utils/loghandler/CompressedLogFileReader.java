@@ -0,0 +1,161 @@
+package org.blimpit.utils.loghandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the entries of a compressed log file one at a time, from the last block starting before a given time.
+ * A block is inflated when its first entry is read, and only one block is held in memory.
+ */
+class CompressedLogFileReader implements LogEntryReader {
+
+    private final FileChannel channel;
+    private final long[][] blocks;
+    private final Inflater inflater = new Inflater();
+    private int nextBlock;
+    private byte[] block = new byte[0];
+    private int blockLength;
+    private int lineStart;
+    private int lineEnd = -1;
+    private long timestamp;
+
+    /**
+     * @param file
+     * @param begin time of the first entry read, in milliseconds since the epoch
+     * @throws IOException
+     */
+    CompressedLogFileReader(Path file, long begin) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.blocks = CompressedLogFile.readBlockIndex(channel);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        this.nextBlock = findStartBlock(blocks[0], begin);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        int start = lineEnd + 1;
+        while (start >= blockLength) {
+            if (nextBlock >= blocks[0].length) {
+                return false;
+            }
+            inflate(nextBlock++);
+            start = 0;
+        }
+        int end = start;
+        long value = 0;
+        boolean inTimestamp = true;
+        byte b;
+        // a block only holds whole lines
+        while ((b = block[end]) != '\n') {
+            if (inTimestamp) {
+                if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                } else {
+                    inTimestamp = false;
+                }
+            }
+            end++;
+        }
+        lineStart = start;
+        lineEnd = end;
+        timestamp = value;
+        return true;
+    }
+
+    /**
+     * Inflates the next block, for the entries to be copied as they are
+     * @return false if there is no more block
+     * @throws IOException
+     */
+    boolean nextBlock() throws IOException {
+        if (nextBlock >= blocks[0].length) {
+            return false;
+        }
+        inflate(nextBlock++);
+        return true;
+    }
+
+    /**
+     * Returns the entries of the current block, up to its length
+     * @return
+     */
+    byte[] getBlock() {
+        return block;
+    }
+
+    int getBlockLength() {
+        return blockLength;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public LogEntry getEntry() {
+        return new LogEntry(timestamp, new String(block, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    /**
+     * Returns the last block starting before the given time, where the entries of the range start
+     */
+    private static int findStartBlock(long[] timestamps, long begin) {
+        int low = 0;
+        int high = timestamps.length - 1;
+        int found = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] < begin) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    private void inflate(int index) throws IOException {
+        ByteBuffer compressed = CompressedLogFile.readFully(channel, blocks[1][index], (int) blocks[2][index]);
+        int size = (int) blocks[3][index];
+        if (block.length < size) {
+            block = new byte[size];
+        }
+        inflater.reset();
+        inflater.setInput(compressed.array(), 0, compressed.limit());
+        try {
+            int inflated = 0;
+            while (inflated < size && !inflater.finished()) {
+                int count = inflater.inflate(block, inflated, size - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != size || block[size - 1] != '\n') {
+                throw new IOException("Corrupted block in a compressed log file");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted block in a compressed log file", e);
+        }
+        blockLength = size;
+        lineEnd = -1;
+    }
+}
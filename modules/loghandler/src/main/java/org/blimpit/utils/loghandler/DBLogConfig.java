@@ -0,0 +1,100 @@
+package org.blimpit.utils.loghandler;
+
+/**
+ * Settings of the entries stored in the DB by {@link BlimpItLogHandler}.
+ */
+public class DBLogConfig {
+
+    public static final String DEFAULT_TABLE_NAME = "blimpit_logs";
+    public static final int DEFAULT_BUFFER_SIZE = 16384;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+    public static final long DEFAULT_FLUSH_INTERVAL_IN_MS = 1000;
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private String tableName = DEFAULT_TABLE_NAME;
+    private boolean createTable = true;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private long flushIntervalInMS = DEFAULT_FLUSH_INTERVAL_IN_MS;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    /**
+     * Table the entries are stored in
+     * @return
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    public DBLogConfig setTableName(String tableName) {
+        this.tableName = tableName;
+        return this;
+    }
+
+    /**
+     * Whether the table and its (user, time) index are created when they do not exist yet
+     * @return
+     */
+    public boolean isCreateTable() {
+        return createTable;
+    }
+
+    public DBLogConfig setCreateTable(boolean createTable) {
+        this.createTable = createTable;
+        return this;
+    }
+
+    /**
+     * Number of entries waiting to be stored, rounded up to a power of two. Entries stored while the buffer is full
+     * are dropped, so that a slow DB never blocks the callers.
+     * @return
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public DBLogConfig setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Maximum number of entries written by one multi-row INSERT. A batch is written as soon as this many entries are
+     * waiting.
+     * @return
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public DBLogConfig setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    /**
+     * Maximum time an entry waits for its batch to fill up before it is written
+     * @return
+     */
+    public long getFlushIntervalInMS() {
+        return flushIntervalInMS;
+    }
+
+    public DBLogConfig setFlushIntervalInMS(long flushIntervalInMS) {
+        this.flushIntervalInMS = flushIntervalInMS;
+        return this;
+    }
+
+    /**
+     * Number of entries the server sends at a time when they are read
+     * @return
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public DBLogConfig setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+}
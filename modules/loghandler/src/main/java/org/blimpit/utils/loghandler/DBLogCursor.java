@@ -0,0 +1,81 @@
+package org.blimpit.utils.loghandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks the entries read from the DB by {@link DBLogSink}, oldest first, one row at a time. The cursor holds a
+ * connection until it is closed or exhausted.
+ */
+class DBLogCursor implements Iterator<LogEntry>, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DBLogCursor.class);
+
+    private final Connection connection;
+    private final ResultSet resultSet;
+    private LogEntry next;
+    private boolean done;
+
+    DBLogCursor(Connection connection, ResultSet resultSet) {
+        this.connection = connection;
+        this.resultSet = resultSet;
+    }
+
+    /**
+     * @throws LogHandlerException if the next entry cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        try {
+            if (resultSet.next()) {
+                next = LogEntry.of(resultSet.getLong(1), resultSet.getString(2));
+                return true;
+            }
+        } catch (SQLException e) {
+            close();
+            throw new LogHandlerException("Could not read the next log entries", e);
+        }
+        close();
+        return false;
+    }
+
+    @Override
+    public LogEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LogEntry entry = next;
+        next = null;
+        return entry;
+    }
+
+    /**
+     * Returns the connection. The cursor returns no more entry after it.
+     */
+    @Override
+    public void close() {
+        if (done) {
+            return;
+        }
+        done = true;
+        try {
+            // closing the connection also closes the statement and the result set
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.warn("Could not close the connection of a log cursor", e);
+        }
+    }
+}
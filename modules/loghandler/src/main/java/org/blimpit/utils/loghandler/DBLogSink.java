@@ -0,0 +1,269 @@
+package org.blimpit.utils.loghandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stores log entries in a table of a DB. storeLogInDB only hands the entry over to a ring buffer and a writer thread
+ * inserts the entries with multi-row INSERT statements, as soon as a batch is full or once the oldest waiting entry
+ * has waited for the flush interval. An entry stored while the ring is full is dropped instead of waiting for the DB.
+ * <p>
+ * The table is indexed on (user, time), so that reading the entries of a user in a time range is a range scan of the
+ * index.
+ */
+class DBLogSink {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DBLogSink.class);
+
+    private static final String WRITER_THREAD_NAME = "blimpit-loghandler-db-writer";
+    private static final long IDLE_PARK_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final DataSource dataSource;
+    private final DBLogConfig config;
+    private final String table;
+    private final LogRingBuffer ringBuffer;
+    private final int maxBatchSize;
+    private final long flushIntervalInNanos;
+    private final String fullBatchStatement;
+    private final String[] userNames;
+    private final String[] activities;
+    private final long[] timestamps;
+    private final Thread writer;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile boolean running = true;
+    // the last sequence the writer is done with, written or failed
+    private volatile long writtenSequence = -1;
+    // the last sequence a caller of flush waits for, written at once whatever the size of its batch
+    private final AtomicLong flushSequence = new AtomicLong(-1);
+    // only written by the writer
+    private volatile long storedCount;
+    private volatile long failedCount;
+    private volatile long flushCount;
+    private volatile long totalFlushTimeInNanos;
+    private volatile long maxFlushTimeInNanos;
+
+    DBLogSink(DataSource dataSource, DBLogConfig config) {
+        this.dataSource = dataSource;
+        this.config = config;
+        this.table = quoteIdentifier(config.getTableName());
+        this.ringBuffer = new LogRingBuffer(config.getBufferSize());
+        this.maxBatchSize = Math.max(1, Math.min(config.getMaxBatchSize(), ringBuffer.getCapacity()));
+        this.flushIntervalInNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalInMS());
+        this.fullBatchStatement = getInsertStatement(maxBatchSize);
+        this.userNames = new String[maxBatchSize];
+        this.activities = new String[maxBatchSize];
+        this.timestamps = new long[maxBatchSize];
+        if (config.isCreateTable()) {
+            createTable();
+        }
+        this.writer = new Thread(this::run, WRITER_THREAD_NAME);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Hands the entry over to the writer
+     * @param userName
+     * @param activity
+     * @param timestamp
+     * @return false if the entry was dropped because the buffer is full
+     */
+    boolean store(String userName, String activity, long timestamp) {
+        long sequence = ringBuffer.tryClaim();
+        if (sequence < 0) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        ringBuffer.get(sequence).set(userName, activity, timestamp);
+        ringBuffer.publish(sequence);
+        return true;
+    }
+
+    /**
+     * Waits until the entries stored before the call have been written, or refused by the DB
+     */
+    void flush() {
+        long sequence = ringBuffer.getClaimedSequence();
+        flushSequence.accumulateAndGet(sequence, Math::max);
+        LockSupport.unpark(writer);
+        while (writtenSequence < sequence && writer.isAlive()) {
+            LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * Writes the waiting entries and stops the writer
+     */
+    void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    DBLogStatistics getStatistics() {
+        long pending = Math.max(0, ringBuffer.getClaimedSequence() - writtenSequence);
+        return new DBLogStatistics(pending, storedCount, droppedCount.get(), failedCount, flushCount,
+                totalFlushTimeInNanos, maxFlushTimeInNanos);
+    }
+
+    /**
+     * Runs the query on the entries of the user
+     * @param userName
+     * @param query
+     * @return a cursor over the entries, to be closed
+     * @throws LogHandlerException if the query cannot be run
+     */
+    DBLogCursor openCursor(String userName, LogQuery query) {
+        StringBuilder sql = new StringBuilder("SELECT `logged_at`, `activity` FROM ").append(table)
+                .append(" WHERE `user_name` = ? AND `logged_at` >= ? AND `logged_at` <= ?")
+                .append(" ORDER BY `logged_at`, `id`");
+        long offset = Math.max(0, query.getOffset());
+        if (query.getLimit() != LogQuery.NO_LIMIT || offset > 0) {
+            // MySQL only takes an offset after a limit
+            sql.append(" LIMIT ? OFFSET ?");
+        }
+        try {
+            Connection connection = dataSource.getConnection();
+            try {
+                PreparedStatement statement = connection.prepareStatement(sql.toString());
+                statement.setFetchSize(config.getFetchSize());
+                statement.setString(1, userName);
+                statement.setLong(2, query.getBeginTimestamp());
+                statement.setLong(3, query.getEndTimestamp());
+                if (query.getLimit() != LogQuery.NO_LIMIT || offset > 0) {
+                    statement.setLong(4, query.getLimit() == LogQuery.NO_LIMIT ? Long.MAX_VALUE : query.getLimit());
+                    statement.setLong(5, offset);
+                }
+                return new DBLogCursor(connection, statement.executeQuery());
+            } catch (SQLException e) {
+                // closing the connection also closes the statement
+                connection.close();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new LogHandlerException("Could not read the log entries of " + userName, e);
+        }
+    }
+
+    private void createTable() {
+        String sql = "CREATE TABLE IF NOT EXISTS " + table + " ("
+                + "`id` BIGINT NOT NULL AUTO_INCREMENT, "
+                + "`user_name` VARCHAR(255) NOT NULL, "
+                + "`logged_at` BIGINT NOT NULL, "
+                + "`activity` TEXT, "
+                + "PRIMARY KEY (`id`), "
+                + "INDEX " + quoteIdentifier(config.getTableName() + "_user_time")
+                + " (`user_name`, `logged_at`, `id`))";
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            // the entries are still inserted, which fails unless the table was created otherwise
+            LOGGER.error("Could not create the log table {}", table, e);
+        }
+    }
+
+    private void run() {
+        long next = 0;
+        long pendingSince = 0;
+        while (true) {
+            long available = ringBuffer.getHighestPublished(next);
+            long pending = available - next + 1;
+            if (pending > 0) {
+                long now = System.nanoTime();
+                if (pendingSince == 0) {
+                    pendingSince = now;
+                }
+                if (pending >= maxBatchSize || flushSequence.get() >= next || !running
+                        || now - pendingSince >= flushIntervalInNanos) {
+                    int count = (int) Math.min(pending, maxBatchSize);
+                    take(next, count);
+                    insert(count);
+                    next += count;
+                    writtenSequence = next - 1;
+                    pendingSince = pending > count ? now : 0;
+                    continue;
+                }
+            } else if (!running && ringBuffer.getClaimedSequence() < next) {
+                break;
+            }
+            LockSupport.parkNanos(IDLE_PARK_IN_NANOS);
+        }
+    }
+
+    /**
+     * Copies the entries out of the ring and hands their slots back to the producers
+     * @param from
+     * @param count
+     */
+    private void take(long from, int count) {
+        for (int i = 0; i < count; i++) {
+            LogEvent event = ringBuffer.get(from + i);
+            userNames[i] = event.getUserName();
+            activities[i] = event.getActivity();
+            timestamps[i] = event.getTimestamp();
+            event.clear();
+        }
+        ringBuffer.release(from + count - 1);
+    }
+
+    private void insert(int count) {
+        long start = System.nanoTime();
+        String sql = count == maxBatchSize ? fullBatchStatement : getInsertStatement(count);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            for (int i = 0; i < count; i++) {
+                statement.setString(parameter++, userNames[i]);
+                statement.setLong(parameter++, timestamps[i]);
+                statement.setString(parameter++, activities[i]);
+            }
+            statement.executeUpdate();
+            storedCount += count;
+        } catch (SQLException e) {
+            failedCount += count;
+            LOGGER.error("Could not insert {} log entries into {}", count, table, e);
+        }
+        for (int i = 0; i < count; i++) {
+            userNames[i] = null;
+            activities[i] = null;
+        }
+        long time = System.nanoTime() - start;
+        flushCount++;
+        totalFlushTimeInNanos += time;
+        if (time > maxFlushTimeInNanos) {
+            maxFlushTimeInNanos = time;
+        }
+    }
+
+    private String getInsertStatement(int rows) {
+        StringBuilder sql = new StringBuilder(64 + rows * 10).append("INSERT INTO ").append(table)
+                .append(" (`user_name`, `logged_at`, `activity`) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Quotes a table or index name, so that it cannot change the statement it is placed in
+     * @param identifier
+     * @return
+     */
+    private static String quoteIdentifier(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+}
@@ -0,0 +1,95 @@
+package org.blimpit.utils.loghandler;
+
+/**
+ * A snapshot of the counters of the entries stored in the DB by {@link BlimpItLogHandler}
+ */
+public class DBLogStatistics {
+
+    private final long pendingCount;
+    private final long storedCount;
+    private final long droppedCount;
+    private final long failedCount;
+    private final long flushCount;
+    private final long totalFlushTimeInNanos;
+    private final long maxFlushTimeInNanos;
+
+    DBLogStatistics(long pendingCount, long storedCount, long droppedCount, long failedCount, long flushCount,
+                    long totalFlushTimeInNanos, long maxFlushTimeInNanos) {
+        this.pendingCount = pendingCount;
+        this.storedCount = storedCount;
+        this.droppedCount = droppedCount;
+        this.failedCount = failedCount;
+        this.flushCount = flushCount;
+        this.totalFlushTimeInNanos = totalFlushTimeInNanos;
+        this.maxFlushTimeInNanos = maxFlushTimeInNanos;
+    }
+
+    /**
+     * Number of entries waiting to be written
+     * @return
+     */
+    public long getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Number of entries inserted into the DB
+     * @return
+     */
+    public long getStoredCount() {
+        return storedCount;
+    }
+
+    /**
+     * Number of entries dropped because the buffer was full
+     * @return
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Number of entries lost because the DB refused their batch
+     * @return
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Number of batches written
+     * @return
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Average time taken to write a batch
+     * @return
+     */
+    public double getAverageFlushTimeInMS() {
+        return flushCount == 0 ? 0 : totalFlushTimeInNanos / 1e6 / flushCount;
+    }
+
+    /**
+     * Longest time taken to write a batch
+     * @return
+     */
+    public double getMaxFlushTimeInMS() {
+        return maxFlushTimeInNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return "DBLogStatistics{" +
+                "pendingCount=" + pendingCount +
+                ", storedCount=" + storedCount +
+                ", droppedCount=" + droppedCount +
+                ", failedCount=" + failedCount +
+                ", flushCount=" + flushCount +
+                ", averageFlushTimeInMS=" + getAverageFlushTimeInMS() +
+                ", maxFlushTimeInMS=" + getMaxFlushTimeInMS() +
+                '}';
+    }
+}
@@ -0,0 +1,241 @@
+package org.blimpit.utils.loghandler;
+
+/**
+ * Settings of the log files written by {@link BlimpItLogHandler}.
+ */
+public class FileLogConfig {
+
+    public static final int DEFAULT_RING_BUFFER_SIZE = 8192;
+    public static final int DEFAULT_BUFFER_SIZE_IN_BYTES = 64 * 1024;
+    public static final int DEFAULT_MAX_OPEN_FILES = 64;
+    public static final FsyncPolicy DEFAULT_FSYNC_POLICY = FsyncPolicy.INTERVAL;
+    public static final long DEFAULT_FSYNC_INTERVAL_IN_MS = 1000;
+    public static final long DEFAULT_MAX_FILE_SIZE_IN_BYTES = 10 * 1024 * 1024;
+    public static final long DEFAULT_ROLLING_INTERVAL_IN_MS = 24 * 60 * 60 * 1000;
+    public static final int DEFAULT_INDEX_INTERVAL = 128;
+    public static final boolean DEFAULT_COMPRESS_ROLLED_FILES = true;
+    public static final int DEFAULT_COMPRESSION_BLOCK_SIZE_IN_BYTES = 64 * 1024;
+    public static final long DEFAULT_MAX_COMPACTED_FILE_SIZE_IN_BYTES = 64 * 1024 * 1024;
+    public static final long DEFAULT_COMPACTION_INTERVAL_IN_MS = 60 * 1000;
+    public static final long DEFAULT_RETENTION_AGE_IN_MS = 0;
+    public static final long DEFAULT_RETENTION_SIZE_IN_BYTES = 0;
+
+    /**
+     * When the written entries are forced to the disk
+     */
+    public enum FsyncPolicy {
+        /**
+         * Left to the operating system, entries written shortly before a crash of the machine may be lost
+         */
+        NEVER,
+        /**
+         * After every batch of entries, the writer waiting for the disk before it takes the next batch
+         */
+        EVERY_BATCH,
+        /**
+         * At most once every fsync interval, which bounds the entries lost in a crash of the machine
+         */
+        INTERVAL
+    }
+
+    private int ringBufferSize = DEFAULT_RING_BUFFER_SIZE;
+    private int bufferSizeInBytes = DEFAULT_BUFFER_SIZE_IN_BYTES;
+    private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+    private FsyncPolicy fsyncPolicy = DEFAULT_FSYNC_POLICY;
+    private long fsyncIntervalInMS = DEFAULT_FSYNC_INTERVAL_IN_MS;
+    private long maxFileSizeInBytes = DEFAULT_MAX_FILE_SIZE_IN_BYTES;
+    private long rollingIntervalInMS = DEFAULT_ROLLING_INTERVAL_IN_MS;
+    private int indexInterval = DEFAULT_INDEX_INTERVAL;
+    private boolean compressRolledFiles = DEFAULT_COMPRESS_ROLLED_FILES;
+    private int compressionBlockSizeInBytes = DEFAULT_COMPRESSION_BLOCK_SIZE_IN_BYTES;
+    private long maxCompactedFileSizeInBytes = DEFAULT_MAX_COMPACTED_FILE_SIZE_IN_BYTES;
+    private long compactionIntervalInMS = DEFAULT_COMPACTION_INTERVAL_IN_MS;
+    private long retentionAgeInMS = DEFAULT_RETENTION_AGE_IN_MS;
+    private long retentionSizeInBytes = DEFAULT_RETENTION_SIZE_IN_BYTES;
+
+    /**
+     * Number of entries waiting to be written before logging blocks, rounded up to a power of two
+     * @return
+     */
+    public int getRingBufferSize() {
+        return ringBufferSize;
+    }
+
+    public FileLogConfig setRingBufferSize(int ringBufferSize) {
+        this.ringBufferSize = ringBufferSize;
+        return this;
+    }
+
+    /**
+     * Size of the buffer the entries of a user are encoded into before they are written to the file
+     * @return
+     */
+    public int getBufferSizeInBytes() {
+        return bufferSizeInBytes;
+    }
+
+    public FileLogConfig setBufferSizeInBytes(int bufferSizeInBytes) {
+        this.bufferSizeInBytes = bufferSizeInBytes;
+        return this;
+    }
+
+    /**
+     * Maximum number of user files kept open, the least recently written one is closed to open another one
+     * @return
+     */
+    public int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    public FileLogConfig setMaxOpenFiles(int maxOpenFiles) {
+        this.maxOpenFiles = maxOpenFiles;
+        return this;
+    }
+
+    /**
+     * When the written entries are forced to the disk
+     * @return
+     */
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public FileLogConfig setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+        return this;
+    }
+
+    /**
+     * Minimum time between two fsyncs with {@link FsyncPolicy#INTERVAL}
+     * @return
+     */
+    public long getFsyncIntervalInMS() {
+        return fsyncIntervalInMS;
+    }
+
+    public FileLogConfig setFsyncIntervalInMS(long fsyncIntervalInMS) {
+        this.fsyncIntervalInMS = fsyncIntervalInMS;
+        return this;
+    }
+
+    /**
+     * A user file is rolled once it reaches this size
+     * @return
+     */
+    public long getMaxFileSizeInBytes() {
+        return maxFileSizeInBytes;
+    }
+
+    public FileLogConfig setMaxFileSizeInBytes(long maxFileSizeInBytes) {
+        this.maxFileSizeInBytes = maxFileSizeInBytes;
+        return this;
+    }
+
+    /**
+     * A user file is rolled once its first entry is older than this, 0 to only roll by size
+     * @return
+     */
+    public long getRollingIntervalInMS() {
+        return rollingIntervalInMS;
+    }
+
+    public FileLogConfig setRollingIntervalInMS(long rollingIntervalInMS) {
+        this.rollingIntervalInMS = rollingIntervalInMS;
+        return this;
+    }
+
+    /**
+     * Number of entries between two entries of the sparse index of a log file. A range query reads at most this many
+     * entries before the first one it returns.
+     * @return
+     */
+    public int getIndexInterval() {
+        return indexInterval;
+    }
+
+    public FileLogConfig setIndexInterval(int indexInterval) {
+        this.indexInterval = indexInterval;
+        return this;
+    }
+
+    /**
+     * Whether rolled files are compressed by a background thread, see {@link #getCompactionIntervalInMS()}
+     * @return
+     */
+    public boolean isCompressRolledFiles() {
+        return compressRolledFiles;
+    }
+
+    public FileLogConfig setCompressRolledFiles(boolean compressRolledFiles) {
+        this.compressRolledFiles = compressRolledFiles;
+        return this;
+    }
+
+    /**
+     * Size of the uncompressed entries compressed together in a block of a compressed file. A range query
+     * decompresses at most a block before the first entry it returns.
+     * @return
+     */
+    public int getCompressionBlockSizeInBytes() {
+        return compressionBlockSizeInBytes;
+    }
+
+    public FileLogConfig setCompressionBlockSizeInBytes(int compressionBlockSizeInBytes) {
+        this.compressionBlockSizeInBytes = compressionBlockSizeInBytes;
+        return this;
+    }
+
+    /**
+     * Maximum size of the uncompressed entries of a compressed file. Consecutive rolled files smaller than this are
+     * compacted into one compressed file.
+     * @return
+     */
+    public long getMaxCompactedFileSizeInBytes() {
+        return maxCompactedFileSizeInBytes;
+    }
+
+    public FileLogConfig setMaxCompactedFileSizeInBytes(long maxCompactedFileSizeInBytes) {
+        this.maxCompactedFileSizeInBytes = maxCompactedFileSizeInBytes;
+        return this;
+    }
+
+    /**
+     * Time between two passes of the background thread which compresses the rolled files and applies the retention
+     * @return
+     */
+    public long getCompactionIntervalInMS() {
+        return compactionIntervalInMS;
+    }
+
+    public FileLogConfig setCompactionIntervalInMS(long compactionIntervalInMS) {
+        this.compactionIntervalInMS = compactionIntervalInMS;
+        return this;
+    }
+
+    /**
+     * Rolled files whose entries are all older than this are deleted, 0 to keep them whatever their age
+     * @return
+     */
+    public long getRetentionAgeInMS() {
+        return retentionAgeInMS;
+    }
+
+    public FileLogConfig setRetentionAgeInMS(long retentionAgeInMS) {
+        this.retentionAgeInMS = retentionAgeInMS;
+        return this;
+    }
+
+    /**
+     * The oldest rolled files of a user are deleted while the files of the user are larger than this, 0 to keep them
+     * whatever their size. The active file is never deleted.
+     * @return
+     */
+    public long getRetentionSizeInBytes() {
+        return retentionSizeInBytes;
+    }
+
+    public FileLogConfig setRetentionSizeInBytes(long retentionSizeInBytes) {
+        this.retentionSizeInBytes = retentionSizeInBytes;
+        return this;
+    }
+}
@@ -0,0 +1,98 @@
+package org.blimpit.utils.loghandler;
+
+/**
+ * An entry of the logs of a user
+ */
+public class LogEntry {
+
+    private final long timestamp;
+    private String line;
+    private String activity;
+
+    /**
+     * @param timestamp time the entry was logged at, in milliseconds since the epoch
+     * @param line      the entry as it is stored, its time, a tab and its activity with backslashes and line breaks
+     *                  escaped
+     */
+    LogEntry(long timestamp, String line) {
+        this.timestamp = timestamp;
+        this.line = line;
+    }
+
+    /**
+     * Returns an entry read as its time and its activity, e.g. from the DB
+     * @param timestamp
+     * @param activity
+     * @return
+     */
+    static LogEntry of(long timestamp, String activity) {
+        LogEntry entry = new LogEntry(timestamp, null);
+        entry.activity = activity == null ? "null" : activity;
+        return entry;
+    }
+
+    /**
+     * Time the entry was logged at, in milliseconds since the epoch
+     * @return
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * The logged activity
+     * @return
+     */
+    public String getActivity() {
+        if (activity == null) {
+            activity = unescape(line.substring(line.indexOf('\t') + 1));
+        }
+        return activity;
+    }
+
+    /**
+     * Returns the entry as it is stored, its time, a tab and its activity with backslashes and line breaks escaped
+     * @return
+     */
+    @Override
+    public String toString() {
+        if (line == null) {
+            line = timestamp + "\t" + escape(activity);
+        }
+        return line;
+    }
+
+    private static String escape(String activity) {
+        StringBuilder escaped = new StringBuilder(activity.length() + 8);
+        for (int i = 0; i < activity.length(); i++) {
+            char c = activity.charAt(i);
+            if (c == '\\') {
+                escaped.append("\\\\");
+            } else if (c == '\n') {
+                escaped.append("\\n");
+            } else if (c == '\r') {
+                escaped.append("\\r");
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(String escaped) {
+        if (escaped.indexOf('\\') < 0) {
+            return escaped;
+        }
+        StringBuilder activity = new StringBuilder(escaped.length());
+        for (int i = 0; i < escaped.length(); i++) {
+            char c = escaped.charAt(i);
+            if (c == '\\' && i + 1 < escaped.length()) {
+                char escapedChar = escaped.charAt(++i);
+                activity.append(escapedChar == 'n' ? '\n' : escapedChar == 'r' ? '\r' : escapedChar);
+            } else {
+                activity.append(c);
+            }
+        }
+        return activity.toString();
+    }
+}
@@ -0,0 +1,175 @@
+package org.blimpit.utils.loghandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks the entries of a user selected by a {@link LogQuery}, oldest first. The entries are read as they are consumed,
+ * and only the entry being returned, or the block of a compressed file it is in, is held in memory. Stops at the first
+ * entry past the range or once the limit is reached.
+ * <p>
+ * The files of the range are all opened by the constructor, so that the cursor reads the files as they were then
+ * while the active file is rolled or the rolled files are compressed, renamed or deleted.
+ */
+class LogEntryCursor implements Iterator<LogEntry>, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogEntryCursor.class);
+
+    // times the files are listed again when one of them is replaced while they are opened
+    private static final int MAX_OPEN_ATTEMPTS = 10;
+
+    private final Deque<LogEntryReader> readers = new ArrayDeque<>();
+    private final long begin;
+    private final long end;
+    private long remainingOffset;
+    private long remainingLimit;
+    private LogEntry next;
+    private boolean done;
+
+    /**
+     * @param directory directory of the user
+     * @param query
+     * @throws LogHandlerException if the files of the range cannot be opened
+     */
+    LogEntryCursor(Path directory, LogQuery query) {
+        this.begin = query.getBeginTimestamp();
+        this.end = query.getEndTimestamp();
+        this.remainingOffset = Math.max(0, query.getOffset());
+        this.remainingLimit = query.getLimit() == LogQuery.NO_LIMIT ? Long.MAX_VALUE : query.getLimit();
+        this.done = remainingLimit <= 0;
+        if (!done) {
+            openReaders(directory);
+        }
+    }
+
+    /**
+     * @throws LogHandlerException if the next entry cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        try {
+            next = readNext();
+        } catch (IOException e) {
+            close();
+            throw new LogHandlerException("Could not read the next log entries", e);
+        }
+        if (next == null) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public LogEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LogEntry entry = next;
+        next = null;
+        if (--remainingLimit == 0) {
+            close();
+        }
+        return entry;
+    }
+
+    /**
+     * Closes the files left to read. The cursor returns no more entry after it.
+     */
+    @Override
+    public void close() {
+        done = true;
+        while (!readers.isEmpty()) {
+            closeQuietly(readers.poll());
+        }
+    }
+
+    private void openReaders(Path directory) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<Path> files = new ArrayList<>();
+                for (LogSegment segment : LogSegment.select(directory, begin, end)) {
+                    readers.add(segment.openReader(begin));
+                    files.add(segment.getFile());
+                }
+                // the files opened are the ones listed unless one was rolled, compressed or deleted meanwhile
+                if (files.equals(getFiles(LogSegment.select(directory, begin, end)))) {
+                    return;
+                }
+                close();
+                done = false;
+                if (attempt == MAX_OPEN_ATTEMPTS) {
+                    throw new LogHandlerException("Could not open the log files of " + directory
+                            + ", they keep changing", null);
+                }
+            } catch (NoSuchFileException e) {
+                close();
+                done = false;
+                if (attempt == MAX_OPEN_ATTEMPTS) {
+                    throw new LogHandlerException("Could not open the log files of " + directory, e);
+                }
+            } catch (IOException e) {
+                close();
+                throw new LogHandlerException("Could not open the log files of " + directory, e);
+            }
+        }
+    }
+
+    private static List<Path> getFiles(List<LogSegment> segments) {
+        List<Path> files = new ArrayList<>(segments.size());
+        for (LogSegment segment : segments) {
+            files.add(segment.getFile());
+        }
+        return files;
+    }
+
+    private static void closeQuietly(LogEntryReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // the entries were read, only the file could not be released
+            LOGGER.warn("Could not close a log file reader", e);
+        }
+    }
+
+    private LogEntry readNext() throws IOException {
+        while (true) {
+            LogEntryReader reader = readers.peek();
+            if (reader == null) {
+                return null;
+            }
+            while (reader.next()) {
+                long timestamp = reader.getTimestamp();
+                if (timestamp > end) {
+                    return null;
+                }
+                if (timestamp < begin) {
+                    continue;
+                }
+                if (remainingOffset > 0) {
+                    remainingOffset--;
+                    continue;
+                }
+                return reader.getEntry();
+            }
+            closeQuietly(readers.poll());
+        }
+    }
+}
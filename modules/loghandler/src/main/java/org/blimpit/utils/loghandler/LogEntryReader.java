@@ -0,0 +1,30 @@
+package org.blimpit.utils.loghandler;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the entries of a log file one at a time, see {@link LogFileReader} for the active and the rolled files and
+ * {@link CompressedLogFileReader} for the compressed ones
+ */
+interface LogEntryReader extends Closeable {
+
+    /**
+     * Moves to the next entry
+     * @return false if there is no more complete entry
+     * @throws IOException
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Time of the current entry
+     * @return
+     */
+    long getTimestamp();
+
+    /**
+     * Returns the current entry
+     * @return
+     */
+    LogEntry getEntry();
+}
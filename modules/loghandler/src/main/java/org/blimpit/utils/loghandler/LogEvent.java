@@ -0,0 +1,42 @@
+package org.blimpit.utils.loghandler;
+
+/**
+ * A slot of the {@link LogRingBuffer}, filled by a logging thread and read by the writer. The slots are allocated once
+ * and reused for every entry.
+ */
+class LogEvent {
+
+    private String userName;
+    private String activity;
+    private long timestamp;
+
+    void set(String userName, String activity, long timestamp) {
+        this.userName = userName;
+        this.activity = activity;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Drops the references to the values, so that the slot does not keep them alive until it is reused
+     */
+    void clear() {
+        this.userName = null;
+        this.activity = null;
+    }
+
+    String getUserName() {
+        return userName;
+    }
+
+    String getActivity() {
+        return activity;
+    }
+
+    /**
+     * Time the entry was logged at, in milliseconds since the epoch
+     * @return
+     */
+    long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,103 @@
+package org.blimpit.utils.loghandler;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the entries of a log file one at a time, from a given offset, through a memory mapping of the file.
+ * A file larger than a mapping is read through successive mappings. An incomplete last entry, being written or left
+ * by a crash, is not read.
+ */
+class LogFileReader implements LogEntryReader {
+
+    // entries of a file larger than this are read through successive mappings
+    private static final long MAX_MAPPED_REGION_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final long size;
+    private long regionStart;
+    private MappedByteBuffer region;
+    private int lineStart;
+    private int lineEnd = -1;
+    private long timestamp;
+    private byte[] line = new byte[256];
+
+    /**
+     * @param file
+     * @param offset offset of the first entry read
+     * @throws IOException
+     */
+    LogFileReader(Path file, long offset) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.regionStart = offset;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        int start = lineEnd + 1;
+        while (true) {
+            if (region == null || start >= region.limit()) {
+                regionStart += start;
+                if (regionStart >= size) {
+                    return false;
+                }
+                region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart,
+                        Math.min(size - regionStart, MAX_MAPPED_REGION_SIZE));
+                start = 0;
+            }
+            int limit = region.limit();
+            int end = start;
+            long value = 0;
+            boolean inTimestamp = true;
+            byte b;
+            while (end < limit && (b = region.get(end)) != '\n') {
+                if (inTimestamp) {
+                    if (b >= '0' && b <= '9') {
+                        value = value * 10 + (b - '0');
+                    } else {
+                        inTimestamp = false;
+                    }
+                }
+                end++;
+            }
+            if (end < limit) {
+                lineStart = start;
+                lineEnd = end;
+                timestamp = value;
+                return true;
+            }
+            if (start == 0) {
+                // no complete entry left in the file
+                return false;
+            }
+            // an entry across the end of the mapping, mapped again from its start
+            region = null;
+        }
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public LogEntry getEntry() {
+        int length = lineEnd - lineStart;
+        if (line.length < length) {
+            line = new byte[Math.max(length, line.length * 2)];
+        }
+        region.position(lineStart);
+        region.get(line, 0, length);
+        return new LogEntry(timestamp, new String(line, 0, length, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
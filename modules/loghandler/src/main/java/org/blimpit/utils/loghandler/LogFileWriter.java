@@ -0,0 +1,159 @@
+package org.blimpit.utils.loghandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes batches of entries taken from the ring buffer to the files of their users. The entries of a batch are encoded
+ * into the buffers of their files, and every file written by the batch is flushed once at the end of the batch, then
+ * forced to the disk as the fsync policy requires. Only used by the writer thread.
+ */
+class LogFileWriter implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogFileWriter.class);
+
+    private final Path baseDirectory;
+    private final int bufferSizeInBytes;
+    private final FileLogConfig.FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalInNanos;
+    private final long maxFileSizeInBytes;
+    private final long rollingIntervalInMS;
+    private final int indexInterval;
+    private final Map<String, UserLogFile> openFiles;
+    private final List<UserLogFile> dirtyFiles = new ArrayList<>();
+    private long lastSyncNanos = System.nanoTime();
+    private boolean unsynced;
+
+    LogFileWriter(Path baseDirectory, FileLogConfig config) {
+        this.baseDirectory = baseDirectory;
+        this.bufferSizeInBytes = config.getBufferSizeInBytes();
+        this.fsyncPolicy = config.getFsyncPolicy();
+        this.fsyncIntervalInNanos = TimeUnit.MILLISECONDS.toNanos(config.getFsyncIntervalInMS());
+        this.maxFileSizeInBytes = config.getMaxFileSizeInBytes();
+        this.rollingIntervalInMS = config.getRollingIntervalInMS();
+        this.indexInterval = config.getIndexInterval();
+        int maxOpenFiles = Math.max(1, config.getMaxOpenFiles());
+        this.openFiles = new LinkedHashMap<String, UserLogFile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserLogFile> eldest) {
+                if (size() > maxOpenFiles) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Adds an entry to the current batch
+     * @param event
+     */
+    void write(LogEvent event) {
+        String userName = event.getUserName();
+        UserLogFile file = openFiles.get(userName);
+        try {
+            if (file == null) {
+                file = new UserLogFile(baseDirectory.resolve(userName), bufferSizeInBytes, indexInterval);
+                openFiles.put(userName, file);
+            }
+            if (file.needsRolling(event.getTimestamp(), maxFileSizeInBytes, rollingIntervalInMS)) {
+                file.roll(fsyncPolicy != FileLogConfig.FsyncPolicy.NEVER);
+            }
+            boolean wasDirty = file.isDirty();
+            file.append(event.getTimestamp(), event.getActivity());
+            if (!wasDirty) {
+                dirtyFiles.add(file);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not write an entry of {}", userName, e);
+            if (file != null) {
+                // the file is opened again for the next entry of the user
+                closeQuietly(openFiles.remove(userName));
+            }
+        }
+    }
+
+    /**
+     * Writes the entries of the current batch to their files
+     */
+    void endBatch() {
+        for (UserLogFile file : dirtyFiles) {
+            try {
+                file.flush();
+            } catch (IOException e) {
+                LOGGER.error("Could not write a batch of entries to {}", file, e);
+            }
+        }
+        if (!dirtyFiles.isEmpty()) {
+            unsynced = true;
+        }
+        dirtyFiles.clear();
+        if (fsyncPolicy == FileLogConfig.FsyncPolicy.EVERY_BATCH) {
+            syncAll();
+        } else if (fsyncPolicy == FileLogConfig.FsyncPolicy.INTERVAL) {
+            syncIfDue();
+        }
+    }
+
+    /**
+     * Called while there is no entry to write, to force the last entries to the disk once the fsync interval is over
+     */
+    void onIdle() {
+        if (fsyncPolicy == FileLogConfig.FsyncPolicy.INTERVAL) {
+            syncIfDue();
+        }
+    }
+
+    /**
+     * Writes the current batch and closes every file
+     */
+    @Override
+    public void close() {
+        endBatch();
+        Iterator<UserLogFile> files = openFiles.values().iterator();
+        while (files.hasNext()) {
+            closeQuietly(files.next());
+            files.remove();
+        }
+    }
+
+    private void syncIfDue() {
+        if (unsynced && System.nanoTime() - lastSyncNanos >= fsyncIntervalInNanos) {
+            syncAll();
+        }
+    }
+
+    private void syncAll() {
+        for (UserLogFile file : openFiles.values()) {
+            try {
+                file.sync();
+            } catch (IOException e) {
+                LOGGER.error("Could not force {} to the disk", file, e);
+            }
+        }
+        unsynced = false;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    private void closeQuietly(UserLogFile file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close(fsyncPolicy != FileLogConfig.FsyncPolicy.NEVER);
+        } catch (IOException e) {
+            LOGGER.warn("Could not close {}", file, e);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package org.blimpit.utils.loghandler;
 
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
 /**
  * An interface which describes Log handling APIs.
  */
@@ -40,4 +43,50 @@ public interface LogHandler {
      * @return
      */
     String getLogsFromDB(double beginTimeStamp, double endTimeStamp, String userName);
+
+    /**
+     * Returns the entries of the user selected by the query as a stream, oldest first, which reads them as it is
+     * consumed. The stream holds an open file and must be closed, e.g. with try-with-resources.
+     *
+     * @param userName
+     * @param query    time range and page of the entries
+     * @return LogEntry stream
+     * @throws LogHandlerException if the log files cannot be opened, or when the stream is consumed if the entries
+     *                             cannot be read
+     */
+    Stream<LogEntry> streamLogs(String userName, LogQuery query);
+
+    /**
+     * Passes the entries of the user selected by the query to the consumer, one at a time, oldest first, as they are
+     * read
+     *
+     * @param userName
+     * @param query    time range and page of the entries
+     * @param consumer called with every entry, on the calling thread, returns false to stop the read
+     * @return status of the operation, false if not every entry could be read
+     */
+    boolean readLogs(String userName, LogQuery query, Predicate<LogEntry> consumer);
+
+    /**
+     * Returns the entries of the user stored in the DB selected by the query as a stream, oldest first, which reads
+     * them as it is consumed. The stream holds a connection and must be closed, e.g. with try-with-resources.
+     *
+     * @param userName
+     * @param query    time range and page of the entries
+     * @return LogEntry stream
+     * @throws LogHandlerException if the query cannot be run, or when the stream is consumed if the entries cannot be
+     *                             read
+     */
+    Stream<LogEntry> streamLogsFromDB(String userName, LogQuery query);
+
+    /**
+     * Passes the entries of the user stored in the DB selected by the query to the consumer, one at a time, oldest
+     * first, as they are read
+     *
+     * @param userName
+     * @param query    time range and page of the entries
+     * @param consumer called with every entry, on the calling thread, returns false to stop the read
+     * @return status of the operation, false if not every entry could be read
+     */
+    boolean readLogsFromDB(String userName, LogQuery query, Predicate<LogEntry> consumer);
 }
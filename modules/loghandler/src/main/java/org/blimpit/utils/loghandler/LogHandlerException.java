@@ -0,0 +1,12 @@
+package org.blimpit.utils.loghandler;
+
+/**
+ * Thrown by the operations of a {@link LogHandler} which cannot report a failure through their return value,
+ * e.g. while a stream of log entries is being consumed
+ */
+public class LogHandlerException extends RuntimeException {
+
+    public LogHandlerException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,319 @@
+package org.blimpit.utils.loghandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.slf4j.helpers.MarkerIgnoringBase;
+
+/**
+ * An SLF4J logger created by {@link LogHandlerLoggerFactory}, which logs its events to the log handler of its factory.
+ * A logger without a factory logs to the installed factory, or to the SLF4J binding while none is installed.
+ * Nothing is formatted, and no argument array is allocated, for an event whose level is not enabled.
+ */
+class LogHandlerLogger extends MarkerIgnoringBase {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient LogHandlerLoggerFactory factory;
+    private transient volatile Logger fallback;
+
+    /**
+     * @param name
+     * @param factory the factory the events are logged to, null for the installed one
+     */
+    LogHandlerLogger(String name, LogHandlerLoggerFactory factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    @Override
+    public boolean isTraceEnabled() {
+        return isEnabled(Level.TRACE);
+    }
+
+    @Override
+    public void trace(String msg) {
+        if (isEnabled(Level.TRACE)) {
+            log(Level.TRACE, msg, null, null);
+        }
+    }
+
+    @Override
+    public void trace(String format, Object arg) {
+        if (isEnabled(Level.TRACE)) {
+            log(Level.TRACE, format, new Object[]{arg}, null);
+        }
+    }
+
+    @Override
+    public void trace(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.TRACE)) {
+            log(Level.TRACE, format, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    @Override
+    public void trace(String format, Object... arguments) {
+        if (isEnabled(Level.TRACE)) {
+            log(Level.TRACE, format, arguments, null);
+        }
+    }
+
+    @Override
+    public void trace(String msg, Throwable t) {
+        if (isEnabled(Level.TRACE)) {
+            log(Level.TRACE, msg, null, t);
+        }
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    @Override
+    public void debug(String msg) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, msg, null, null);
+        }
+    }
+
+    @Override
+    public void debug(String format, Object arg) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, format, new Object[]{arg}, null);
+        }
+    }
+
+    @Override
+    public void debug(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, format, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    @Override
+    public void debug(String format, Object... arguments) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, format, arguments, null);
+        }
+    }
+
+    @Override
+    public void debug(String msg, Throwable t) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, msg, null, t);
+        }
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return isEnabled(Level.INFO);
+    }
+
+    @Override
+    public void info(String msg) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, msg, null, null);
+        }
+    }
+
+    @Override
+    public void info(String format, Object arg) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, format, new Object[]{arg}, null);
+        }
+    }
+
+    @Override
+    public void info(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, format, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    @Override
+    public void info(String format, Object... arguments) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, format, arguments, null);
+        }
+    }
+
+    @Override
+    public void info(String msg, Throwable t) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, msg, null, t);
+        }
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return isEnabled(Level.WARN);
+    }
+
+    @Override
+    public void warn(String msg) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, msg, null, null);
+        }
+    }
+
+    @Override
+    public void warn(String format, Object arg) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, format, new Object[]{arg}, null);
+        }
+    }
+
+    @Override
+    public void warn(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, format, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    @Override
+    public void warn(String format, Object... arguments) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, format, arguments, null);
+        }
+    }
+
+    @Override
+    public void warn(String msg, Throwable t) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, msg, null, t);
+        }
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return isEnabled(Level.ERROR);
+    }
+
+    @Override
+    public void error(String msg) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, msg, null, null);
+        }
+    }
+
+    @Override
+    public void error(String format, Object arg) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, format, new Object[]{arg}, null);
+        }
+    }
+
+    @Override
+    public void error(String format, Object arg1, Object arg2) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, format, new Object[]{arg1, arg2}, null);
+        }
+    }
+
+    @Override
+    public void error(String format, Object... arguments) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, format, arguments, null);
+        }
+    }
+
+    @Override
+    public void error(String msg, Throwable t) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, msg, null, t);
+        }
+    }
+
+    private boolean isEnabled(Level level) {
+        LogHandlerLoggerFactory target = factory != null ? factory : LogHandlerLoggerFactory.getInstalled();
+        return target != null ? target.isEnabled(level) : isFallbackEnabled(getFallback(), level);
+    }
+
+    private void log(Level level, String format, Object[] arguments, Throwable throwable) {
+        LogHandlerLoggerFactory target = factory != null ? factory : LogHandlerLoggerFactory.getInstalled();
+        if (target != null) {
+            target.log(name, level, format, arguments, throwable);
+        } else {
+            logToFallback(getFallback(), level, format, arguments, throwable);
+        }
+    }
+
+    private Logger getFallback() {
+        Logger logger = fallback;
+        if (logger == null) {
+            logger = LoggerFactory.getLogger(name);
+            fallback = logger;
+        }
+        return logger;
+    }
+
+    private static boolean isFallbackEnabled(Logger logger, Level level) {
+        switch (level) {
+            case TRACE:
+                return logger.isTraceEnabled();
+            case DEBUG:
+                return logger.isDebugEnabled();
+            case INFO:
+                return logger.isInfoEnabled();
+            case WARN:
+                return logger.isWarnEnabled();
+            default:
+                return logger.isErrorEnabled();
+        }
+    }
+
+    private static void logToFallback(Logger logger, Level level, String format, Object[] arguments,
+                                      Throwable throwable) {
+        switch (level) {
+            case TRACE:
+                if (throwable != null) {
+                    logger.trace(format, throwable);
+                } else if (arguments != null) {
+                    logger.trace(format, arguments);
+                } else {
+                    logger.trace(format);
+                }
+                break;
+            case DEBUG:
+                if (throwable != null) {
+                    logger.debug(format, throwable);
+                } else if (arguments != null) {
+                    logger.debug(format, arguments);
+                } else {
+                    logger.debug(format);
+                }
+                break;
+            case INFO:
+                if (throwable != null) {
+                    logger.info(format, throwable);
+                } else if (arguments != null) {
+                    logger.info(format, arguments);
+                } else {
+                    logger.info(format);
+                }
+                break;
+            case WARN:
+                if (throwable != null) {
+                    logger.warn(format, throwable);
+                } else if (arguments != null) {
+                    logger.warn(format, arguments);
+                } else {
+                    logger.warn(format);
+                }
+                break;
+            case ERROR:
+                if (throwable != null) {
+                    logger.error(format, throwable);
+                } else if (arguments != null) {
+                    logger.error(format, arguments);
+                } else {
+                    logger.error(format);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.blimpit.utils.loghandler;
+
+import org.slf4j.ILoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.MDC;
+import org.slf4j.event.Level;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Creates SLF4J loggers which hand their events over to a {@link LogHandler}, e.g. to the ring buffer of
+ * {@link BlimpItLogHandler}, so that logging costs the caller no more than logMessage. This is where the level
+ * of those loggers is set and where the time spent logging is measured.
+ * <p>
+ * An event is logged as the activity of the user found in the MDC under {@link Slf4jLogHandler#USER_KEY}, or of the
+ * default user, as its level, the name of its logger and its formatted message, followed by the stack trace of its
+ * throwable. An event the level of the factory drops is neither formatted nor counted.
+ * <p>
+ * SLF4J has no appender of its own. The loggers of a factory can be used directly, and a backend appender forwards
+ * events to a factory through {@link #log(String, Level, String, Object[], Throwable)}. Modules which report their
+ * errors through {@link #getInstalledLogger(Class)} use the factory given to {@link #install(LogHandlerLoggerFactory)},
+ * or the SLF4J binding while none is installed.
+ */
+public class LogHandlerLoggerFactory implements ILoggerFactory {
+
+    public static final String DEFAULT_USER_NAME = "system";
+    public static final Level DEFAULT_LEVEL = Level.INFO;
+
+    private static volatile LogHandlerLoggerFactory installed;
+    private static final Map<String, Logger> installedLoggers = new ConcurrentHashMap<>();
+
+    private final LogHandler logHandler;
+    private final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    private final LongAdder loggedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder loggingTimeInNanos = new LongAdder();
+    private volatile Level level = DEFAULT_LEVEL;
+    private volatile String userName = DEFAULT_USER_NAME;
+
+    /**
+     * @param logHandler handler the events are logged to
+     */
+    public LogHandlerLoggerFactory(LogHandler logHandler) {
+        this.logHandler = logHandler;
+    }
+
+    /**
+     * Makes the loggers returned by {@link #getInstalledLogger(Class)} log to the given factory
+     * @param factory the factory, null to log to the SLF4J binding again
+     */
+    public static void install(LogHandlerLoggerFactory factory) {
+        installed = factory;
+    }
+
+    /**
+     * Returns the factory the loggers returned by {@link #getInstalledLogger(Class)} log to
+     * @return the factory, or null if they log to the SLF4J binding
+     */
+    public static LogHandlerLoggerFactory getInstalled() {
+        return installed;
+    }
+
+    /**
+     * Returns a logger which logs to the installed factory, or to the SLF4J binding while none is installed. It can
+     * be kept in a static field before a factory is installed.
+     * @param type class named by the logger
+     * @return
+     */
+    public static Logger getInstalledLogger(Class<?> type) {
+        return installedLoggers.computeIfAbsent(type.getName(), name -> new LogHandlerLogger(name, null));
+    }
+
+    @Override
+    public Logger getLogger(String name) {
+        return loggers.computeIfAbsent(name, loggerName -> new LogHandlerLogger(loggerName, this));
+    }
+
+    /**
+     * Lowest level of the events logged
+     * @return
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    public LogHandlerLoggerFactory setLevel(Level level) {
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * User of the events logged while the MDC holds no user
+     * @return
+     */
+    public String getUserName() {
+        return userName;
+    }
+
+    public LogHandlerLoggerFactory setUserName(String userName) {
+        this.userName = userName;
+        return this;
+    }
+
+    /**
+     * Number of events handed over to the log handler
+     * @return
+     */
+    public long getLoggedCount() {
+        return loggedCount.sum();
+    }
+
+    /**
+     * Number of events the log handler refused, e.g. after it was shut down
+     * @return
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Average time taken to format an event and hand it over to the log handler
+     * @return
+     */
+    public double getAverageLoggingTimeInMS() {
+        long count = loggedCount.sum() + droppedCount.sum();
+        return count == 0 ? 0 : loggingTimeInNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * Returns true if events of the level are logged
+     * @param level
+     * @return
+     */
+    public boolean isEnabled(Level level) {
+        return level.toInt() >= this.level.toInt();
+    }
+
+    /**
+     * Logs an event, if its level is enabled. Never throws, as a logger must not fail its caller.
+     * @param loggerName name of the logger of the event
+     * @param level
+     * @param format     message, with a {} placeholder for every argument
+     * @param arguments  arguments of the placeholders, the last one being the throwable of the event if it is not used
+     *                   by a placeholder, or null
+     * @param throwable  throwable of the event, or null
+     */
+    public void log(String loggerName, Level level, String format, Object[] arguments, Throwable throwable) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        long start = System.nanoTime();
+        String message = format;
+        if (arguments != null) {
+            FormattingTuple tuple = MessageFormatter.arrayFormat(format, arguments);
+            message = tuple.getMessage();
+            if (throwable == null) {
+                throwable = tuple.getThrowable();
+            }
+        }
+        StringBuilder activity = new StringBuilder(64 + (message == null ? 4 : message.length()))
+                .append(level).append(' ').append(loggerName).append(" - ").append(message);
+        if (throwable != null) {
+            StringWriter stackTrace = new StringWriter();
+            throwable.printStackTrace(new PrintWriter(stackTrace));
+            activity.append('\n').append(stackTrace.getBuffer(), 0, trimmedLength(stackTrace.getBuffer()));
+        }
+        String user = MDC.get(Slf4jLogHandler.USER_KEY);
+        try {
+            try {
+                logHandler.logMessage(user == null ? userName : user, activity.toString());
+            } catch (IllegalArgumentException e) {
+                // not a valid user name for the handler
+                logHandler.logMessage(userName, activity.toString());
+            }
+            loggedCount.increment();
+        } catch (RuntimeException e) {
+            droppedCount.increment();
+        }
+        loggingTimeInNanos.add(System.nanoTime() - start);
+    }
+
+    private static int trimmedLength(CharSequence text) {
+        int length = text.length();
+        while (length > 0 && Character.isWhitespace(text.charAt(length - 1))) {
+            length--;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,87 @@
+package org.blimpit.utils.loghandler;
+
+/**
+ * Selects the entries returned by a streaming read of the logs of a user: a time range, and a page of the entries of
+ * the range, oldest first.
+ */
+public class LogQuery {
+
+    public static final int NO_LIMIT = 0;
+
+    private long beginTimestamp = Long.MIN_VALUE;
+    private long endTimestamp = Long.MAX_VALUE;
+    private long offset;
+    private int limit = NO_LIMIT;
+
+    public LogQuery() {
+
+    }
+
+    public LogQuery(LogQuery query) {
+        this.beginTimestamp = query.beginTimestamp;
+        this.endTimestamp = query.endTimestamp;
+        this.offset = query.offset;
+        this.limit = query.limit;
+    }
+
+    /**
+     * Time of the oldest entries returned, in milliseconds since the epoch, inclusive
+     * @return
+     */
+    public long getBeginTimestamp() {
+        return beginTimestamp;
+    }
+
+    public LogQuery setBeginTimestamp(long beginTimestamp) {
+        this.beginTimestamp = beginTimestamp;
+        return this;
+    }
+
+    /**
+     * Time of the newest entries returned, in milliseconds since the epoch, inclusive
+     * @return
+     */
+    public long getEndTimestamp() {
+        return endTimestamp;
+    }
+
+    public LogQuery setEndTimestamp(long endTimestamp) {
+        this.endTimestamp = endTimestamp;
+        return this;
+    }
+
+    /**
+     * Number of entries of the range skipped before the first one returned
+     * @return
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public LogQuery setOffset(long offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Maximum number of entries returned, {@link #NO_LIMIT} for every entry of the range
+     * @return
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public LogQuery setLimit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Returns the query of the page following the given number of entries, e.g. the limit of this query
+     * @param count
+     * @return
+     */
+    public LogQuery nextPage(int count) {
+        return new LogQuery(this).setOffset(offset + count);
+    }
+}
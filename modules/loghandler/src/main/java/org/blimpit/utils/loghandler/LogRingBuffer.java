@@ -0,0 +1,139 @@
+package org.blimpit.utils.loghandler;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A bounded ring of preallocated {@link LogEvent}s, filled by any number of logging threads and consumed by a single
+ * writer, as in the Disruptor. A producer claims the next sequence with a CAS, fills the slot of the sequence and
+ * publishes it. The writer reads every published sequence up to the first one which is not, then releases the slots.
+ * <p>
+ * A slot is published by storing the round of its sequence, i.e. how many times the ring wrapped before it, so that
+ * producers publishing out of order never hide each other's slots and no lock is taken on either side.
+ * A producer waits while the ring is full, as long as the writer is able to free slots, or gives up, see
+ * {@link #tryClaim()}.
+ */
+class LogRingBuffer {
+
+    private static final long FULL_RING_PARK_IN_NANOS = 1000;
+
+    private final LogEvent[] events;
+    private final int mask;
+    private final int indexShift;
+    private final AtomicIntegerArray publishedRounds;
+    private final AtomicLong claimedSequence = new AtomicLong(-1);
+    // only written by the writer
+    private volatile long releasedSequence = -1;
+
+    LogRingBuffer(int size) {
+        int capacity = Integer.highestOneBit(Math.max(2, size) - 1) << 1;
+        this.events = new LogEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new LogEvent();
+        }
+        this.mask = capacity - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(capacity);
+        this.publishedRounds = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            publishedRounds.set(i, -1);
+        }
+    }
+
+    int getCapacity() {
+        return events.length;
+    }
+
+    /**
+     * Claims the next slot, waiting while the ring is full
+     * @return the sequence of the slot
+     */
+    long claim() {
+        return claim(() -> true);
+    }
+
+    /**
+     * Claims the next slot, waiting while the ring is full for as long as the condition holds
+     * @param canWait checked while the ring is full, false once the slots will not be released any more
+     * @return the sequence of the slot, or -1 if the ring was full and the condition failed
+     */
+    long claim(BooleanSupplier canWait) {
+        while (true) {
+            long current = claimedSequence.get();
+            long next = current + 1;
+            if (next - events.length > releasedSequence) {
+                if (!canWait.getAsBoolean()) {
+                    return -1;
+                }
+                LockSupport.parkNanos(this, FULL_RING_PARK_IN_NANOS);
+            } else if (claimedSequence.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Claims the next slot if the ring is not full
+     * @return the sequence of the slot, or -1 if the ring is full
+     */
+    long tryClaim() {
+        while (true) {
+            long current = claimedSequence.get();
+            long next = current + 1;
+            if (next - events.length > releasedSequence) {
+                return -1;
+            }
+            if (claimedSequence.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    LogEvent get(long sequence) {
+        return events[(int) sequence & mask];
+    }
+
+    /**
+     * Makes the filled slot of the sequence visible to the writer
+     * @param sequence
+     */
+    void publish(long sequence) {
+        publishedRounds.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    /**
+     * Returns the last sequence claimed by a producer, published or not
+     * @return
+     */
+    long getClaimedSequence() {
+        return claimedSequence.get();
+    }
+
+    /**
+     * Returns the last of the contiguous published sequences starting at the given one
+     * @param from
+     * @return the sequence, or from - 1 if the slot of from is not published yet
+     */
+    long getHighestPublished(long from) {
+        long claimed = claimedSequence.get();
+        for (long sequence = from; sequence <= claimed; sequence++) {
+            if (publishedRounds.get((int) sequence & mask) != (int) (sequence >>> indexShift)) {
+                return sequence - 1;
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Hands the slots up to the sequence back to the producers, once the writer is done with them
+     * @param sequence
+     */
+    void release(long sequence) {
+        releasedSequence = sequence;
+    }
+
+    long getReleasedSequence() {
+        return releasedSequence;
+    }
+}
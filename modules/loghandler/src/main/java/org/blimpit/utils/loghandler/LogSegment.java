@@ -0,0 +1,401 @@
+package org.blimpit.utils.loghandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A log file of a user. The sparse index of the file, written by {@link UserLogFile}, is binary searched for the last
+ * indexed entry older than the start of a range, so that only the entries from there to the end of the range are read,
+ * by a {@link LogFileReader}.
+ * <p>
+ * The first time of a rolled file is in its name, and the times never decrease from a file to the next one, so the
+ * segments of a user which cannot hold entries of a range are skipped without being opened.
+ * <p>
+ * Rolled files are compressed in the background, see {@link CompressedLogFile}. A compressed file is named after the
+ * first and the last of the rolled files it holds, and a rolled file held by a compressed one is ignored until it is
+ * deleted, so that every entry is read once while the files are being compressed.
+ */
+class LogSegment {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogSegment.class);
+
+    static final String RANGE_SEPARATOR = "_";
+
+    // the largest index mapped
+    private static final long MAX_MAPPED_INDEX_SIZE = Integer.MAX_VALUE;
+
+    private final Path file;
+    private final long minTimestamp;
+    private final boolean compressed;
+    // the numbers of the first and the last rolled files held, see parseRolledFileNumbers
+    private final long[] firstNumbers;
+    private final long[] lastNumbers;
+
+    private LogSegment(Path file, long minTimestamp) {
+        this.file = file;
+        this.minTimestamp = minTimestamp;
+        this.compressed = false;
+        this.firstNumbers = new long[]{Long.MAX_VALUE, Long.MAX_VALUE};
+        this.lastNumbers = firstNumbers;
+    }
+
+    private LogSegment(Path file, boolean compressed) {
+        String fileName = file.getFileName().toString();
+        String suffix = compressed ? CompressedLogFile.FILE_SUFFIX : UserLogFile.FILE_SUFFIX;
+        String[] names = fileName.substring(UserLogFile.ROLLED_FILE_PREFIX.length(),
+                fileName.length() - suffix.length()).split(RANGE_SEPARATOR, 2);
+        this.file = file;
+        this.compressed = compressed;
+        this.firstNumbers = parseRolledFileNumbers(names[0]);
+        this.lastNumbers = names.length > 1 ? parseRolledFileNumbers(names[1]) : firstNumbers;
+        this.minTimestamp = firstNumbers[0];
+    }
+
+    /**
+     * Returns the segments of a user which may hold entries of the range, oldest first
+     * @param directory directory of the user
+     * @param begin     in milliseconds since the epoch, inclusive
+     * @param end       in milliseconds since the epoch, inclusive
+     * @return
+     */
+    static List<LogSegment> select(Path directory, long begin, long end) {
+        List<LogSegment> segments = getSegments(directory);
+        List<LogSegment> selected = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).minTimestamp > end) {
+                break;
+            }
+            if (i + 1 < segments.size() && segments.get(i + 1).minTimestamp < begin) {
+                // every entry of the segment is older than the first one of the next segment
+                continue;
+            }
+            selected.add(segments.get(i));
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the log files of a user, the rolled ones from the oldest to the newest, then the active one
+     * @param directory
+     * @return
+     */
+    static List<Path> getLogFiles(Path directory) {
+        List<Path> files = new ArrayList<>();
+        for (LogSegment segment : getSegments(directory)) {
+            files.add(segment.file);
+        }
+        return files;
+    }
+
+    /**
+     * Returns the time of the last entry of a log file
+     * @param file
+     * @param defaultTimestamp returned if the file has no entry
+     * @return
+     * @throws IOException
+     */
+    static long readLastTimestamp(Path file, long defaultTimestamp) throws IOException {
+        long lastTimestamp = defaultTimestamp;
+        long[] offsets = readIndex(file, Files.size(file))[1];
+        try (LogFileReader reader = new LogFileReader(file, offsets.length == 0 ? 0 : offsets[offsets.length - 1])) {
+            while (reader.next()) {
+                lastTimestamp = reader.getTimestamp();
+            }
+        }
+        return lastTimestamp;
+    }
+
+    /**
+     * Returns the segments of a user, the rolled ones from the oldest to the newest, then the active one. Rolled files
+     * held by a compressed file are left out.
+     * @param directory directory of the user
+     * @return
+     */
+    static List<LogSegment> getSegments(Path directory) {
+        List<LogSegment> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try {
+            List<LogSegment> rolledSegments = getRolledSegments(directory);
+            for (LogSegment segment : rolledSegments) {
+                if (!isHeldByAny(segment, rolledSegments)) {
+                    segments.add(segment);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not list the log files of {}", directory, e);
+        }
+        segments.sort((first, second) -> compareNumbers(first.firstNumbers, second.firstNumbers));
+        Path active = directory.resolve(UserLogFile.ACTIVE_FILE_NAME);
+        if (Files.exists(active)) {
+            try {
+                segments.add(new LogSegment(active, Files.size(active) > 0
+                        ? UserLogFile.readFirstTimestamp(active) : Long.MAX_VALUE));
+            } catch (IOException e) {
+                LOGGER.error("Could not read the first entry of {}", active, e);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Returns true if a file cannot be rolled under the given name, because a rolled file has it or a compressed file
+     * holds it
+     * @param directory directory of the user
+     * @param rolledName name of the rolled file, without its suffix
+     * @return
+     * @throws IOException
+     */
+    static boolean isRolledNameTaken(Path directory, String rolledName) throws IOException {
+        Path file = directory.resolve(rolledName + UserLogFile.FILE_SUFFIX);
+        return Files.exists(file) || isHeldByAny(new LogSegment(file, false), getRolledSegments(directory));
+    }
+
+    /**
+     * Returns the rolled and compressed files of a user which are held by a compressed file, i.e. which are left
+     * to be deleted
+     * @param directory directory of the user
+     * @return
+     * @throws IOException
+     */
+    static List<LogSegment> getHeldSegments(Path directory) throws IOException {
+        List<LogSegment> rolledSegments = getRolledSegments(directory);
+        List<LogSegment> held = new ArrayList<>();
+        for (LogSegment segment : rolledSegments) {
+            if (isHeldByAny(segment, rolledSegments)) {
+                held.add(segment);
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Returns the rolled and the compressed files of a user, held or not, in no particular order
+     */
+    private static List<LogSegment> getRolledSegments(Path directory) throws IOException {
+        List<LogSegment> segments = new ArrayList<>();
+        try (DirectoryStream<Path> rolledFiles = Files.newDirectoryStream(directory,
+                UserLogFile.ROLLED_FILE_PREFIX + "*")) {
+            for (Path file : rolledFiles) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(UserLogFile.FILE_SUFFIX)) {
+                    segments.add(new LogSegment(file, false));
+                } else if (fileName.endsWith(CompressedLogFile.FILE_SUFFIX)) {
+                    segments.add(new LogSegment(file, true));
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Returns true if the rolled files of the segment are held by another, compressed, segment: a rolled file once it
+     * is compressed, and a compressed file once it is compacted with the next rolled files
+     */
+    private static boolean isHeldByAny(LogSegment segment, List<LogSegment> segments) {
+        for (LogSegment other : segments) {
+            if (other != segment && other.compressed
+                    && compareNumbers(other.firstNumbers, segment.firstNumbers) <= 0
+                    && compareNumbers(segment.lastNumbers, other.lastNumbers) <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the compressed file the rolled files from the first segment to the last one are compacted into
+     * @param first
+     * @param last
+     * @return
+     */
+    static Path getCompressedFile(LogSegment first, LogSegment last) {
+        String name = UserLogFile.ROLLED_FILE_PREFIX + formatNumbers(first.firstNumbers);
+        if (!Arrays.equals(first.firstNumbers, last.lastNumbers)) {
+            name += RANGE_SEPARATOR + formatNumbers(last.lastNumbers);
+        }
+        return first.file.resolveSibling(name + CompressedLogFile.FILE_SUFFIX);
+    }
+
+    private static String formatNumbers(long[] numbers) {
+        return numbers[1] == 0 ? String.valueOf(numbers[0]) : numbers[0] + "-" + numbers[1];
+    }
+
+    /**
+     * Returns the numbers of the name of a rolled file: the time of its first entry, then the counter of files rolled
+     * within the same millisecond
+     */
+    private static long[] parseRolledFileNumbers(String name) {
+        String[] numbers = name.split("-");
+        long[] parsed = new long[2];
+        for (int i = 0; i < parsed.length && i < numbers.length; i++) {
+            try {
+                parsed[i] = Long.parseLong(numbers[i]);
+            } catch (NumberFormatException e) {
+                parsed[i] = 0;
+            }
+        }
+        return parsed;
+    }
+
+    private static int compareNumbers(long[] first, long[] second) {
+        int comparison = Long.compare(first[0], second[0]);
+        return comparison != 0 ? comparison : Long.compare(first[1], second[1]);
+    }
+
+    /**
+     * Opens a reader of the entries of the segment, from the last indexed entry older than the given time
+     * @param begin
+     * @return
+     * @throws IOException
+     */
+    LogEntryReader openReader(long begin) throws IOException {
+        if (compressed) {
+            return new CompressedLogFileReader(file, begin);
+        }
+        return new LogFileReader(file, findStartOffset(begin));
+    }
+
+    /**
+     * Returns the offset of the last indexed entry older than the given time, where the entries of the range start
+     * @param begin
+     * @return
+     * @throws IOException
+     */
+    long findStartOffset(long begin) throws IOException {
+        long[][] index = readIndex(file, Files.size(file));
+        long[] timestamps = index[0];
+        int low = 0;
+        int high = timestamps.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] < begin) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found < 0 ? 0 : index[1][found];
+    }
+
+    /**
+     * Reads the index of a log file
+     * @param file
+     * @param size size of the file, index entries beyond it, written before a crash or while the file is read, are
+     *             ignored
+     * @return the times and the offsets of the indexed entries, none if the file has no index
+     * @throws IOException
+     */
+    private static long[][] readIndex(Path file, long size) throws IOException {
+        Path indexFile = UserLogFile.getIndexFile(file);
+        if (!Files.exists(indexFile)) {
+            return new long[][]{new long[0], new long[0]};
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            int count = (int) Math.min(channel.size() / UserLogFile.INDEX_ENTRY_SIZE,
+                    MAX_MAPPED_INDEX_SIZE / UserLogFile.INDEX_ENTRY_SIZE);
+            long[] timestamps = new long[count];
+            long[] offsets = new long[count];
+            if (count > 0) {
+                MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        (long) count * UserLogFile.INDEX_ENTRY_SIZE);
+                for (int i = 0; i < count; i++) {
+                    long offset = index.getLong(i * UserLogFile.INDEX_ENTRY_SIZE + Long.BYTES);
+                    if (offset >= size) {
+                        count = i;
+                        break;
+                    }
+                    timestamps[i] = index.getLong(i * UserLogFile.INDEX_ENTRY_SIZE);
+                    offsets[i] = offset;
+                }
+            }
+            if (count < timestamps.length) {
+                long[] indexedTimestamps = new long[count];
+                long[] indexedOffsets = new long[count];
+                System.arraycopy(timestamps, 0, indexedTimestamps, 0, count);
+                System.arraycopy(offsets, 0, indexedOffsets, 0, count);
+                return new long[][]{indexedTimestamps, indexedOffsets};
+            }
+            return new long[][]{timestamps, offsets};
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Time of the first entry of the segment
+     * @return
+     */
+    long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Size of the entries of the segment, once decompressed
+     * @return
+     * @throws IOException
+     */
+    long getUncompressedSize() throws IOException {
+        if (!compressed) {
+            return Files.size(file);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = 0;
+            for (long blockSize : CompressedLogFile.readBlockIndex(channel)[3]) {
+                size += blockSize;
+            }
+            return size;
+        }
+    }
+
+    boolean isActive() {
+        return file.getFileName().toString().equals(UserLogFile.ACTIVE_FILE_NAME);
+    }
+
+    /**
+     * Size of the file of the segment and of its index
+     * @return
+     * @throws IOException
+     */
+    long getSize() throws IOException {
+        long size = Files.size(file);
+        if (!compressed) {
+            Path indexFile = UserLogFile.getIndexFile(file);
+            if (Files.exists(indexFile)) {
+                size += Files.size(indexFile);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Deletes the file of the segment, then its index
+     * @throws IOException
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+        if (!compressed) {
+            Files.deleteIfExists(UserLogFile.getIndexFile(file));
+        }
+    }
+}
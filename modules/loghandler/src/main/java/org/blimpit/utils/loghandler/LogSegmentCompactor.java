@@ -0,0 +1,169 @@
+package org.blimpit.utils.loghandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compresses the rolled files of the users and deletes the ones past the retention, on a background thread of
+ * {@link BlimpItLogHandler}, so that the writer never waits for it.
+ * <p>
+ * Consecutive rolled files are compacted into a compressed file holding at most the max compacted file size of
+ * entries, see {@link CompressedLogFile}, then deleted. A compressed file smaller than that is compacted again with
+ * the files rolled after it. Readers ignore a rolled file as soon as a compressed file holds
+ * it, and a reader which opened it before keeps reading it. The active file is never touched.
+ */
+class LogSegmentCompactor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogSegmentCompactor.class);
+
+    private final Path baseDirectory;
+    private final boolean compressRolledFiles;
+    private final int blockSizeInBytes;
+    private final long maxCompactedFileSizeInBytes;
+    private final long retentionAgeInMS;
+    private final long retentionSizeInBytes;
+
+    LogSegmentCompactor(Path baseDirectory, FileLogConfig config) {
+        this.baseDirectory = baseDirectory;
+        this.compressRolledFiles = config.isCompressRolledFiles();
+        this.blockSizeInBytes = config.getCompressionBlockSizeInBytes();
+        this.maxCompactedFileSizeInBytes = config.getMaxCompactedFileSizeInBytes();
+        this.retentionAgeInMS = config.getRetentionAgeInMS();
+        this.retentionSizeInBytes = config.getRetentionSizeInBytes();
+    }
+
+    /**
+     * Returns true if there is anything to compress or delete with the given settings
+     * @param config
+     * @return
+     */
+    static boolean isNeeded(FileLogConfig config) {
+        return config.isCompressRolledFiles() || config.getRetentionAgeInMS() > 0
+                || config.getRetentionSizeInBytes() > 0;
+    }
+
+    /**
+     * Compacts the files of every user
+     */
+    void compactAll() {
+        if (!Files.isDirectory(baseDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(baseDirectory, Files::isDirectory)) {
+            for (Path directory : directories) {
+                try {
+                    compact(directory, System.currentTimeMillis());
+                } catch (IOException e) {
+                    // the other users are still compacted, this one is tried again on the next run
+                    LOGGER.error("Could not compact the log files of {}", directory, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not list the log directories of {}", baseDirectory, e);
+        }
+    }
+
+    /**
+     * Compresses the rolled files of a user, then deletes the ones past the retention
+     * @param directory directory of the user
+     * @param now       current time, in milliseconds since the epoch
+     * @throws IOException
+     */
+    void compact(Path directory, long now) throws IOException {
+        deleteLeftovers(directory);
+        if (compressRolledFiles) {
+            compress(directory);
+        }
+        applyRetention(directory, now);
+    }
+
+    /**
+     * Deletes the temporary files of an interrupted compression, and the files held by a compressed file which could
+     * not be deleted
+     */
+    private void deleteLeftovers(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                UserLogFile.ROLLED_FILE_PREFIX + "*")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(CompressedLogFile.TEMPORARY_FILE_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        for (LogSegment segment : LogSegment.getHeldSegments(directory)) {
+            segment.delete();
+        }
+    }
+
+    private void compress(Path directory) throws IOException {
+        List<LogSegment> group = new ArrayList<>();
+        long groupSize = 0;
+        for (LogSegment segment : LogSegment.getSegments(directory)) {
+            if (segment.isActive()) {
+                break;
+            }
+            long size = segment.getUncompressedSize();
+            if (!group.isEmpty() && groupSize + size > maxCompactedFileSizeInBytes) {
+                compress(group);
+                group.clear();
+                groupSize = 0;
+            }
+            group.add(segment);
+            groupSize += size;
+        }
+        compress(group);
+    }
+
+    /**
+     * Compacts the segments into a compressed file, unless they are already a compressed file
+     */
+    private void compress(List<LogSegment> group) throws IOException {
+        if (group.isEmpty() || (group.size() == 1 && group.get(0).isCompressed())) {
+            return;
+        }
+        List<Path> files = new ArrayList<>(group.size());
+        for (LogSegment segment : group) {
+            files.add(segment.getFile());
+        }
+        CompressedLogFile.compress(files, LogSegment.getCompressedFile(group.get(0), group.get(group.size() - 1)),
+                blockSizeInBytes);
+        for (LogSegment segment : group) {
+            // the files are ignored by the readers from now on
+            segment.delete();
+        }
+    }
+
+    private void applyRetention(Path directory, long now) throws IOException {
+        if (retentionAgeInMS <= 0 && retentionSizeInBytes <= 0) {
+            return;
+        }
+        List<LogSegment> segments = LogSegment.getSegments(directory);
+        int deleted = 0;
+        if (retentionAgeInMS > 0) {
+            // the entries of a segment are older than the first one of the next segment
+            while (deleted + 1 < segments.size() && !segments.get(deleted).isActive()
+                    && segments.get(deleted + 1).getMinTimestamp() <= now - retentionAgeInMS) {
+                segments.get(deleted++).delete();
+            }
+        }
+        if (retentionSizeInBytes > 0) {
+            long size = 0;
+            for (LogSegment segment : segments.subList(deleted, segments.size())) {
+                size += segment.getSize();
+            }
+            while (size > retentionSizeInBytes && deleted < segments.size() && !segments.get(deleted).isActive()) {
+                LogSegment segment = segments.get(deleted++);
+                size -= segment.getSize();
+                segment.delete();
+            }
+        }
+    }
+}
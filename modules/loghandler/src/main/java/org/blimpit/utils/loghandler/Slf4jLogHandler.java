@@ -0,0 +1,140 @@
+package org.blimpit.utils.loghandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * A class which logs the activities of the users to an SLF4J logger, so that they go through the logging pipeline
+ * of the application. The activity is the message of an INFO event, and the user is put in the MDC under
+ * {@link #USER_KEY} while it is logged, for the layout or the appenders of the backend to use.
+ * <p>
+ * Nothing is formatted or allocated for an activity the logger does not log at INFO. The logs are read where the
+ * backend writes them: the read methods of this class return no entry.
+ */
+public class Slf4jLogHandler implements LogHandler {
+
+    public static final String DEFAULT_LOGGER_NAME = "org.blimpit.activity";
+    public static final String USER_KEY = "user";
+
+    private static final Map<String, Slf4jLogHandler> instances = new ConcurrentHashMap<>();
+
+    private final Logger logger;
+
+    Slf4jLogHandler(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * A method which returns the instance logging to {@link #DEFAULT_LOGGER_NAME}
+     * @return
+     */
+    public static LogHandler getInstance() {
+        return getInstance(DEFAULT_LOGGER_NAME);
+    }
+
+    /**
+     * A method which returns the instance logging to the given logger
+     * @param loggerName name of the SLF4J logger
+     * @return
+     */
+    public static LogHandler getInstance(String loggerName) {
+        return instances.computeIfAbsent(loggerName, name -> new Slf4jLogHandler(LoggerFactory.getLogger(name)));
+    }
+
+    /**
+     * Log the given activity at INFO, with the user in the MDC. The MDC value of the calling thread is restored
+     * afterwards.
+     *
+     * @param userName
+     * @param activity
+     */
+    @Override
+    public void logMessage(String userName, String activity) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        String previousUserName = MDC.get(USER_KEY);
+        MDC.put(USER_KEY, userName);
+        try {
+            logger.info("{}", activity);
+        } finally {
+            if (previousUserName == null) {
+                MDC.remove(USER_KEY);
+            } else {
+                MDC.put(USER_KEY, previousUserName);
+            }
+        }
+    }
+
+    /**
+     * Logs the activity as {@link #logMessage(String, String)} does: storing it in a DB is left to an appender of the
+     * backend.
+     *
+     * @param username
+     * @param activity
+     */
+    @Override
+    public void storeLogInDB(String username, String activity) {
+        logMessage(username, activity);
+    }
+
+    /**
+     * The entries are held by the backend, none can be read back through this class.
+     *
+     * @return an empty string
+     */
+    @Override
+    public String getLogs(double beginTimeStamp, double endTimeStamp, String userName) {
+        return "";
+    }
+
+    /**
+     * @return an empty string, see {@link #getLogs(double, double, String)}
+     */
+    @Override
+    public String getLogsFromDB(double beginTimeStamp, double endTimeStamp, String userName) {
+        return "";
+    }
+
+    /**
+     * @return an empty stream, see {@link #getLogs(double, double, String)}
+     */
+    @Override
+    public Stream<LogEntry> streamLogs(String userName, LogQuery query) {
+        return Stream.empty();
+    }
+
+    /**
+     * The consumer is never called, see {@link #getLogs(double, double, String)}
+     *
+     * @return false, as the entries cannot be read
+     */
+    @Override
+    public boolean readLogs(String userName, LogQuery query, Predicate<LogEntry> consumer) {
+        return false;
+    }
+
+    /**
+     * @return an empty stream, see {@link #getLogs(double, double, String)}
+     */
+    @Override
+    public Stream<LogEntry> streamLogsFromDB(String userName, LogQuery query) {
+        return Stream.empty();
+    }
+
+    /**
+     * The consumer is never called, see {@link #getLogs(double, double, String)}
+     *
+     * @return false, as the entries cannot be read
+     */
+    @Override
+    public boolean readLogsFromDB(String userName, LogQuery query, Predicate<LogEntry> consumer) {
+        return false;
+    }
+}
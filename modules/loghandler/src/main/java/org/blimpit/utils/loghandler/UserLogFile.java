@@ -0,0 +1,330 @@
+package org.blimpit.utils.loghandler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The log file of a user, under the directory of the user. Entries are appended to the active file, one per line, as
+ * the time they were logged at in milliseconds since the epoch, a tab and the activity. Backslashes and line breaks of
+ * the activity are escaped, so that an entry always takes a single line.
+ * <p>
+ * Every file is a segment with a sparse index next to it, which holds the time and offset of every index interval-th
+ * entry, as two longs, so that a range query finds where to start reading without reading the file, see
+ * {@link LogSegment}. The times of a file never decrease: an entry logged by a thread just before the entry of another
+ * thread, but handed over after it, is written with the time of the latter.
+ * <p>
+ * Entries are encoded in UTF-8 into a buffer which is reused for every entry, and written to the file when the buffer
+ * is full or flushed, after which the index is. When the active file is rolled it is renamed after the time of its first
+ * entry, and so is its index, and it is left to {@link LogSegmentCompactor} from then on. Only used by the writer
+ * thread.
+ */
+class UserLogFile implements Closeable {
+
+    static final String ACTIVE_FILE_NAME = "activity.log";
+    static final String ROLLED_FILE_PREFIX = "activity-";
+    static final String FILE_SUFFIX = ".log";
+    static final String INDEX_FILE_SUFFIX = ".idx";
+    static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+
+    private static final int INDEX_BUFFER_ENTRIES = 64;
+
+    // the longest encoding of a character, escaped or not
+    private static final int MAX_CHARACTER_SIZE = 4;
+
+    private final Path directory;
+    private final ByteBuffer buffer;
+    private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(INDEX_BUFFER_ENTRIES * INDEX_ENTRY_SIZE);
+    private final byte[] digits = new byte[20];
+    private final int indexInterval;
+    private FileChannel channel;
+    private FileChannel indexChannel;
+    private long writtenSize;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private int entriesSinceIndexed;
+    private boolean dirty;
+    private boolean unsynced;
+    private boolean closed;
+
+    UserLogFile(Path directory, int bufferSizeInBytes, int indexInterval) throws IOException {
+        this.directory = directory;
+        this.indexInterval = Math.max(1, indexInterval);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(MAX_CHARACTER_SIZE * 8, bufferSizeInBytes));
+        Files.createDirectories(directory);
+        open();
+    }
+
+    /**
+     * Returns true if the active file is due to be rolled before an entry of the given time is appended
+     * @param timestamp
+     * @param maxFileSizeInBytes
+     * @param rollingIntervalInMS 0 to only roll by size
+     * @return
+     */
+    boolean needsRolling(long timestamp, long maxFileSizeInBytes, long rollingIntervalInMS) {
+        long size = getSize();
+        return size > 0 && (size >= maxFileSizeInBytes
+                || (rollingIntervalInMS > 0 && timestamp - firstTimestamp >= rollingIntervalInMS));
+    }
+
+    /**
+     * Encodes an entry into the buffer, writing the buffer to the file whenever it is full
+     * @param timestamp
+     * @param activity
+     * @throws IOException
+     */
+    void append(long timestamp, String activity) throws IOException {
+        long size = getSize();
+        timestamp = Math.max(timestamp, lastTimestamp);
+        lastTimestamp = timestamp;
+        if (size == 0) {
+            firstTimestamp = timestamp;
+        }
+        if (size == 0 || entriesSinceIndexed >= indexInterval) {
+            if (!indexBuffer.hasRemaining()) {
+                flushIndex();
+            }
+            indexBuffer.putLong(timestamp).putLong(size);
+            entriesSinceIndexed = 0;
+        }
+        entriesSinceIndexed++;
+        ensureRemaining(digits.length + 1);
+        putTimestamp(timestamp);
+        buffer.put((byte) '\t');
+        putActivity(activity == null ? "null" : activity);
+        ensureRemaining(1);
+        buffer.put((byte) '\n');
+        dirty = true;
+    }
+
+    /**
+     * Writes the buffered entries to the file, then their index entries to the index
+     * @throws IOException
+     */
+    void flush() throws IOException {
+        dirty = false;
+        if (closed) {
+            return;
+        }
+        if (buffer.position() > 0) {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    writtenSize += channel.write(buffer);
+                }
+            } finally {
+                buffer.clear();
+            }
+            unsynced = true;
+        }
+        flushIndex();
+    }
+
+    /**
+     * Forces the written entries to the disk
+     * @throws IOException
+     */
+    void sync() throws IOException {
+        if (!closed && unsynced) {
+            channel.force(false);
+            indexChannel.force(false);
+            unsynced = false;
+        }
+    }
+
+    /**
+     * Renames the active file after the time of its first entry and starts a new one
+     * @param sync whether the entries of the rolled file are forced to the disk
+     * @throws IOException
+     */
+    void roll(boolean sync) throws IOException {
+        closeChannel(sync);
+        String rolledName = ROLLED_FILE_PREFIX + firstTimestamp;
+        for (int i = 1; LogSegment.isRolledNameTaken(directory, rolledName); i++) {
+            // rolled more than once within a millisecond
+            rolledName = ROLLED_FILE_PREFIX + firstTimestamp + "-" + i;
+        }
+        // the index first, a file without an index is read from its start
+        Files.move(getIndexFile(directory.resolve(ACTIVE_FILE_NAME)), directory.resolve(rolledName + INDEX_FILE_SUFFIX));
+        Files.move(directory.resolve(ACTIVE_FILE_NAME), directory.resolve(rolledName + FILE_SUFFIX));
+        open();
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Size of the active file, with the buffered entries
+     * @return
+     */
+    long getSize() {
+        return writtenSize + buffer.position();
+    }
+
+    void close(boolean sync) throws IOException {
+        if (!closed) {
+            closeChannel(sync);
+            closed = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(false);
+    }
+
+    private void open() throws IOException {
+        Path active = directory.resolve(ACTIVE_FILE_NAME);
+        channel = FileChannel.open(active, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        try {
+            indexChannel = FileChannel.open(getIndexFile(active), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        writtenSize = channel.size();
+        if (writtenSize > 0) {
+            firstTimestamp = readFirstTimestamp(active);
+            lastTimestamp = Math.max(lastTimestamp, LogSegment.readLastTimestamp(active, firstTimestamp));
+        }
+        // the next entry is indexed, the number of entries since the last indexed one is not known
+        entriesSinceIndexed = indexInterval;
+        unsynced = false;
+    }
+
+    private void flushIndex() throws IOException {
+        if (indexBuffer.position() == 0) {
+            return;
+        }
+        indexBuffer.flip();
+        try {
+            while (indexBuffer.hasRemaining()) {
+                indexChannel.write(indexBuffer);
+            }
+        } finally {
+            indexBuffer.clear();
+        }
+    }
+
+    private void closeChannel(boolean sync) throws IOException {
+        try {
+            flush();
+            if (sync) {
+                sync();
+            }
+        } finally {
+            try {
+                channel.close();
+            } finally {
+                indexChannel.close();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return directory.resolve(ACTIVE_FILE_NAME).toString();
+    }
+
+    /**
+     * Returns the index of a log file
+     * @param file
+     * @return
+     */
+    static Path getIndexFile(Path file) {
+        String fileName = file.getFileName().toString();
+        return file.resolveSibling(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()) + INDEX_FILE_SUFFIX);
+    }
+
+    /**
+     * Reads the time of the first entry of a file written before
+     * @param file
+     * @return the time, or the last modification time of the file if its first entry cannot be read
+     * @throws IOException
+     */
+    static long readFirstTimestamp(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(21);
+            channel.read(head, 0);
+            long timestamp = 0;
+            int digitCount = 0;
+            for (int i = 0; i < head.position(); i++) {
+                byte b = head.get(i);
+                if (b == '\t') {
+                    if (digitCount > 0) {
+                        return timestamp;
+                    }
+                    break;
+                }
+                if (b < '0' || b > '9') {
+                    break;
+                }
+                timestamp = timestamp * 10 + (b - '0');
+                digitCount++;
+            }
+        }
+        return Files.getLastModifiedTime(file).toMillis();
+    }
+
+    private void ensureRemaining(int size) throws IOException {
+        if (buffer.remaining() < size) {
+            boolean wasDirty = dirty;
+            flush();
+            dirty = wasDirty;
+        }
+    }
+
+    private void putTimestamp(long timestamp) {
+        if (timestamp <= 0) {
+            buffer.put((byte) '0');
+            return;
+        }
+        int start = digits.length;
+        for (long value = timestamp; value > 0; value /= 10) {
+            digits[--start] = (byte) ('0' + value % 10);
+        }
+        buffer.put(digits, start, digits.length - start);
+    }
+
+    private void putActivity(String activity) throws IOException {
+        int length = activity.length();
+        for (int i = 0; i < length; i++) {
+            ensureRemaining(MAX_CHARACTER_SIZE);
+            char c = activity.charAt(i);
+            if (c == '\\') {
+                buffer.put((byte) '\\').put((byte) '\\');
+            } else if (c == '\n') {
+                buffer.put((byte) '\\').put((byte) 'n');
+            } else if (c == '\r') {
+                buffer.put((byte) '\\').put((byte) 'r');
+            } else if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6))
+                        .put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(activity.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, activity.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18))
+                        .put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                        .put((byte) (0x80 | codePoint >> 6 & 0x3F))
+                        .put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate cannot be encoded
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12))
+                        .put((byte) (0x80 | c >> 6 & 0x3F))
+                        .put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+}
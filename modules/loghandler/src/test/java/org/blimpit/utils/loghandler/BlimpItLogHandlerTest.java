@@ -0,0 +1,259 @@
+package org.blimpit.utils.loghandler;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BlimpItLogHandlerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        BlimpItLogHandler.shutdown();
+    }
+
+    @Test
+    public void writesEntriesToTheFilesOfTheirUsers() throws IOException {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        logHandler.logMessage("alice", "logged in");
+        logHandler.logMessage("bob", "logged in");
+        logHandler.logMessage("alice", "logged out");
+
+        assertEquals(2, activities(logHandler.getLogs(0, Long.MAX_VALUE, "alice")).size());
+        assertEquals("logged out", activities(logHandler.getLogs(0, Long.MAX_VALUE, "alice")).get(1));
+        assertEquals(1, activities(logHandler.getLogs(0, Long.MAX_VALUE, "bob")).size());
+        assertEquals("", logHandler.getLogs(0, Long.MAX_VALUE, "carol"));
+        assertTrue(Files.exists(temporaryFolder.getRoot().toPath().resolve("alice").resolve("activity.log")));
+    }
+
+    @Test
+    public void returnsTheEntriesLoggedBetweenTheGivenTimes() throws InterruptedException {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        logHandler.logMessage("alice", "before");
+        Thread.sleep(5);
+        long begin = System.currentTimeMillis();
+        logHandler.logMessage("alice", "during");
+        long end = System.currentTimeMillis();
+        Thread.sleep(5);
+        logHandler.logMessage("alice", "after");
+
+        List<String> activities = activities(logHandler.getLogs(begin, end, "alice"));
+        assertEquals(1, activities.size());
+        assertEquals("during", activities.get(0));
+    }
+
+    @Test
+    public void escapesLineBreaksAndEncodesInUtf8() throws IOException {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        String activity = "line\nbreak\r\\ caf\u00e9 \u20ac \ud83d\ude00";
+        logHandler.logMessage("alice", activity);
+        ((BlimpItLogHandler) logHandler).flush();
+
+        byte[] content = Files.readAllBytes(temporaryFolder.getRoot().toPath().resolve("alice").resolve("activity.log"));
+        String line = new String(content, StandardCharsets.UTF_8);
+        assertTrue(line.endsWith("\tline\\nbreak\\r\\\\ caf\u00e9 \u20ac \ud83d\ude00\n"));
+        assertEquals(1, line.split("\n").length);
+    }
+
+    @Test
+    public void rollsFilesBySize() throws IOException {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory(),
+                new FileLogConfig().setMaxFileSizeInBytes(100).setBufferSizeInBytes(64));
+        for (int i = 0; i < 20; i++) {
+            logHandler.logMessage("alice", "activity number " + i);
+        }
+        List<String> activities = activities(logHandler.getLogs(0, Long.MAX_VALUE, "alice"));
+        assertEquals(20, activities.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("activity number " + i, activities.get(i));
+        }
+        List<Path> files = LogSegment.getLogFiles(temporaryFolder.getRoot().toPath().resolve("alice"));
+        // four entries a file
+        assertEquals(5, files.size());
+        for (Path file : files.subList(0, files.size() - 1)) {
+            assertTrue(file.getFileName().toString().startsWith("activity-"));
+            assertTrue(Files.size(file) < 150);
+        }
+    }
+
+    @Test
+    public void rollsFilesByTime() throws IOException, InterruptedException {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory(),
+                new FileLogConfig().setRollingIntervalInMS(50));
+        logHandler.logMessage("alice", "first");
+        logHandler.logMessage("alice", "second");
+        Thread.sleep(100);
+        logHandler.logMessage("alice", "third");
+        assertEquals(3, activities(logHandler.getLogs(0, Long.MAX_VALUE, "alice")).size());
+        assertEquals(2, LogSegment.getLogFiles(temporaryFolder.getRoot().toPath().resolve("alice")).size());
+    }
+
+    @Test
+    public void appendsToTheFilesOfAPreviousInstance() {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        logHandler.logMessage("alice", "first");
+        BlimpItLogHandler.shutdown();
+        logHandler = BlimpItLogHandler.getInstance(baseDirectory(),
+                new FileLogConfig().setFsyncPolicy(FileLogConfig.FsyncPolicy.EVERY_BATCH));
+        logHandler.logMessage("alice", "second");
+        assertEquals(2, activities(logHandler.getLogs(0, Long.MAX_VALUE, "alice")).size());
+    }
+
+    @Test
+    public void writesEveryEntryOfConcurrentUsers() throws Exception {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory(),
+                new FileLogConfig().setRingBufferSize(16).setMaxOpenFiles(2));
+        int userCount = 4;
+        int entryCount = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(userCount);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int user = 0; user < userCount; user++) {
+            String userName = "user" + user;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < entryCount; i++) {
+                    logHandler.logMessage(userName, String.valueOf(i));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        for (int user = 0; user < userCount; user++) {
+            List<String> activities = activities(logHandler.getLogs(0, Long.MAX_VALUE, "user" + user));
+            assertEquals(entryCount, activities.size());
+            for (int i = 0; i < entryCount; i++) {
+                assertEquals(String.valueOf(i), activities.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void streamsPagesOfTheEntriesOfARange() {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory(),
+                new FileLogConfig().setMaxFileSizeInBytes(200).setIndexInterval(2));
+        for (int i = 0; i < 50; i++) {
+            logHandler.logMessage("alice", "activity\n" + i);
+        }
+        LogQuery query = new LogQuery().setOffset(10).setLimit(15);
+        List<String> activities;
+        try (Stream<LogEntry> entries = logHandler.streamLogs("alice", query)) {
+            activities = entries.map(LogEntry::getActivity).collect(Collectors.toList());
+        }
+        assertEquals(15, activities.size());
+        assertEquals("activity\n10", activities.get(0));
+        assertEquals("activity\n24", activities.get(14));
+
+        try (Stream<LogEntry> entries = logHandler.streamLogs("alice", query.nextPage(query.getLimit()))) {
+            assertEquals("activity\n25", entries.findFirst().get().getActivity());
+        }
+        try (Stream<LogEntry> entries = logHandler.streamLogs("alice", new LogQuery().setOffset(45))) {
+            assertEquals(5, entries.count());
+        }
+    }
+
+    @Test
+    public void stopsReadingWhenTheConsumerSaysSo() {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        for (int i = 0; i < 10; i++) {
+            logHandler.logMessage("alice", String.valueOf(i));
+        }
+        List<LogEntry> entries = new ArrayList<>();
+        assertTrue(logHandler.readLogs("alice", new LogQuery(), entry -> {
+            entries.add(entry);
+            return entries.size() < 3;
+        }));
+        assertEquals(3, entries.size());
+        assertEquals("2", entries.get(2).getActivity());
+        assertTrue(entries.get(0).getTimestamp() <= entries.get(2).getTimestamp());
+        assertTrue(logHandler.readLogs("bob", new LogQuery(), entry -> true));
+    }
+
+    @Test
+    public void rejectsUserNamesWhichAreNotPlainDirectoryNames() {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        for (String userName : new String[]{"", "..", "../alice", "alice/bob", null}) {
+            try {
+                logHandler.logMessage(userName, "activity");
+                fail("Accepted " + userName);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertArrayEquals(new String[0], temporaryFolder.getRoot().list());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsEntriesAfterShutdown() {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        BlimpItLogHandler.shutdown();
+        logHandler.logMessage("alice", "activity");
+    }
+
+    @Test
+    public void writesEveryEntryAcceptedWhileShuttingDown() throws Exception {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory(), new FileLogConfig().setRingBufferSize(8));
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                producers.add(executor.submit(() -> {
+                    try {
+                        while (true) {
+                            logHandler.logMessage("alice", "activity");
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        // shut down
+                    }
+                }));
+            }
+            Thread.sleep(50);
+            BlimpItLogHandler.shutdown();
+            for (Future<?> producer : producers) {
+                producer.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        LogHandler reopened = BlimpItLogHandler.getInstance(baseDirectory());
+        assertEquals(accepted.get(), activities(reopened.getLogs(0, Long.MAX_VALUE, "alice")).size());
+    }
+
+    private String baseDirectory() {
+        return temporaryFolder.getRoot().getAbsolutePath();
+    }
+
+    private static List<String> activities(String logs) {
+        List<String> activities = new ArrayList<>();
+        for (String line : logs.split("\n")) {
+            if (!line.isEmpty()) {
+                activities.add(line.substring(line.indexOf('\t') + 1));
+            }
+        }
+        return activities;
+    }
+}
@@ -0,0 +1,184 @@
+package org.blimpit.utils.loghandler;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DBLogSinkTest {
+
+    private static final AtomicInteger DB_COUNT = new AtomicInteger();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private JdbcDataSource dataSource;
+
+    @Before
+    public void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:logs" + DB_COUNT.incrementAndGet()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    }
+
+    @After
+    public void tearDown() {
+        BlimpItLogHandler.shutdown();
+    }
+
+    @Test
+    public void storesEntriesAndReadsThemBackByUserAndTime() {
+        LogHandler logHandler = getInstance(new DBLogConfig());
+        logHandler.storeLogInDB("alice", "logged in");
+        logHandler.storeLogInDB("bob", "logged in");
+        logHandler.storeLogInDB("alice", "line\nbreak");
+
+        String[] lines = logHandler.getLogsFromDB(0, Long.MAX_VALUE, "alice").split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].endsWith("\tlogged in"));
+        assertTrue(lines[1].endsWith("\tline\\nbreak"));
+        assertEquals("", logHandler.getLogsFromDB(0, Long.MAX_VALUE, "carol"));
+
+        try (Stream<LogEntry> entries = logHandler.streamLogsFromDB("alice", new LogQuery())) {
+            assertEquals("line\nbreak", entries.skip(1).findFirst().get().getActivity());
+        }
+    }
+
+    @Test
+    public void appliesTheRangeOffsetAndLimitOfTheQuery() throws InterruptedException {
+        LogHandler logHandler = getInstance(new DBLogConfig());
+        logHandler.storeLogInDB("alice", "before");
+        Thread.sleep(5);
+        long begin = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            logHandler.storeLogInDB("alice", "entry " + i);
+        }
+        long end = System.currentTimeMillis();
+        Thread.sleep(5);
+        logHandler.storeLogInDB("alice", "after");
+
+        LogQuery query = new LogQuery().setBeginTimestamp(begin).setEndTimestamp(end).setOffset(3).setLimit(4);
+        try (Stream<LogEntry> entries = logHandler.streamLogsFromDB("alice", query)) {
+            List<String> activities = entries.map(LogEntry::getActivity).collect(Collectors.toList());
+            assertEquals(4, activities.size());
+            assertEquals("entry 3", activities.get(0));
+            assertEquals("entry 6", activities.get(3));
+        }
+        try (Stream<LogEntry> entries = logHandler.streamLogsFromDB("alice", query.nextPage(4))) {
+            assertEquals(3, entries.count());
+        }
+        try (Stream<LogEntry> entries = logHandler.streamLogsFromDB("alice", new LogQuery().setOffset(11))) {
+            assertEquals("after", entries.findFirst().get().getActivity());
+        }
+    }
+
+    @Test
+    public void writesFullBatchesWithoutWaitingForTheInterval() throws InterruptedException {
+        BlimpItLogHandler logHandler = (BlimpItLogHandler) getInstance(new DBLogConfig()
+                .setMaxBatchSize(10)
+                .setFlushIntervalInMS(60000));
+        for (int i = 0; i < 25; i++) {
+            logHandler.storeLogInDB("alice", "entry " + i);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (logHandler.getDBLogStatistics().getFlushCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        DBLogStatistics statistics = logHandler.getDBLogStatistics();
+        assertEquals(20, statistics.getStoredCount());
+        assertEquals(2, statistics.getFlushCount());
+        assertEquals(5, statistics.getPendingCount());
+
+        logHandler.flushDB();
+        statistics = logHandler.getDBLogStatistics();
+        assertEquals(25, statistics.getStoredCount());
+        assertEquals(3, statistics.getFlushCount());
+        assertEquals(0, statistics.getPendingCount());
+        assertTrue(statistics.getMaxFlushTimeInMS() > 0);
+    }
+
+    @Test
+    public void writesPartialBatchesOnceTheIntervalElapsed() throws InterruptedException {
+        BlimpItLogHandler logHandler = (BlimpItLogHandler) getInstance(new DBLogConfig()
+                .setMaxBatchSize(100)
+                .setFlushIntervalInMS(50));
+        logHandler.storeLogInDB("alice", "entry");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (logHandler.getDBLogStatistics().getFlushCount() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, logHandler.getDBLogStatistics().getStoredCount());
+    }
+
+    @Test
+    public void dropsEntriesWhileTheBufferIsFull() throws SQLException {
+        DBLogSink sink = new DBLogSink(dataSource, new DBLogConfig()
+                .setBufferSize(4)
+                .setFlushIntervalInMS(60000));
+        try {
+            // hold the writer back until the buffer is full, by locking the table
+            Connection lock = dataSource.getConnection();
+            lock.setAutoCommit(false);
+            try (Statement statement = lock.createStatement()) {
+                statement.execute("SELECT * FROM `blimpit_logs` FOR UPDATE");
+                int stored = 0;
+                for (int i = 0; i < 10; i++) {
+                    if (sink.store("alice", "entry " + i, i)) {
+                        stored++;
+                    }
+                }
+                assertEquals(4, stored);
+                assertEquals(6, sink.getStatistics().getDroppedCount());
+            } finally {
+                lock.rollback();
+                lock.close();
+            }
+            sink.flush();
+            assertEquals(4, sink.getStatistics().getStoredCount() + sink.getStatistics().getFailedCount());
+        } finally {
+            sink.close();
+        }
+    }
+
+    @Test
+    public void indexesTheTableOnUserAndTime() throws SQLException {
+        getInstance(new DBLogConfig().setTableName("activity_logs"));
+        try (Connection connection = dataSource.getConnection();
+             ResultSet indexes = connection.getMetaData().getIndexInfo(null, null, "activity_logs", false, false)) {
+            boolean found = false;
+            while (indexes.next()) {
+                if ("activity_logs_user_time".equalsIgnoreCase(indexes.getString("INDEX_NAME"))
+                        && indexes.getShort("ORDINAL_POSITION") == 1) {
+                    assertEquals("user_name", indexes.getString("COLUMN_NAME").toLowerCase());
+                    found = true;
+                }
+            }
+            assertTrue(found);
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void refusesDBOperationsWithoutADataSource() {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(temporaryFolder.getRoot().getAbsolutePath());
+        logHandler.storeLogInDB("alice", "logged in");
+    }
+
+    private LogHandler getInstance(DBLogConfig dbConfig) {
+        return BlimpItLogHandler.getInstance(temporaryFolder.getRoot().getAbsolutePath(), new FileLogConfig(),
+                dataSource, dbConfig);
+    }
+}
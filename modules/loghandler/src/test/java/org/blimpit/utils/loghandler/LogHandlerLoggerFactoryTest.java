@@ -0,0 +1,103 @@
+package org.blimpit.utils.loghandler;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogHandlerLoggerFactoryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        LogHandlerLoggerFactory.install(null);
+        BlimpItLogHandler.shutdown();
+    }
+
+    @Test
+    public void logsFormattedEventsAsActivitiesOfTheDefaultUser() {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        LogHandlerLoggerFactory factory = new LogHandlerLoggerFactory(logHandler);
+        Logger logger = factory.getLogger("org.example.Uploader");
+        logger.info("uploaded {} of {} bytes", 10, 42);
+        logger.debug("not logged at {}", "INFO");
+        logger.error("upload failed", new IOException("broken pipe"));
+
+        String[] lines = logHandler.getLogs(0, Long.MAX_VALUE, LogHandlerLoggerFactory.DEFAULT_USER_NAME).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].endsWith("\tINFO org.example.Uploader - uploaded 10 of 42 bytes"));
+        assertTrue(lines[1].contains("\tERROR org.example.Uploader - upload failed\\njava.io.IOException: broken pipe"));
+        assertEquals(2, factory.getLoggedCount());
+        assertEquals(0, factory.getDroppedCount());
+    }
+
+    @Test
+    public void takesTheThrowableFromTheLastArgument() {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        Logger logger = new LogHandlerLoggerFactory(logHandler).setUserName("uploads").getLogger("uploader");
+        logger.warn("could not copy {} to {}", "a", "b", new IOException("disk full"));
+
+        String logs = logHandler.getLogs(0, Long.MAX_VALUE, "uploads");
+        assertTrue(logs.contains("WARN uploader - could not copy a to b\\njava.io.IOException: disk full"));
+    }
+
+    @Test
+    public void onlyLogsTheEnabledLevels() {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        LogHandlerLoggerFactory factory = new LogHandlerLoggerFactory(logHandler).setLevel(Level.WARN);
+        Logger logger = factory.getLogger("uploader");
+        assertFalse(logger.isInfoEnabled());
+        assertTrue(logger.isWarnEnabled());
+        logger.info("ignored");
+        logger.warn("kept");
+
+        factory.setLevel(Level.TRACE);
+        assertTrue(logger.isTraceEnabled());
+        logger.trace("traced");
+
+        assertEquals(2, factory.getLoggedCount());
+        assertEquals(2, logHandler.getLogs(0, Long.MAX_VALUE, "system").split("\n").length);
+    }
+
+    @Test
+    public void installedLoggersLogToTheInstalledFactory() {
+        Logger logger = LogHandlerLoggerFactory.getInstalledLogger(LogHandlerLoggerFactoryTest.class);
+        // no factory installed, to the SLF4J binding
+        logger.error("before");
+
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        LogHandlerLoggerFactory factory = new LogHandlerLoggerFactory(logHandler);
+        LogHandlerLoggerFactory.install(factory);
+        logger.error("after");
+
+        String logs = logHandler.getLogs(0, Long.MAX_VALUE, "system");
+        assertEquals(1, logs.split("\n").length);
+        assertTrue(logs.contains("ERROR " + LogHandlerLoggerFactoryTest.class.getName() + " - after"));
+        assertEquals(1, factory.getLoggedCount());
+    }
+
+    @Test
+    public void countsTheEventsTheHandlerRefuses() {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(baseDirectory());
+        LogHandlerLoggerFactory factory = new LogHandlerLoggerFactory(logHandler);
+        BlimpItLogHandler.shutdown();
+
+        factory.getLogger("uploader").error("lost");
+        assertEquals(0, factory.getLoggedCount());
+        assertEquals(1, factory.getDroppedCount());
+    }
+
+    private String baseDirectory() {
+        return temporaryFolder.getRoot().getAbsolutePath();
+    }
+}
@@ -0,0 +1,51 @@
+package org.blimpit.utils.loghandler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class LogRingBufferTest {
+
+    @Test
+    public void roundsTheCapacityUpToAPowerOfTwo() {
+        assertEquals(8, new LogRingBuffer(5).getCapacity());
+        assertEquals(8, new LogRingBuffer(8).getCapacity());
+        assertEquals(2, new LogRingBuffer(0).getCapacity());
+    }
+
+    @Test
+    public void hidesSlotsUntilTheEarlierOnesArePublished() {
+        LogRingBuffer ringBuffer = new LogRingBuffer(4);
+        long first = ringBuffer.claim();
+        long second = ringBuffer.claim();
+        ringBuffer.publish(second);
+        assertEquals(-1, ringBuffer.getHighestPublished(0));
+        ringBuffer.publish(first);
+        assertEquals(1, ringBuffer.getHighestPublished(0));
+    }
+
+    @Test
+    public void reusesTheSlotsOfReleasedSequences() {
+        LogRingBuffer ringBuffer = new LogRingBuffer(2);
+        for (int i = 0; i < 2; i++) {
+            ringBuffer.publish(ringBuffer.claim());
+        }
+        ringBuffer.release(ringBuffer.getHighestPublished(0));
+        long sequence = ringBuffer.claim();
+        assertEquals(2, sequence);
+        assertSame(ringBuffer.get(0), ringBuffer.get(sequence));
+        // the slot still holds the round of the previous sequence
+        assertEquals(1, ringBuffer.getHighestPublished(2));
+        ringBuffer.publish(sequence);
+        assertEquals(2, ringBuffer.getHighestPublished(2));
+    }
+
+    @Test
+    public void givesUpAFullRingOnceTheConditionFails() {
+        LogRingBuffer ringBuffer = new LogRingBuffer(2);
+        assertEquals(0, ringBuffer.claim(() -> false));
+        assertEquals(1, ringBuffer.claim(() -> false));
+        assertEquals(-1, ringBuffer.claim(() -> false));
+    }
+}
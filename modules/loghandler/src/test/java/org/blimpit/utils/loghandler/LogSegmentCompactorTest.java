@@ -0,0 +1,177 @@
+package org.blimpit.utils.loghandler;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogSegmentCompactorTest {
+
+    private static final int INDEX_INTERVAL = 4;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        BlimpItLogHandler.shutdown();
+    }
+
+    @Test
+    public void compressesRolledFilesIntoBlocks() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        write(directory, 0, 100);
+        String before = read(directory, 0, Long.MAX_VALUE);
+
+        newCompactor(new FileLogConfig().setCompressionBlockSizeInBytes(64)).compact(directory, 0);
+
+        List<String> names = fileNames(directory);
+        assertEquals(3, names.size());
+        assertTrue(names.get(0).startsWith("activity-1000_") && names.get(0).endsWith(".logz"));
+        assertEquals(before, read(directory, 0, Long.MAX_VALUE));
+        assertEquals("1050\tentry50\n1051\tentry51\n", read(directory, 1050, 1051));
+        assertEquals("1098\tentry98\n1099\tentry99\n", read(directory, 1098, Long.MAX_VALUE));
+        assertEquals("", read(directory, 0, 999));
+    }
+
+    @Test
+    public void compactsACompressedFileWithTheFilesRolledAfterIt() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        LogSegmentCompactor compactor = newCompactor(new FileLogConfig());
+        write(directory, 0, 30);
+        compactor.compact(directory, 0);
+        String first = fileNames(directory).get(0);
+        write(directory, 30, 60);
+        compactor.compact(directory, 0);
+
+        List<String> names = fileNames(directory);
+        assertEquals(3, names.size());
+        assertTrue(names.get(0).startsWith("activity-1000_") && names.get(0).endsWith(".logz"));
+        assertFalse(names.get(0).equals(first));
+        assertEquals(60, read(directory, 0, Long.MAX_VALUE).split("\n").length);
+    }
+
+    @Test
+    public void startsANewCompressedFileOnceTheMaxSizeIsReached() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        write(directory, 0, 60);
+        newCompactor(new FileLogConfig().setMaxCompactedFileSizeInBytes(300)).compact(directory, 0);
+
+        List<String> names = fileNames(directory);
+        assertTrue(names.stream().filter(name -> name.endsWith(".logz")).count() > 1);
+        assertFalse(names.stream().anyMatch(name -> name.startsWith("activity-") && name.endsWith(".log")));
+        assertEquals(60, read(directory, 0, Long.MAX_VALUE).split("\n").length);
+    }
+
+    @Test
+    public void readsEveryEntryOnceWhileRolledFilesAreBeingDeleted() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        write(directory, 0, 30);
+        String before = read(directory, 0, Long.MAX_VALUE);
+        List<LogSegment> rolled = LogSegment.getSegments(directory).stream()
+                .filter(segment -> !segment.isActive()).collect(Collectors.toList());
+        // compressed, but not deleted yet
+        CompressedLogFile.compress(rolled.stream().map(LogSegment::getFile).collect(Collectors.toList()),
+                LogSegment.getCompressedFile(rolled.get(0), rolled.get(rolled.size() - 1)), 64);
+
+        assertEquals(before, read(directory, 0, Long.MAX_VALUE));
+        newCompactor(new FileLogConfig().setCompressRolledFiles(false)).compact(directory, 0);
+        assertEquals(3, fileNames(directory).size());
+        assertEquals(before, read(directory, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void deletesTheFilesPastTheRetentionAge() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        write(directory, 0, 30);
+        newCompactor(new FileLogConfig().setCompressRolledFiles(false).setRetentionAgeInMS(10))
+                .compact(directory, 1020);
+
+        List<String> entries = Arrays.asList(read(directory, 0, Long.MAX_VALUE).split("\n"));
+        // only the files whose entries are all older than 1010 are deleted
+        assertTrue(entries.get(0).compareTo("1010") <= 0);
+        assertTrue(entries.get(0).compareTo("1005") > 0);
+        assertEquals("1029\tentry29", entries.get(entries.size() - 1));
+    }
+
+    @Test
+    public void deletesTheOldestFilesPastTheRetentionSize() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        write(directory, 0, 60);
+        newCompactor(new FileLogConfig().setMaxCompactedFileSizeInBytes(300).setRetentionSizeInBytes(400))
+                .compact(directory, 0);
+
+        long size = 0;
+        for (LogSegment segment : LogSegment.getSegments(directory)) {
+            size += segment.getSize();
+        }
+        assertTrue(size <= 400);
+        assertTrue(read(directory, 0, Long.MAX_VALUE).endsWith("1059\tentry59\n"));
+    }
+
+    @Test
+    public void compressesTheFilesRolledByTheHandlerInTheBackground() throws IOException, InterruptedException {
+        LogHandler logHandler = BlimpItLogHandler.getInstance(temporaryFolder.getRoot().getAbsolutePath(),
+                new FileLogConfig().setMaxFileSizeInBytes(100).setBufferSizeInBytes(64)
+                        .setCompactionIntervalInMS(10));
+        for (int i = 0; i < 20; i++) {
+            logHandler.logMessage("alice", "activity number " + i);
+        }
+        ((BlimpItLogHandler) logHandler).flush();
+        Path directory = temporaryFolder.getRoot().toPath().resolve("alice");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (fileNames(directory).stream().anyMatch(name -> name.startsWith("activity-") && name.endsWith(".log"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(fileNames(directory).stream().anyMatch(name -> name.endsWith(".logz")));
+        String[] lines = logHandler.getLogs(0, Long.MAX_VALUE, "alice").split("\n");
+        assertEquals(20, lines.length);
+        assertTrue(lines[19].endsWith("\tactivity number 19"));
+    }
+
+    private static LogSegmentCompactor newCompactor(FileLogConfig config) {
+        return new LogSegmentCompactor(null, config);
+    }
+
+    /**
+     * Appends the entries from to to, one a millisecond from 1000, rolling the file every 100 bytes
+     */
+    private static void write(Path directory, int from, int to) throws IOException {
+        try (UserLogFile file = new UserLogFile(directory, 64, INDEX_INTERVAL)) {
+            for (int i = from; i < to; i++) {
+                if (file.needsRolling(1000 + i, 100, 0)) {
+                    file.roll(false);
+                }
+                file.append(1000 + i, "entry" + i);
+            }
+        }
+    }
+
+    private static List<String> fileNames(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static String read(Path directory, long begin, long end) {
+        StringBuilder logs = new StringBuilder();
+        try (LogEntryCursor cursor = new LogEntryCursor(directory,
+                new LogQuery().setBeginTimestamp(begin).setEndTimestamp(end))) {
+            cursor.forEachRemaining(entry -> logs.append(entry).append('\n'));
+        }
+        return logs.toString();
+    }
+}
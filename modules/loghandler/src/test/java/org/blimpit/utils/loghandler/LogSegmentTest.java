@@ -0,0 +1,113 @@
+package org.blimpit.utils.loghandler;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LogSegmentTest {
+
+    private static final int INDEX_INTERVAL = 4;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void indexesEveryIntervalthEntry() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (UserLogFile file = new UserLogFile(directory, 64, INDEX_INTERVAL)) {
+            for (int i = 0; i < 10; i++) {
+                file.append(1000 + i, "entry" + i);
+            }
+        }
+        // entries 0, 4 and 8
+        assertEquals(3 * UserLogFile.INDEX_ENTRY_SIZE, Files.size(directory.resolve("activity.idx")));
+    }
+
+    @Test
+    public void readsTheEntriesOfTheRange() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (UserLogFile file = new UserLogFile(directory, 64, INDEX_INTERVAL)) {
+            for (int i = 0; i < 100; i++) {
+                file.append(1000 + i / 2, "entry" + i);
+            }
+        }
+        assertEquals("1020\tentry40\n1020\tentry41\n1021\tentry42\n1021\tentry43\n", read(directory, 1020, 1021));
+        assertEquals("1000\tentry0\n1000\tentry1\n", read(directory, 0, 1000));
+        assertEquals("1049\tentry98\n1049\tentry99\n", read(directory, 1049, Long.MAX_VALUE));
+        assertEquals("", read(directory, 1050, Long.MAX_VALUE));
+        assertEquals("", read(directory, 0, 999));
+    }
+
+    @Test
+    public void readsAcrossRolledFiles() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (UserLogFile file = new UserLogFile(directory, 64, INDEX_INTERVAL)) {
+            for (int i = 0; i < 30; i++) {
+                if (file.needsRolling(1000 + i, 100, 0)) {
+                    file.roll(false);
+                }
+                file.append(1000 + i, "entry" + i);
+            }
+        }
+        assertTrue(LogSegment.getLogFiles(directory).size() > 3);
+        assertEquals("1009\tentry9\n1010\tentry10\n1011\tentry11\n1012\tentry12\n", read(directory, 1009, 1012));
+        assertEquals(30, read(directory, 0, Long.MAX_VALUE).split("\n").length);
+    }
+
+    @Test
+    public void neverWritesDecreasingTimes() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (UserLogFile file = new UserLogFile(directory, 64, INDEX_INTERVAL)) {
+            file.append(1000, "first");
+            file.append(999, "second");
+            file.roll(false);
+            file.append(998, "third");
+        }
+        assertEquals("1000\tfirst\n1000\tsecond\n1000\tthird\n", read(directory, 1000, 1000));
+    }
+
+    @Test
+    public void readsFilesWithoutAnIndexFromTheirStart() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (UserLogFile file = new UserLogFile(directory, 64, INDEX_INTERVAL)) {
+            for (int i = 0; i < 10; i++) {
+                file.append(1000 + i, "entry" + i);
+            }
+        }
+        Files.delete(directory.resolve("activity.idx"));
+        assertEquals("1005\tentry5\n", read(directory, 1005, 1005));
+        // an index written for the entries added after the file is opened again
+        try (UserLogFile file = new UserLogFile(directory, 64, INDEX_INTERVAL)) {
+            file.append(1000, "entry10");
+        }
+        assertEquals("1009\tentry9\n1009\tentry10\n", read(directory, 1009, 1009));
+    }
+
+    @Test
+    public void ignoresAnEntryBeingWritten() throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        try (UserLogFile file = new UserLogFile(directory, 64, INDEX_INTERVAL)) {
+            file.append(1000, "complete");
+        }
+        Files.write(directory.resolve("activity.log"), "1001\tincompl".getBytes(),
+                StandardOpenOption.APPEND);
+        assertEquals("1000\tcomplete\n", read(directory, 0, Long.MAX_VALUE));
+    }
+
+    private static String read(Path directory, long begin, long end) {
+        StringBuilder logs = new StringBuilder();
+        try (LogEntryCursor cursor = new LogEntryCursor(directory,
+                new LogQuery().setBeginTimestamp(begin).setEndTimestamp(end))) {
+            cursor.forEachRemaining(entry -> logs.append(entry).append('\n'));
+        }
+        return logs.toString();
+    }
+}
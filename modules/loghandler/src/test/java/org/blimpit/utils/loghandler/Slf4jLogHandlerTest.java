@@ -0,0 +1,70 @@
+package org.blimpit.utils.loghandler;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Slf4jLogHandlerTest {
+
+    @Test
+    public void logsTheActivityAtInfoWithAParameterizedMessage() {
+        List<String> calls = new ArrayList<>();
+        LogHandler logHandler = new Slf4jLogHandler(newLogger(true, calls));
+        logHandler.logMessage("alice", "logged in");
+
+        assertEquals(Arrays.asList("isInfoEnabled[]", "info[{}, logged in]"), calls);
+    }
+
+    @Test
+    public void skipsTheActivityWhenInfoIsNotEnabled() {
+        List<String> calls = new ArrayList<>();
+        LogHandler logHandler = new Slf4jLogHandler(newLogger(false, calls));
+        logHandler.logMessage("alice", "logged in");
+
+        assertEquals(Arrays.asList("isInfoEnabled[]"), calls);
+    }
+
+    @Test
+    public void sharesAnInstancePerLogger() {
+        assertTrue(Slf4jLogHandler.getInstance() == Slf4jLogHandler.getInstance(Slf4jLogHandler.DEFAULT_LOGGER_NAME));
+    }
+
+    @Test
+    public void logsTheActivityStoredInDB() {
+        List<String> calls = new ArrayList<>();
+        LogHandler logHandler = new Slf4jLogHandler(newLogger(true, calls));
+        logHandler.storeLogInDB("alice", "logged in");
+
+        assertEquals(Arrays.asList("isInfoEnabled[]", "info[{}, logged in]"), calls);
+    }
+
+    @Test
+    public void leavesReadingToTheBackend() {
+        List<String> calls = new ArrayList<>();
+        LogHandler logHandler = new Slf4jLogHandler(newLogger(true, calls));
+        LogQuery query = new LogQuery();
+        assertEquals("", logHandler.getLogs(0, Long.MAX_VALUE, "alice"));
+        assertEquals("", logHandler.getLogsFromDB(0, Long.MAX_VALUE, "alice"));
+        assertEquals(0, logHandler.streamLogs("alice", query).count());
+        assertEquals(0, logHandler.streamLogsFromDB("alice", query).count());
+        assertFalse(logHandler.readLogs("alice", query, entry -> true));
+        assertFalse(logHandler.readLogsFromDB("alice", query, entry -> true));
+        assertTrue(calls.isEmpty());
+    }
+
+    private static Logger newLogger(boolean infoEnabled, List<String> calls) {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[]{Logger.class},
+                (proxy, method, arguments) -> {
+                    calls.add(method.getName() + Arrays.toString(arguments == null ? new Object[0] : arguments));
+                    return method.getReturnType() == boolean.class ? infoEnabled : null;
+                });
+    }
+}